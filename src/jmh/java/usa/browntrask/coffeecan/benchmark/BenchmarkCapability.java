@@ -0,0 +1,42 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import usa.browntrask.coffeecan.AuthorizationCriteriaBuilder;
+import usa.browntrask.coffeecan.BaseCapability;
+import usa.browntrask.coffeecan.CoffeeCanException;
+import usa.browntrask.coffeecan.Operation;
+
+import java.util.Arrays;
+
+/**
+ * Capability with a configurable number of rules and registered actions for the benchmarks.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+public class BenchmarkCapability extends BaseCapability {
+
+    /**
+     * Constructs a capability allowing reads of resources whose integer field is one of <code>0</code> to
+     * <code>ruleCount - 1</code>, with one rule per value, and registering actions that each include read.
+     *
+     * @param ruleCount         the number of rules allowing read.
+     * @param registeredActions the number of additional actions that include read.
+     * @throws usa.browntrask.coffeecan.CoffeeCanException if the rules cannot be built or the actions registered.
+     */
+    public BenchmarkCapability(final int ruleCount, final int registeredActions) throws CoffeeCanException {
+        super();
+
+        setDefaultAccess(false);
+        for (int action = 0; action < registeredActions; ++action) {
+            registerAction("action" + action, Arrays.asList(READ, "other" + action));
+        }
+
+        for (int rule = 0; rule < ruleCount; ++rule) {
+            can(READ, BenchmarkResource.class,
+                new AuthorizationCriteriaBuilder<>(BenchmarkResource.class)
+                        .compare("integerField", Operation.EQUALS, rule)
+                        .build());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Organization owning the benchmarked resources, at the end of a deep field path.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@Entity
+public class BenchmarkOrganization {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    public BenchmarkOrganization() {
+        super();
+    }
+
+    public BenchmarkOrganization(final Long id, final String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,46 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * Owner of the benchmarked resources.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@Entity
+public class BenchmarkOwner {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    @ManyToOne
+    private BenchmarkOrganization organization;
+
+    public BenchmarkOwner() {
+        super();
+    }
+
+    public BenchmarkOwner(final Long id, final String name, final BenchmarkOrganization organization) {
+        this.id = id;
+        this.name = name;
+        this.organization = organization;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BenchmarkOrganization getOrganization() {
+        return organization;
+    }
+}
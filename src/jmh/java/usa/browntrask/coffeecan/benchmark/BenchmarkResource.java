@@ -0,0 +1,91 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Transient;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resource whose access is authorized in the benchmarks.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@Entity
+public class BenchmarkResource {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    private Integer integerField;
+
+    @ManyToOne
+    private BenchmarkOwner owner;
+
+    @OneToMany(mappedBy = "resource")
+    private List<BenchmarkTag> tags = new ArrayList<>();
+
+    @Transient
+    private BenchmarkShape shape = new BenchmarkShape.Square();
+
+    public BenchmarkResource() {
+        super();
+    }
+
+    public BenchmarkResource(final Long id, final String name, final Integer integerField,
+                             final BenchmarkOwner owner) {
+        this.id = id;
+        this.name = name;
+        this.integerField = integerField;
+        this.owner = owner;
+    }
+
+    /**
+     * Creates a resource with an owner, an organization and a number of tags.
+     *
+     * @param integerField the value of the integer field.
+     * @param tagCount     the number of tags.
+     * @return the resource.
+     */
+    public static BenchmarkResource create(final int integerField, final int tagCount) {
+        final BenchmarkOrganization organization = new BenchmarkOrganization(1L, "organization");
+        final BenchmarkOwner owner = new BenchmarkOwner(1L, "owner", organization);
+        final BenchmarkResource resource = new BenchmarkResource(1L, "resource", integerField, owner);
+
+        for (int tag = 0; tag < tagCount; ++tag) {
+            resource.tags.add(new BenchmarkTag((long) tag, "tag" + tag, resource));
+        }
+
+        return resource;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getIntegerField() {
+        return integerField;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BenchmarkOwner getOwner() {
+        return owner;
+    }
+
+    public BenchmarkShape getShape() {
+        return shape;
+    }
+
+    public List<BenchmarkTag> getTags() {
+        return tags;
+    }
+}
@@ -0,0 +1,21 @@
+package usa.browntrask.coffeecan.benchmark;
+
+/**
+ * Abstract shape of a benchmarked resource. Field paths through it are resolved by searching its subclasses.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+public abstract class BenchmarkShape {
+
+    /**
+     * Square implementation of the shape.
+     */
+    public static class Square extends BenchmarkShape {
+
+        public int getSides() {
+            return 4;
+        }
+    }
+}
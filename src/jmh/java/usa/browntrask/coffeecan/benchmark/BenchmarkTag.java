@@ -0,0 +1,46 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * Tag on a benchmarked resource, reached through a collection field path.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@Entity
+public class BenchmarkTag {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    @ManyToOne
+    private BenchmarkResource resource;
+
+    public BenchmarkTag() {
+        super();
+    }
+
+    public BenchmarkTag(final Long id, final String name, final BenchmarkResource resource) {
+        this.id = id;
+        this.name = name;
+        this.resource = resource;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public BenchmarkResource getResource() {
+        return resource;
+    }
+}
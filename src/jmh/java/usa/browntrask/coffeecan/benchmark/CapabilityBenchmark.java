@@ -0,0 +1,58 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import usa.browntrask.coffeecan.CoffeeCanException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link usa.browntrask.coffeecan.BaseCapability#allows(String, Object)} across the number of rules for
+ * the resource and the number of registered actions that control the requested action.
+ * <p>
+ * The allowed resource only matches the last rule, so every rule is evaluated, while the denied resource matches no
+ * rule, so every rule of every controlling action is evaluated.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CapabilityBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int ruleCount;
+
+    @Param({"0", "10", "100"})
+    private int registeredActions;
+
+    private BenchmarkCapability capability;
+    private BenchmarkResource allowedResource;
+    private BenchmarkResource deniedResource;
+
+    @Setup
+    public void setUp() throws CoffeeCanException {
+        capability = new BenchmarkCapability(ruleCount, registeredActions);
+        allowedResource = BenchmarkResource.create(ruleCount - 1, 0);
+        deniedResource = BenchmarkResource.create(-1, 0);
+    }
+
+    @Benchmark
+    public boolean allowed() throws CoffeeCanException {
+        return capability.allows("read", allowedResource);
+    }
+
+    @Benchmark
+    public boolean denied() throws CoffeeCanException {
+        return capability.allows("read", deniedResource);
+    }
+}
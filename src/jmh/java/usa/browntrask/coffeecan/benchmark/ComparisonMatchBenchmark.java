@@ -0,0 +1,74 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import usa.browntrask.coffeecan.AuthorizationCriteria;
+import usa.browntrask.coffeecan.AuthorizationCriteriaBuilder;
+import usa.browntrask.coffeecan.CoffeeCanException;
+import usa.browntrask.coffeecan.Operation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks matching a single comparison against a resource for the different kinds of field path: a field on the
+ * resource, a path through associations, a path through a collection and a path through an abstract class whose
+ * subclasses must be searched for the field.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ComparisonMatchBenchmark {
+
+    private static final int TAG_COUNT = 10;
+
+    @Param({"shallow", "deep", "collection", "abstract"})
+    private String path;
+
+    private AuthorizationCriteria<BenchmarkResource> authorizationCriteria;
+    private BenchmarkResource resource;
+
+    @Setup
+    public void setUp() throws CoffeeCanException {
+        final AuthorizationCriteriaBuilder<BenchmarkResource> builder =
+                new AuthorizationCriteriaBuilder<>(BenchmarkResource.class);
+
+        switch (path) {
+            case "shallow":
+                builder.compare("name", Operation.EQUALS, "resource");
+                break;
+
+            case "deep":
+                builder.compare("owner.organization.name", Operation.EQUALS, "organization");
+                break;
+
+            case "collection":
+                builder.compare("tags.name", Operation.EQUALS, "tag" + (TAG_COUNT - 1));
+                break;
+
+            case "abstract":
+                builder.compare("shape.sides", Operation.EQUALS, 4);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unrecognized path " + path);
+        }
+
+        authorizationCriteria = builder.build();
+        resource = BenchmarkResource.create(0, TAG_COUNT);
+    }
+
+    @Benchmark
+    public boolean matches() throws CoffeeCanException {
+        return authorizationCriteria.matches(resource);
+    }
+}
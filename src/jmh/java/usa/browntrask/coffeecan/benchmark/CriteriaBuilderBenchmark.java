@@ -0,0 +1,50 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import usa.browntrask.coffeecan.AuthorizationCriteria;
+import usa.browntrask.coffeecan.AuthorizationCriteriaBuilder;
+import usa.browntrask.coffeecan.CoffeeCanException;
+import usa.browntrask.coffeecan.Operation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building, and so verifying, an authorization criteria that ORs together a number of comparisons, each
+ * ANDing a field on the resource with a field on its owner's organization.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CriteriaBuilderBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int terms;
+
+    @Benchmark
+    public AuthorizationCriteria<BenchmarkResource> build() throws CoffeeCanException {
+        final AuthorizationCriteriaBuilder<BenchmarkResource> builder =
+                new AuthorizationCriteriaBuilder<>(BenchmarkResource.class);
+
+        for (int term = 0; term < terms; ++term) {
+            if (term > 0) {
+                builder.or();
+            }
+
+            builder.compare("integerField", Operation.EQUALS, term)
+                    .and()
+                    .compare("owner.organization.name", Operation.EQUALS, "organization");
+        }
+
+        return builder.build();
+    }
+}
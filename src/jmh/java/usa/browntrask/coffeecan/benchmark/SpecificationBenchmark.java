@@ -0,0 +1,98 @@
+package usa.browntrask.coffeecan.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import usa.browntrask.coffeecan.CoffeeCanException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks converting the authorization criteria of a capability into a JPA predicate using the
+ * {@link javax.persistence.criteria.CriteriaBuilder} of an H2-backed entity manager.
+ * <p>
+ * The specification is benchmarked both on its own, converting already built criteria, and together with building
+ * it from the capability, as happens for each request to list resources.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/22
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SpecificationBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int ruleCount;
+
+    private EmbeddedDatabase database;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private CriteriaBuilder criteriaBuilder;
+    private BenchmarkCapability capability;
+    private Specification<BenchmarkResource> specification;
+
+    @Setup
+    public void setUp() throws CoffeeCanException {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+
+        final LocalContainerEntityManagerFactoryBean entityManagerFactoryBean =
+                new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(database);
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setPackagesToScan(BenchmarkResource.class.getPackage().getName());
+        entityManagerFactoryBean.setJpaPropertyMap(Collections.singletonMap("hibernate.hbm2ddl.auto", "create-drop"));
+        entityManagerFactoryBean.afterPropertiesSet();
+
+        entityManagerFactory = entityManagerFactoryBean.getObject();
+        entityManager = entityManagerFactory.createEntityManager();
+        criteriaBuilder = entityManager.getCriteriaBuilder();
+        capability = new BenchmarkCapability(ruleCount, 0);
+        specification = capability.toSpecification("read", BenchmarkResource.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        entityManagerFactory.close();
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Predicate toPredicate() {
+        return toPredicate(specification);
+    }
+
+    @Benchmark
+    public Predicate toSpecificationAndPredicate() {
+        return toPredicate(capability.toSpecification("read", BenchmarkResource.class));
+    }
+
+    private Predicate toPredicate(final Specification<BenchmarkResource> specification) {
+        final CriteriaQuery<BenchmarkResource> query = criteriaBuilder.createQuery(BenchmarkResource.class);
+        final Root<BenchmarkResource> root = query.from(BenchmarkResource.class);
+
+        return specification.toPredicate(root, query, criteriaBuilder);
+    }
+}
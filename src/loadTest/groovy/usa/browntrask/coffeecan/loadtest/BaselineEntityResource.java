@@ -0,0 +1,77 @@
+package usa.browntrask.coffeecan.loadtest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import usa.browntrask.coffeecan.TestEntity;
+import usa.browntrask.coffeecan.TestEntityRepository;
+import usa.browntrask.coffeecan.TestParentEntity;
+import usa.browntrask.coffeecan.TestParentEntityRepository;
+
+import java.util.List;
+
+/**
+ * Performs the same work as {@link usa.browntrask.coffeecan.TestEntityResource} and
+ * {@link usa.browntrask.coffeecan.TestChildEntityResource} directly against the repositories, without CoffeeCan, so
+ * that the load test can measure the overhead CoffeeCan adds to each request.
+ */
+@RestController
+public class BaselineEntityResource {
+
+    @Autowired
+    private TestEntityRepository testEntityRepository;
+
+    @Autowired
+    private TestParentEntityRepository testParentEntityRepository;
+
+    @GetMapping(value = "/baseline/entities/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TestEntity read(@PathVariable("id") final Long id) {
+        return find(id);
+    }
+
+    @PutMapping(value = "/baseline/entities/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public TestEntity update(@PathVariable("id") final Long id) {
+        final TestEntity testEntity = find(id);
+
+        testEntity.setIntegerField(testEntity.getIntegerField() + 1);
+
+        testEntityRepository.save(testEntity);
+        return testEntity;
+    }
+
+    @DeleteMapping(value = "/baseline/entities/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void delete(@PathVariable("id") final Long id) {
+        testEntityRepository.delete(find(id));
+    }
+
+    @GetMapping(value = "/baseline/parentEntities/{sharedParentId}/entities",
+                produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TestEntity> children(@PathVariable("sharedParentId") final Long sharedParentId) {
+        final TestParentEntity testParentEntity = testParentEntityRepository.findOne(sharedParentId);
+        if (testParentEntity == null) {
+            throw new NotFoundException();
+        }
+
+        return testEntityRepository.findAll(
+                (root, query, cb) -> cb.equal(root.get("sharedParentId"), sharedParentId));
+    }
+
+    private TestEntity find(final Long id) {
+        final TestEntity testEntity = testEntityRepository.findOne(id);
+        if (testEntity == null) {
+            throw new NotFoundException();
+        }
+
+        return testEntity;
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    static class NotFoundException extends RuntimeException {
+    }
+}
@@ -0,0 +1,168 @@
+package usa.browntrask.coffeecan.loadtest
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.web.client.TestRestTemplate
+import org.springframework.http.HttpMethod
+import org.springframework.http.ResponseEntity
+import org.springframework.test.context.ContextConfiguration
+import spock.lang.Specification
+import usa.browntrask.coffeecan.AuthorizationCriteriaBuilder
+import usa.browntrask.coffeecan.Capability
+import usa.browntrask.coffeecan.Operation
+import usa.browntrask.coffeecan.TestApplication
+import usa.browntrask.coffeecan.TestEntity
+import usa.browntrask.coffeecan.TestEntityCapability
+import usa.browntrask.coffeecan.TestEntityRepository
+import usa.browntrask.coffeecan.TestParentEntity
+import usa.browntrask.coffeecan.TestParentEntityRepository
+import usa.browntrask.coffeecan.TrueAuthorizationCriteria
+
+/**
+ * Drives concurrent GET, PUT and DELETE traffic through the CoffeeCan interceptor, and through the same handlers
+ * without CoffeeCan, and reports the throughput and latency of each.
+ * <p>
+ * The load is configured with system properties:
+ * <ul>
+ * <li><code>coffeecan.loadtest.concurrency</code> - the number of concurrent clients (8).</li>
+ * <li><code>coffeecan.loadtest.entities</code> - the number of entities, with one parent per ten entities (1000).</li>
+ * <li><code>coffeecan.loadtest.rules</code> - the number of rules allowing access to the entities (10).</li>
+ * <li><code>coffeecan.loadtest.requests</code> - the number of requests sent by each client (500).</li>
+ * <li><code>coffeecan.loadtest.warmup</code> - the number of warm up requests sent by each client (200).</li>
+ * </ul>
+ * </p>
+ */
+@ContextConfiguration(classes = TestApplication)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = "coffeecan.server-timing=false")
+class InterceptorLoadSpec extends Specification {
+
+    private static final int CONCURRENCY = Integer.getInteger("coffeecan.loadtest.concurrency", 8)
+    private static final int ENTITIES = Integer.getInteger("coffeecan.loadtest.entities", 1000)
+    private static final int RULES = Integer.getInteger("coffeecan.loadtest.rules", 10)
+    private static final int REQUESTS = Integer.getInteger("coffeecan.loadtest.requests", 500)
+    private static final int WARMUP = Integer.getInteger("coffeecan.loadtest.warmup", 200)
+
+    @Autowired
+    TestEntityRepository testEntityRepository
+
+    @Autowired
+    TestParentEntityRepository testParentEntityRepository
+
+    @Autowired
+    TestEntityCapability testEntityCapability
+
+    @Autowired
+    private TestRestTemplate restTemplate
+
+    def setup() {
+        testEntityCapability.setup()
+
+        testEntityCapability.capability.can(Capability.READ, TestParentEntity,
+                                            new TrueAuthorizationCriteria<TestParentEntity>())
+
+        AuthorizationCriteriaBuilder<TestEntity> acb = new AuthorizationCriteriaBuilder<>(TestEntity)
+        (0..<RULES).each { rule ->
+            testEntityCapability.capability.can([Capability.READ, Capability.UPDATE, Capability.DELETE], TestEntity,
+                                                acb.compare("stringField", Operation.EQUALS, "value${rule}" as String)
+                                                        .build())
+        }
+    }
+
+    def cleanup() {
+        testEntityRepository.deleteAll()
+        testParentEntityRepository.deleteAll()
+    }
+
+    def "Reports the overhead CoffeeCan adds to each request"() {
+        given:
+        run("baseline warmup", "/baseline", WARMUP)
+        run("coffeecan warmup", "", WARMUP)
+
+        when:
+        LoadReport baseline = run("baseline", "/baseline", REQUESTS)
+
+        and:
+        LoadReport coffeeCan = run("coffeecan", "", REQUESTS)
+
+        then:
+        println """
+            |${ENTITIES} entities, ${RULES} rules, ${REQUESTS} requests per client
+            |${LoadReport.header()}
+            |${baseline}
+            |${coffeeCan}
+            |CoffeeCan adds ${overhead(baseline, coffeeCan, 0.50)}us at p50, ${overhead(baseline, coffeeCan, 0.99)}us at p99, ${overhead(baseline, coffeeCan, 0.999)}us at p999
+            |""".stripMargin()
+
+        and:
+        baseline.errors == 0
+
+        and:
+        coffeeCan.errors == 0
+    }
+
+    private LoadReport run(String name, String prefix, int requests) {
+        return new LoadGenerator(CONCURRENCY, requests).run(name, traffic(prefix, seed()))
+    }
+
+    private String overhead(LoadReport baseline, LoadReport coffeeCan, double fraction) {
+        return String.format("%.1f", coffeeCan.percentile(fraction) - baseline.percentile(fraction))
+    }
+
+    /**
+     * Replaces the entities and parents, and splits the entities between the clients so that each client updates and
+     * deletes only its own.
+     */
+    private Map<String, Object> seed() {
+        cleanup()
+
+        List<TestParentEntity> parents = (0..<Math.max(1, ENTITIES.intdiv(10))).collect {
+            testParentEntityRepository.save(new TestParentEntity())
+        }
+        List<TestEntity> entities = (0..<ENTITIES).collect { index ->
+            new TestEntity(stringField: "value${index % RULES}" as String, integerField: 0,
+                           sharedParent: parents[index % parents.size()])
+        }
+        List<Long> ids = testEntityRepository.save(entities).collect { it.id }
+
+        return [
+                parentIds: parents.collect { it.id },
+                clientIds: (0..<CONCURRENCY).collect { client ->
+                    (0..<ids.size()).findAll { it % CONCURRENCY == client }.collect { ids[it] } as LinkedList<Long>
+                }
+        ]
+    }
+
+    /**
+     * Sends 60% single entity GETs, 20% child GETs, 15% PUTs and 5% DELETEs.
+     */
+    private LoadGenerator.Request traffic(String prefix, Map<String, Object> data) {
+        List<Long> parentIds = data.parentIds
+        List<LinkedList<Long>> clientIds = data.clientIds
+        List<Random> randoms = (0..<CONCURRENCY).collect { new Random(it) }
+
+        return { int client, int sequence ->
+            Random random = randoms[client]
+            LinkedList<Long> ids = clientIds[client]
+            int choice = ids.isEmpty() ? 70 : random.nextInt(100)
+            ResponseEntity<String> response
+
+            if (choice < 60) {
+                response = exchange("${prefix}/entities/${ids[random.nextInt(ids.size())]}", HttpMethod.GET)
+            } else if (choice < 80) {
+                response = exchange("${prefix}/parentEntities/${parentIds[random.nextInt(parentIds.size())]}/entities",
+                                    HttpMethod.GET)
+            } else if (choice < 95) {
+                response = exchange("${prefix}/entities/${ids[random.nextInt(ids.size())]}", HttpMethod.PUT)
+            } else {
+                response = exchange("${prefix}/entities/${ids.remove(random.nextInt(ids.size()))}", HttpMethod.DELETE)
+            }
+
+            return response.statusCode.is2xxSuccessful()
+        } as LoadGenerator.Request
+    }
+
+    private ResponseEntity<String> exchange(String url, HttpMethod method) {
+        return restTemplate.exchange(url, method, null, String)
+    }
+}
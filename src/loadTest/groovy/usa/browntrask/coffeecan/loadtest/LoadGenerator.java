@@ -0,0 +1,100 @@
+package usa.browntrask.coffeecan.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends requests from a fixed number of concurrent workers and records the latency of each one.
+ */
+public class LoadGenerator {
+
+    /**
+     * A request sent by a worker.
+     */
+    @FunctionalInterface
+    public interface Request {
+
+        /**
+         * Sends the request.
+         *
+         * @param worker   the index of the worker sending the request.
+         * @param sequence the index of the request within those sent by the worker.
+         * @return <code>true</code> if the request succeeded, <code>false</code> otherwise.
+         * @throws Exception if the request could not be sent.
+         */
+        boolean send(int worker, int sequence) throws Exception;
+    }
+
+    private final int concurrency;
+    private final int requestsPerWorker;
+
+    public LoadGenerator(final int concurrency, final int requestsPerWorker) {
+        this.concurrency = concurrency;
+        this.requestsPerWorker = requestsPerWorker;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getRequestsPerWorker() {
+        return requestsPerWorker;
+    }
+
+    public LoadReport run(final String name, final Request request) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        final CountDownLatch ready = new CountDownLatch(concurrency);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicLong errors = new AtomicLong();
+        final List<Future<long[]>> workers = new ArrayList<>();
+
+        try {
+            for (int worker = 0; worker < concurrency; ++worker) {
+                final int index = worker;
+
+                workers.add(executor.submit(() -> {
+                    final long[] latencies = new long[requestsPerWorker];
+
+                    ready.countDown();
+                    start.await();
+                    for (int sequence = 0; sequence < requestsPerWorker; ++sequence) {
+                        final long begin = System.nanoTime();
+                        boolean succeeded;
+
+                        try {
+                            succeeded = request.send(index, sequence);
+                        } catch (final Exception e) {
+                            succeeded = false;
+                        }
+
+                        latencies[sequence] = System.nanoTime() - begin;
+                        if (!succeeded) {
+                            errors.incrementAndGet();
+                        }
+                    }
+
+                    return latencies;
+                }));
+            }
+
+            ready.await();
+            final long begin = System.nanoTime();
+            start.countDown();
+
+            final List<long[]> latencies = new ArrayList<>();
+            for (final Future<long[]> worker : workers) {
+                latencies.add(worker.get());
+            }
+
+            return new LoadReport(name, concurrency, System.nanoTime() - begin, errors.get(), latencies);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
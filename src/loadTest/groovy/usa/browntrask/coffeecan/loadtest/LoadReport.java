@@ -0,0 +1,71 @@
+package usa.browntrask.coffeecan.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput and latency percentiles of a load test run.
+ */
+public class LoadReport {
+
+    private static final String FORMAT = "%-12s %11s %9s %12s %10s %10s %10s %7s";
+
+    private final String name;
+    private final int concurrency;
+    private final long elapsedNanos;
+    private final long errors;
+    private final long[] latencies;
+
+    public LoadReport(final String name, final int concurrency, final long elapsedNanos, final long errors,
+                      final List<long[]> workerLatencies) {
+        this.name = name;
+        this.concurrency = concurrency;
+        this.elapsedNanos = elapsedNanos;
+        this.errors = errors;
+        this.latencies = workerLatencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+    }
+
+    public static String header() {
+        return String.format(FORMAT, "run", "concurrency", "requests", "req/s", "p50 (us)", "p99 (us)", "p999 (us)",
+                             "errors");
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRequests() {
+        return latencies.length;
+    }
+
+    public double getThroughput() {
+        return latencies.length / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Returns the latency below which the specified fraction of the requests completed, using the nearest rank.
+     *
+     * @param fraction the fraction of the requests, between <code>0</code> and <code>1</code>.
+     * @return the latency in microseconds.
+     */
+    public double percentile(final double fraction) {
+        if (latencies.length == 0) {
+            return 0.0;
+        }
+
+        final int rank = (int) Math.ceil(fraction * latencies.length);
+        return latencies[Math.max(0, Math.min(latencies.length, rank) - 1)] / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(FORMAT, name, concurrency, latencies.length, String.format("%.1f", getThroughput()),
+                             String.format("%.1f", percentile(0.50)), String.format("%.1f", percentile(0.99)),
+                             String.format("%.1f", percentile(0.999)), errors);
+    }
+}
@@ -6,6 +6,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -76,6 +77,20 @@ abstract class AbstractJoinAuthorizationCriteria<R> extends AbstractAuthorizatio
         joinedCriteria.add(authorizationCriteria);
     }
 
+    /**
+     * Returns the joined authorization criteria.
+     * <p>
+     * The returned list cannot be modified.
+     * </p>
+     *
+     * @return the joined authorization criteria.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    List<AuthorizationCriteria<R>> getJoinedCriteria() {
+        // Only criteria for R are joined; the list is raw because the public constructors accept raw criteria.
+        return Collections.unmodifiableList((List) joinedCriteria);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,83 @@
+package usa.browntrask.coffeecan;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Plan for retrieving authorized resources from the database.
+ * <p>
+ * The plan splits the authorization criteria into a database specification and a residual authorization criteria.
+ * The specification matches a superset of the authorized resources. The residual, if any, must be matched in memory
+ * against each resource retrieved using the specification.
+ * </p>
+ *
+ * @param <R> the type of resource.
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/02
+ */
+public class AuthorizationPlan<R> {
+
+    private final Specification<R> specification;
+    private final AuthorizationCriteria<R> residual;
+
+    /**
+     * Constructs an authorization plan.
+     *
+     * @param specification the database specification.
+     * @param residual      the residual authorization criteria, or <code>null</code> if the specification exactly
+     *                      matches the authorized resources.
+     */
+    AuthorizationPlan(final Specification<R> specification, final AuthorizationCriteria<R> residual) {
+        super();
+
+        this.specification = specification;
+        this.residual = residual;
+    }
+
+    /**
+     * Returns the residual authorization criteria to match in memory.
+     *
+     * @return the residual authorization criteria or <code>null</code> if there is none.
+     */
+    public AuthorizationCriteria<R> getResidual() {
+        return residual;
+    }
+
+    /**
+     * Returns the database specification. The specification matches a superset of the authorized resources unless
+     * the plan is exact.
+     *
+     * @return the specification.
+     */
+    public Specification<R> getSpecification() {
+        return specification;
+    }
+
+    /**
+     * Does the database specification exactly match the authorized resources?
+     *
+     * @return <code>true</code> if there is no residual authorization criteria, <code>false</code> if there is.
+     */
+    public boolean isExact() {
+        return residual == null;
+    }
+
+    /**
+     * Determines if a resource retrieved using the specification matches the residual authorization criteria.
+     *
+     * @param resource the resource.
+     * @return <code>true</code> if the resource matches or there is no residual, <code>false</code> otherwise.
+     * @throws usa.browntrask.coffeecan.CoffeeCanException if there is a problem matching the resource.
+     */
+    public boolean matchesResidual(final R resource) throws CoffeeCanException {
+        return (residual == null) || residual.matches(resource);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return isExact() ? "exact" : "residual " + residual;
+    }
+}
@@ -0,0 +1,146 @@
+package usa.browntrask.coffeecan;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.domain.Specifications;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits {@link usa.browntrask.coffeecan.AuthorizationCriteria} into the part that can be evaluated by the database
+ * and the part that must be evaluated in memory.
+ * <p>
+ * Criteria that can be expressed in SQL are pushed into the specification. Criteria that cannot are replaced by a
+ * specification that matches everything and are kept as the residual, so the specification always matches a superset
+ * of the authorized resources.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/02
+ */
+class AuthorizationPlanner {
+
+    /**
+     * Plans the retrieval of resources matching the authorization criteria.
+     *
+     * @param <R>                   the type of resource.
+     * @param authorizationCriteria the authorization criteria.
+     * @return the plan.
+     */
+    <R> AuthorizationPlan<R> plan(final AuthorizationCriteria<R> authorizationCriteria) {
+        final Part<R> part = planPart(authorizationCriteria);
+
+        return new AuthorizationPlan<>(part.specification, part.residual);
+    }
+
+    private <R> Part<R> planPart(final AuthorizationCriteria<R> authorizationCriteria) {
+        if (authorizationCriteria instanceof ComparisonAuthorizationCriteria) {
+            return planComparison((ComparisonAuthorizationCriteria<R>) authorizationCriteria);
+
+        } else if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            return planNot((NotAuthorizationCriteria<R>) authorizationCriteria);
+
+        } else if (authorizationCriteria instanceof AndAuthorizationCriteria) {
+            return planAnd((AndAuthorizationCriteria<R>) authorizationCriteria);
+
+        } else if (authorizationCriteria instanceof OrAuthorizationCriteria) {
+            return planOr((OrAuthorizationCriteria<R>) authorizationCriteria);
+        }
+
+        return new Part<>(authorizationCriteria.toSpecification(), null);
+    }
+
+    private <R> Part<R> planAnd(final AndAuthorizationCriteria<R> andAuthorizationCriteria) {
+        final List<Part<R>> parts = planJoined(andAuthorizationCriteria);
+        final List<AuthorizationCriteria<R>> residuals = new ArrayList<>();
+        Specifications<R> specifications = null;
+
+        for (final Part<R> part : parts) {
+            specifications = (specifications == null) ?
+                             Specifications.where(part.specification) :
+                             specifications.and(part.specification);
+            if (part.residual != null) {
+                residuals.add(part.residual);
+            }
+        }
+
+        if (residuals.isEmpty()) {
+            return new Part<>(andAuthorizationCriteria.toSpecification(), null);
+        }
+
+        // Only the residuals of the children need to be matched in memory; the database has already matched the rest.
+        if (residuals.size() == 1) {
+            return new Part<>(specifications, residuals.get(0));
+        }
+
+        final AndAuthorizationCriteria<R> residual = new AndAuthorizationCriteria<>();
+        residuals.forEach(residual::add);
+        return new Part<>(specifications, residual);
+    }
+
+    private <R> Part<R> planComparison(final ComparisonAuthorizationCriteria<R> comparisonAuthorizationCriteria) {
+        if (comparisonAuthorizationCriteria.isDatabaseExpressible()) {
+            return new Part<>(comparisonAuthorizationCriteria.toSpecification(), null);
+        }
+
+        return new Part<>(new TrueAuthorizationCriteria<R>().toSpecification(), comparisonAuthorizationCriteria);
+    }
+
+    private <R> List<Part<R>> planJoined(final AbstractJoinAuthorizationCriteria<R> joinAuthorizationCriteria) {
+        final List<Part<R>> parts = new ArrayList<>();
+
+        for (final AuthorizationCriteria<R> authorizationCriteria : joinAuthorizationCriteria.getJoinedCriteria()) {
+            parts.add(planPart(authorizationCriteria));
+        }
+
+        return parts;
+    }
+
+    private <R> Part<R> planNot(final NotAuthorizationCriteria<R> notAuthorizationCriteria) {
+        final Part<R> childPart = planPart(notAuthorizationCriteria.getChild());
+
+        if (childPart.residual == null) {
+            return new Part<>(notAuthorizationCriteria.toSpecification(), null);
+        }
+
+        // The inverse of a superset is not a superset, so nothing can be pushed to the database.
+        return new Part<>(new TrueAuthorizationCriteria<R>().toSpecification(), notAuthorizationCriteria);
+    }
+
+    private <R> Part<R> planOr(final OrAuthorizationCriteria<R> orAuthorizationCriteria) {
+        final List<Part<R>> parts = planJoined(orAuthorizationCriteria);
+        Specifications<R> specifications = null;
+        boolean exact = true;
+
+        for (final Part<R> part : parts) {
+            specifications = (specifications == null) ?
+                             Specifications.where(part.specification) :
+                             specifications.or(part.specification);
+            exact = exact && (part.residual == null);
+        }
+
+        if (exact) {
+            return new Part<>(orAuthorizationCriteria.toSpecification(), null);
+        }
+
+        return new Part<>(specifications, orAuthorizationCriteria);
+    }
+
+    /**
+     * Internal class representing the plan for part of the authorization criteria.
+     *
+     * @param <R> the type of resource.
+     */
+    private static class Part<R> {
+
+        private final Specification<R> specification;
+
+        private final AuthorizationCriteria<R> residual;
+
+        Part(final Specification<R> specification, final AuthorizationCriteria<R> residual) {
+            this.specification = specification;
+            this.residual = residual;
+        }
+    }
+}
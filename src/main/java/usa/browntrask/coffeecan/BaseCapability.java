@@ -1,6 +1,9 @@
 package usa.browntrask.coffeecan;
 
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.ClassUtils;
+import usa.browntrask.coffeecan.metrics.CoffeeCanMetrics;
+import usa.browntrask.coffeecan.metrics.Outcome;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -9,9 +12,18 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Base implementation of {@link usa.browntrask.coffeecan.Capability}.
+ * <p>
+ * A capability may be layered over a shared capability, such as a {@link usa.browntrask.coffeecan.SharedCapability}
+ * built from the templates of the user's roles. The rules, registered actions and aliases of the shared capability
+ * are consulted after those of this capability, and the decisions are the same as if the shared capability's rules
+ * had been added to this one. Only the rules particular to a user then need to be added for each request, so
+ * constructing the capability is cheap. The shared capability must not be changed once capabilities are layered over
+ * it.
+ * </p>
  *
  * @author Ian Brown
  * @version 1.0.0
@@ -19,11 +31,17 @@ import java.util.Map;
  */
 public abstract class BaseCapability implements Capability {
 
+    private final BaseCapability shared;
     private final Map<String, List<String>> actionMap = new HashMap<>();
     private final Map<String, String> aliasMap = new HashMap<>();
+    private final AuthorizationPlanner authorizationPlanner = new AuthorizationPlanner();
+    private final FetchPathCollector fetchPathCollector = new FetchPathCollector();
+    private final TracingEvaluator tracingEvaluator = new TracingEvaluator();
+    private final CriteriaMeasurer criteriaMeasurer = new CriteriaMeasurer();
     private Map<String, Map<Class<?>, AuthorizationCriteria<?>>> allowsMap = new HashMap<>();
     private Map<String, Map<Class<?>, AuthorizationCriteria<?>>> deniesMap = new HashMap<>();
     private boolean defaultAccess = true;
+    private CoffeeCanMetrics coffeeCanMetrics = CoffeeCanMetrics.global();
 
     /**
      * Constructs a default base capability allowing all access.
@@ -31,20 +49,49 @@ public abstract class BaseCapability implements Capability {
     protected BaseCapability() {
         super();
 
+        this.shared = null;
         actionMap.put(CRUD, Arrays.asList(CREATE, READ, UPDATE, DELETE));
         aliasMap.put(INDEX, READ);
         aliasMap.put(SHOW, READ);
     }
 
+    /**
+     * Constructs a base capability layered over a shared capability. The default access is initially that of the
+     * shared capability.
+     *
+     * @param shared the shared capability.
+     */
+    protected BaseCapability(final BaseCapability shared) {
+        super();
+
+        this.shared = shared;
+        this.defaultAccess = shared.isDefaultAccess();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public <R> boolean allows(final String action, final R resource) throws CoffeeCanException {
-        final boolean baseAccess = allowsMap.isEmpty() ? (deniesMap.isEmpty() ? defaultAccess : true) : false;
-        final AuthorizationCriteria<R> authorizationCriteria = buildAuthorizationCriteria(action, resource);
-
-        return authorizationCriteria == null ? baseAccess : authorizationCriteria.matches(resource);
+        final long start = coffeeCanMetrics.start();
+        final Object decisionEvent = FlightRecorderEvents.beginDecision();
+        AuthorizationCriteria<R> authorizationCriteria = null;
+        Outcome outcome = Outcome.ERROR;
+
+        try {
+            final boolean baseAccess = determineBaseAccess();
+            authorizationCriteria = buildAuthorizationCriteria(action, resource);
+            final boolean allowed =
+                    authorizationCriteria == null ? baseAccess : authorizationCriteria.matches(resource);
+
+            outcome = Outcome.of(allowed);
+            return allowed;
+
+        } finally {
+            final Class<?> resourceClass = (resource == null) ? null : ClassUtils.getUserClass(resource);
+            coffeeCanMetrics.recordAuthorization(action, resourceClass, outcome, start);
+            FlightRecorderEvents.endDecision(decisionEvent, action, resourceClass, outcome, authorizationCriteria);
+        }
     }
 
     /**
@@ -88,6 +135,47 @@ public abstract class BaseCapability implements Capability {
         return !allows(action, resource);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> DecisionTrace explain(final String action, final R resource) throws CoffeeCanException {
+        final long start = System.nanoTime();
+        final List<String> controllingActions = determineControllingActions(action);
+        final List<DecisionTrace.Node> actionNodes = new ArrayList<>();
+        // The criteria are only matched against this resource, so the class of the resource serves as its type.
+        @SuppressWarnings("unchecked")
+        final Class<R> resourceClass = (Class<R>) resource.getClass();
+        boolean allowed = false;
+
+        // The controlling actions are ORed together by allows(), so the first one to allow access decides.
+        for (final String controllingAction : controllingActions) {
+            final AuthorizationCriteria<R> authorizationCriteria =
+                    buildAuthorizationCriteriaForAction(controllingAction, resourceClass);
+            if (authorizationCriteria == null) {
+                continue;
+            }
+
+            if (allowed) {
+                actionNodes.add(tracingEvaluator.skip(controllingAction, authorizationCriteria));
+                continue;
+            }
+
+            final DecisionTrace.Node actionNode = tracingEvaluator.evaluate(controllingAction,
+                                                                            authorizationCriteria,
+                                                                            resource);
+            actionNodes.add(actionNode);
+            allowed = actionNode.getResult();
+        }
+
+        if (actionNodes.isEmpty()) {
+            allowed = determineBaseAccess();
+        }
+
+        return new DecisionTrace(action, findActualAction(action), controllingActions, actionNodes, allowed,
+                                 System.nanoTime() - start);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -104,6 +192,15 @@ public abstract class BaseCapability implements Capability {
         this.defaultAccess = defaultAccess;
     }
 
+    /**
+     * Sets the metrics used to time authorization decisions. The Micrometer global registry is used by default.
+     *
+     * @param coffeeCanMetrics the metrics.
+     */
+    public void setCoffeeCanMetrics(final CoffeeCanMetrics coffeeCanMetrics) {
+        this.coffeeCanMetrics = coffeeCanMetrics;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -113,12 +210,12 @@ public abstract class BaseCapability implements Capability {
             throw new RegisterActionException("Cannot register standard action " + action);
         }
 
-        if (!actionMap.containsKey(action)) {
+        final List<String> registeredActions = findRegisteredActions(action);
+        if (registeredActions == null) {
             actionMap.put(action, Collections.unmodifiableList(new ArrayList<>(actions)));
             return;
         }
 
-        final List<String> registeredActions = actionMap.get(action);
         if ((registeredActions.size() != actions.size()) || !registeredActions.containsAll(actions)) {
             throw new RegisterActionException(
                     "Cannot change registration of " + action + " from " + registeredActions + " to " + actions);
@@ -133,26 +230,141 @@ public abstract class BaseCapability implements Capability {
         aliasMap.put(alias, action);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A capability layered over a shared capability, but with no rules, actions, or aliases of its own, makes the
+     * same decisions as the shared capability, so it uses the key of the shared capability. This lets the
+     * capabilities created for each request share cached decisions.
+     * </p>
+     */
+    @Override
+    public Object getDecisionKey() {
+        if ((shared != null) && allowsMap.isEmpty() && deniesMap.isEmpty() && actionMap.isEmpty() &&
+            aliasMap.isEmpty() && (defaultAccess == shared.isDefaultAccess())) {
+            return shared.getDecisionKey();
+        }
+
+        return this;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Map<String, List<String>> registeredActions() {
-        return Collections.unmodifiableMap(actionMap);
+        if (shared == null) {
+            return Collections.unmodifiableMap(actionMap);
+        }
+
+        final Map<String, List<String>> registeredActions = new HashMap<>(shared.registeredActions());
+        registeredActions.putAll(actionMap);
+        return Collections.unmodifiableMap(registeredActions);
+    }
+
+    /**
+     * Returns the shared capability over which this capability is layered.
+     *
+     * @return the shared capability or <code>null</code> if this capability is not layered.
+     */
+    public BaseCapability getShared() {
+        return shared;
+    }
+
+    /**
+     * Returns statistics describing the rules of this capability: the number of rules for each action and resource
+     * class, the size and depth of their criteria, and the registered actions and aliases.
+     * <p>
+     * The rules are not copied first, so this must not be called while the capability is being changed on another
+     * thread.
+     * </p>
+     *
+     * @return the statistics.
+     */
+    public CapabilityStatistics statistics() {
+        final List<CapabilityStatistics.Rules> rules = new ArrayList<>();
+
+        addRuleStatistics(allowsMap, true, rules);
+        addRuleStatistics(deniesMap, false, rules);
+        return new CapabilityStatistics(getClass().getName(), defaultAccess, new HashMap<>(actionMap),
+                                        new HashMap<>(aliasMap), rules);
     }
 
     /**
      * {@inheritDoc}
      */
     public <R> Specification<R> toSpecification(final String action, final Class<R> resourceClass) {
-        final boolean baseAccess = allowsMap.isEmpty() ? (deniesMap.isEmpty() ? defaultAccess : true) : false;
-        AuthorizationCriteria<R> authorizationCriteria = buildAuthorizationCriteria(action, resourceClass);
+        final long start = coffeeCanMetrics.start();
+        final Object specificationEvent = FlightRecorderEvents.beginSpecification();
+        AuthorizationCriteria<R> authorizationCriteria = null;
+
+        try {
+            authorizationCriteria = buildQueryAuthorizationCriteria(action, resourceClass);
+            return authorizationCriteria.toSpecification();
+        } finally {
+            coffeeCanMetrics.recordSpecification(action, resourceClass, start);
+            FlightRecorderEvents.endSpecification(specificationEvent, action, resourceClass, authorizationCriteria,
+                                                  true);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> Set<String> toFetchPaths(final String action, final Class<R> resourceClass) {
+        return fetchPathCollector.collect(buildAuthorizationCriteria(action, resourceClass));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> AuthorizationPlan<R> toPlan(final String action, final Class<R> resourceClass) {
+        final long start = coffeeCanMetrics.start();
+        final Object specificationEvent = FlightRecorderEvents.beginSpecification();
+        AuthorizationCriteria<R> authorizationCriteria = null;
+        AuthorizationPlan<R> authorizationPlan = null;
+
+        try {
+            authorizationCriteria = buildQueryAuthorizationCriteria(action, resourceClass);
+            authorizationPlan = authorizationPlanner.plan(authorizationCriteria);
+            return authorizationPlan;
+        } finally {
+            coffeeCanMetrics.recordSpecification(action, resourceClass, start);
+            FlightRecorderEvents.endSpecification(specificationEvent, action, resourceClass, authorizationCriteria,
+                                                  (authorizationPlan != null) && authorizationPlan.isExact());
+        }
+    }
+
+    private void addRuleStatistics(final Map<String, Map<Class<?>, AuthorizationCriteria<?>>> authorizationMap,
+                                   final boolean allows, final List<CapabilityStatistics.Rules> rules) {
+        authorizationMap.forEach((action, actionAuthorizationMap) -> {
+            actionAuthorizationMap.forEach((resourceClass, authorizationCriteria) -> {
+                // Each rule is joined to an OR that starts with a FALSE criteria; see
+                // findResourceAuthorizationCriteria.
+                final int count = (authorizationCriteria instanceof AbstractJoinAuthorizationCriteria) ?
+                                  ((AbstractJoinAuthorizationCriteria<?>) authorizationCriteria)
+                                          .getJoinedCriteria().size() - 1 :
+                                  1;
+
+                rules.add(new CapabilityStatistics.Rules(action, resourceClass.getName(), allows, count,
+                                                         criteriaMeasurer.measureDepth(authorizationCriteria),
+                                                         criteriaMeasurer.countNodes(authorizationCriteria)));
+            });
+        });
+    }
+
+    private <R> AuthorizationCriteria<R> buildQueryAuthorizationCriteria(final String action,
+                                                                         final Class<R> resourceClass) {
+        final boolean baseAccess = determineBaseAccess();
+        final AuthorizationCriteria<R> authorizationCriteria = buildAuthorizationCriteria(action, resourceClass);
 
         if (authorizationCriteria == null) {
-            authorizationCriteria = baseAccess ? new TrueAuthorizationCriteria<>() : new FalseAuthorizationCriteria<>();
+            return baseAccess ? new TrueAuthorizationCriteria<>() : new FalseAuthorizationCriteria<>();
         }
 
-        return authorizationCriteria.toSpecification();
+        return authorizationCriteria;
     }
 
     private <R> AuthorizationCriteria<R> buildAuthorizationCriteria(final String action, final R resource) {
@@ -177,16 +389,12 @@ public abstract class BaseCapability implements Capability {
     }
 
     private <R> AuthorizationCriteria<R> buildAuthorizationCriteriaForAction(final String action, final Class<R> resourceClass) {
-        final AuthorizationCriteria<R> allowsAuthorization = findAuthorizationCriteria
-                (action,
-                 resourceClass,
-                 allowsMap,
-                 false);
-        final AuthorizationCriteria<R> deniesAuthorization = findAuthorizationCriteria
-                (action,
-                 resourceClass,
-                 deniesMap,
-                 false);
+        final AuthorizationCriteria<R> allowsAuthorization = findLayeredAuthorizationCriteria(action,
+                                                                                            resourceClass,
+                                                                                            true);
+        final AuthorizationCriteria<R> deniesAuthorization = findLayeredAuthorizationCriteria(action,
+                                                                                            resourceClass,
+                                                                                            false);
 
         return (allowsAuthorization == null) ? deniesAuthorization :
                (deniesAuthorization == null) ? allowsAuthorization :
@@ -199,17 +407,38 @@ public abstract class BaseCapability implements Capability {
 
         controllingActions.add(actualAction);
         controllingActions.add(MANAGE);
-        registeredActions().entrySet().stream().forEach(entry -> {
-            if (entry.getValue().contains(actualAction)) {
-                controllingActions.add(entry.getKey());
-            }
-        });
+        for (BaseCapability layer = this; layer != null; layer = layer.shared) {
+            layer.actionMap.forEach((registeredAction, actions) -> {
+                if (actions.contains(actualAction) && !controllingActions.contains(registeredAction)) {
+                    controllingActions.add(registeredAction);
+                }
+            });
+        }
 
         return controllingActions;
     }
 
+    private boolean determineBaseAccess() {
+        boolean hasAllows = false;
+        boolean hasDenies = false;
+
+        for (BaseCapability layer = this; layer != null; layer = layer.shared) {
+            hasAllows = hasAllows || !layer.allowsMap.isEmpty();
+            hasDenies = hasDenies || !layer.deniesMap.isEmpty();
+        }
+
+        return hasAllows ? false : (hasDenies ? true : defaultAccess);
+    }
+
     private String findActualAction(final String action) {
-        return aliasMap.containsKey(action) ? aliasMap.get(action) : action;
+        for (BaseCapability layer = this; layer != null; layer = layer.shared) {
+            final String actualAction = layer.aliasMap.get(action);
+            if (actualAction != null) {
+                return actualAction;
+            }
+        }
+
+        return action;
     }
 
     private Map<Class<?>, AuthorizationCriteria<?>> findActionAuthorizationMap(
@@ -247,6 +476,49 @@ public abstract class BaseCapability implements Capability {
         return findResourceAuthorizationCriteria(resourceClass, actionAuthorizationMap, addIfMissing);
     }
 
+    private <R> AuthorizationCriteria<R> findLayeredAuthorizationCriteria(final String action,
+                                                                          final Class<R> resourceClass,
+                                                                          final boolean allows) {
+        AuthorizationCriteria<R> authorizationCriteria = null;
+        OrAuthorizationCriteria<R> orAuthorizationCriteria = null;
+
+        // The layers are ORed, just as rules added to a single capability are; this capability's rules come first.
+        for (BaseCapability layer = this; layer != null; layer = layer.shared) {
+            final AuthorizationCriteria<R> layerCriteria = findAuthorizationCriteria(
+                    action,
+                    resourceClass,
+                    allows ? layer.allowsMap : layer.deniesMap,
+                    false);
+            if (layerCriteria == null) {
+                continue;
+            }
+
+            if (authorizationCriteria == null) {
+                authorizationCriteria = layerCriteria;
+                continue;
+            }
+
+            if (orAuthorizationCriteria == null) {
+                orAuthorizationCriteria = new OrAuthorizationCriteria<>();
+                orAuthorizationCriteria.add(authorizationCriteria);
+            }
+            orAuthorizationCriteria.add(layerCriteria);
+        }
+
+        return (orAuthorizationCriteria == null) ? authorizationCriteria : orAuthorizationCriteria;
+    }
+
+    private List<String> findRegisteredActions(final String action) {
+        for (BaseCapability layer = this; layer != null; layer = layer.shared) {
+            final List<String> registeredActions = layer.actionMap.get(action);
+            if (registeredActions != null) {
+                return registeredActions;
+            }
+        }
+
+        return null;
+    }
+
     private <R> AuthorizationCriteria<R> findResourceAuthorizationCriteria(final Class<R> resourceClass,
                                                                            final Map<Class<?>, AuthorizationCriteria<?>> actionAuthorizationMap,
                                                                            final boolean addIfMissing) {
@@ -1,5 +1,8 @@
 package usa.browntrask.coffeecan;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.metadata.ClassMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.domain.Specifications;
@@ -9,11 +12,15 @@ import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.support.Repositories;
 import org.springframework.web.method.HandlerMethod;
 
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Extended {@link usa.browntrask.coffeecan.BaseResource} that handles a parent class as well as the regular class.
@@ -26,10 +33,13 @@ import java.util.Map;
 public abstract class BaseChildResource<P, J extends Serializable, R, I extends Serializable>
         extends BaseResource<R, I> {
 
-    private Map<String, Object> parentLoadRestrictions = null;
-    private Map<String, Object> parentAuthorizeRestrictions = null;
+    private volatile Map<String, Object> parentLoadRestrictions = null;
+    private volatile Map<String, Object> parentAuthorizeRestrictions = null;
     private ThreadLocal<P> parent = new ThreadLocal<>();
 
+    @Autowired(required = false)
+    private ParentCacheInvalidator parentCacheInvalidator;
+
     protected abstract Class<P> getParentClass();
 
     protected abstract Class<J> getParentIdentifierClass();
@@ -38,6 +48,20 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
 
     protected abstract Repository<P, J> getParentRepository();
 
+    /**
+     * Returns the cache of the authorization decisions made for parents.
+     * <p>
+     * By default, decisions are not cached. Subclasses can return a cache, such as a
+     * {@link usa.browntrask.coffeecan.TtlParentCache}, so that a parent that has already been authorized for an action
+     * is loaded without the associations needed to authorize it, and is not authorized again.
+     * </p>
+     *
+     * @return the parent cache or <code>null</code> if decisions are not cached.
+     */
+    protected ParentCache<P, J> getParentCache() {
+        return null;
+    }
+
     /**
      * Sets up to authorize parent resources when handler methods are called. No restrictions are applied.
      * <p>
@@ -60,9 +84,7 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
      *                     </ul>
      */
     protected void authorizeParent(final Map<String, Object> restrictions) {
-        synchronized (this) {
-            parentAuthorizeRestrictions = Collections.unmodifiableMap(restrictions);
-        }
+        parentAuthorizeRestrictions = Collections.unmodifiableMap(new HashMap<>(restrictions));
     }
 
     /**
@@ -116,13 +138,15 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
      *                     </ul>
      */
     protected void loadParent(final Map<String, Object> restrictions) {
-        synchronized (this) {
-            parentLoadRestrictions = Collections.unmodifiableMap(restrictions);
-        }
+        parentLoadRestrictions = Collections.unmodifiableMap(new HashMap<>(restrictions));
     }
 
     /**
      * Returns the loaded parent.
+     * <p>
+     * If decisions are {@link #getParentCache() cached}, the associations used to authorize the parent may not have
+     * been fetched with it.
+     * </p>
      *
      * @return the loaded parent.
      */
@@ -130,6 +154,15 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
         return parent.get();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void clearRetrieval() {
+        super.clearRetrieval();
+        parent.remove();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -160,6 +193,19 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean retrieveBatch(final HandlerMethod handlerMethod, final Map<String, String> ids)
+            throws CoffeeCanException {
+        if (!retrieveParent(handlerMethod, ids)) {
+            return false;
+        }
+
+        return super.retrieveBatch(handlerMethod, ids);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -175,21 +221,39 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
 
     private boolean retrieveParent(final HandlerMethod handlerMethod, Map<String, String> ids)
             throws CoffeeCanException {
-        final Map<String, Object> loadRestrictions;
-        final Map<String, Object> authorizeRestrictions;
-        synchronized (this) {
-            loadRestrictions = (parentLoadRestrictions == null) ? null : new HashMap<>(parentLoadRestrictions);
-            authorizeRestrictions =
-                    (parentAuthorizeRestrictions == null) ? null : new HashMap<>(parentAuthorizeRestrictions);
-        }
+        // The restrictions are replaced rather than modified, so reading each once gives a consistent view of it.
+        final Map<String, Object> loadRestrictions = parentLoadRestrictions;
+        final Map<String, Object> authorizeRestrictions = parentAuthorizeRestrictions;
 
         if (!shouldHandle(handlerMethod, loadRestrictions) &&
             !shouldHandle(handlerMethod, authorizeRestrictions)) {
             return true;
         }
 
-        final P loadedParent = findParent(ids);
-        if (!authorizeObject(handlerMethod, authorizeRestrictions, loadedParent)) {
+        final ParentCache<P, J> parentCache = getParentCache();
+        final J id = idOfType(getParentIdentifierClass(), findParentId(ids));
+        final boolean authorize = shouldHandle(handlerMethod, authorizeRestrictions);
+        final String action = determineAction(handlerMethod, authorizeRestrictions);
+        final Capability capability = authorize ? capability() : null;
+        final Set<String> fetchPaths = authorize ?
+                                       capability.toFetchPaths(action, getParentClass()) :
+                                       Collections.emptySet();
+        final boolean cached = authorize && (parentCache != null);
+        final Object version = cached ? findParentVersion(id) : null;
+        Boolean allowed = cached ? parentCache.getDecision(id, version, action, capability) : null;
+        // The associations are only needed to make a new decision.
+        final P loadedParent = loadParent(action, id, (allowed == null) ? fetchPaths : Collections.emptySet());
+
+        if ((allowed == null) || (loadedParent == null)) {
+            allowed = authorizeObject(handlerMethod, authorizeRestrictions, capability, action, loadedParent);
+            if (cached && (loadedParent != null)) {
+                if (parentCacheInvalidator != null) {
+                    parentCacheInvalidator.register(parentCache);
+                }
+                parentCache.putDecision(id, version, action, capability, allowed);
+            }
+        }
+        if (!allowed) {
             return false;
         }
 
@@ -197,10 +261,22 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
         return true;
     }
 
-    private P findParent(final Map<String, String> ids) {
-        final J id = idOfType(getParentIdentifierClass(), findParentId(ids));
+    private P loadParent(final String action, final J id, final Set<String> fetchPaths) {
+        final long start = metrics().start();
+        final Object loadEvent = FlightRecorderEvents.beginLoad();
+        final P loadedParent = findParent(id, fetchPaths);
 
-        return findParentInRepository(id);
+        metrics().recordLoad(action, getParentClass(), start);
+        FlightRecorderEvents.endLoad(loadEvent, action, getParentClass(), id, fetchPaths,
+                                     (loadedParent == null) ? 0 : 1);
+        return loadedParent;
+    }
+
+    private P findParent(final J id, final Set<String> fetchPaths) {
+        if (fetchPaths.isEmpty()) {
+            return findParentInRepository(id);
+        }
+        return findWithFetchPaths(getParentClass(), id, fetchPaths);
     }
 
     private String findParentId(final Map<String, String> ids) {
@@ -210,4 +286,22 @@ public abstract class BaseChildResource<P, J extends Serializable, R, I extends
     private P findParentInRepository(final J id) {
         return ((CrudRepository<P, J>) getParentRepository()).findOne(id);
     }
+
+    private Object findParentVersion(final J id) {
+        final ClassMetadata classMetadata = entityManagerFactory.unwrap(SessionFactory.class)
+                .getClassMetadata(getParentClass());
+
+        if ((classMetadata == null) || !classMetadata.isVersioned()) {
+            return null;
+        }
+
+        // The version is read without loading the parent, so that it can be loaded with the associations needed.
+        final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Object> criteriaQuery = criteriaBuilder.createQuery(Object.class);
+        final Root<P> root = criteriaQuery.from(getParentClass());
+
+        criteriaQuery.select(root.get(classMetadata.getPropertyNames()[classMetadata.getVersionProperty()]))
+                .where(criteriaBuilder.equal(root.get(classMetadata.getIdentifierPropertyName()), id));
+        return entityManager.createQuery(criteriaQuery).getResultList().stream().findFirst().orElse(null);
+    }
 }
@@ -1,27 +1,88 @@
 package usa.browntrask.coffeecan;
 
+import org.hibernate.CacheMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.MethodParameter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.mapping.PreferredConstructor;
+import org.springframework.data.mapping.model.PreferredConstructorDiscoverer;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.data.repository.support.Repositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.method.HandlerMethod;
+import usa.browntrask.coffeecan.config.CoffeeCanConfiguration;
+import usa.browntrask.coffeecan.metrics.CoffeeCanMetrics;
 
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.OrderColumn;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.persistence.Subgraph;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.PluralAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
 import javax.servlet.http.HttpServletResponse;
+import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Abstract implementation of a controller to handle operations on a protected resource.
@@ -31,14 +92,33 @@ import java.util.Map;
  */
 public abstract class BaseResource<R, I extends Serializable> {
 
+    private static final String PROJECTION_IDENTIFIER_ALIAS = "coffeeCanIdentifier";
+    private static final String PROJECTION_SORT_ALIAS = "coffeeCanSort";
+
     @Autowired
     protected ApplicationContext applicationContext;
 
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    @PersistenceUnit
+    protected EntityManagerFactory entityManagerFactory;
+
+    @Autowired(required = false)
+    private CoffeeCanMetrics coffeeCanMetrics = CoffeeCanMetrics.global();
+
     protected ThreadLocal<Specifications<R>> resourceSpecifications = new ThreadLocal<>();
 
-    private Map<String, Object> resourceLoadRestrictions = null;
-    private Map<String, Object> resourceAuthorizeRestrictions = null;
+    protected ThreadLocal<AuthorizationCriteria<R>> resourceResidualCriteria = new ThreadLocal<>();
+
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+    private final ConcurrentMap<Class<?>, PreferredConstructor<?, ?>> projectionConstructors =
+            new ConcurrentHashMap<>();
+    private volatile Map<String, Object> resourceLoadRestrictions = null;
+    private volatile Map<String, Object> resourceAuthorizeRestrictions = null;
     private ThreadLocal<R> resource = new ThreadLocal<>();
+    private ThreadLocal<ResourceBatch<R, I>> resourceBatch = new ThreadLocal<>();
+    private ThreadLocal<Callable<Boolean>> deferredRetrieval = new ThreadLocal<>();
 
     protected abstract Class<R> getResourceClass();
 
@@ -50,6 +130,38 @@ public abstract class BaseResource<R, I extends Serializable> {
         return "id";
     }
 
+    /**
+     * Returns the number of rows to fetch from the database at a time when streaming resources. This is also the
+     * number of resources that are processed before they are cleared from the persistence context.
+     *
+     * @return the fetch size.
+     */
+    protected int getStreamFetchSize() {
+        return 100;
+    }
+
+    /**
+     * Returns the executor used to load and authorize resources for asynchronous handler methods.
+     * <p>
+     * By default, this is the bounded executor defined by
+     * {@link usa.browntrask.coffeecan.config.CoffeeCanConfiguration}.
+     * </p>
+     *
+     * @return the executor.
+     */
+    protected Executor getAsyncExecutor() {
+        return applicationContext.getBean(CoffeeCanConfiguration.ASYNC_EXECUTOR, Executor.class);
+    }
+
+    /**
+     * Returns the metrics used to time the loading of resources.
+     *
+     * @return the metrics.
+     */
+    protected CoffeeCanMetrics metrics() {
+        return coffeeCanMetrics;
+    }
+
     /**
      * Responds to access being denied.
      * <p>
@@ -73,6 +185,21 @@ public abstract class BaseResource<R, I extends Serializable> {
         throw new AccessDeniedException("Access denied " + method + " " + name + " for " + ids);
     }
 
+    /**
+     * Authorizes an object for the handler method, using the capability and the action determined from the
+     * restrictions.
+     * <p>
+     * This is the equivalent of calling
+     * {@link #authorizeObject(HandlerMethod, Map, Capability, String, Object)} with the result of
+     * {@link #capability()} and the action determined for the handler method.
+     * </p>
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @param restrictions  the restrictions on authorizing the object.
+     * @param object        the object to authorize.
+     * @return <code>true</code> if access to the object is allowed, <code>false</code> if it is denied.
+     * @throws usa.browntrask.coffeecan.CoffeeCanException if there is a problem with authorization.
+     */
     protected boolean authorizeObject(final HandlerMethod handlerMethod, final Map<String, Object> restrictions,
                                       final Object object)
             throws CoffeeCanException {
@@ -80,6 +207,55 @@ public abstract class BaseResource<R, I extends Serializable> {
             return true;
         }
 
+        return authorizeObject(handlerMethod, restrictions, capability(), determineAction(handlerMethod, restrictions),
+                               object);
+    }
+
+    /**
+     * Authorizes an object for the handler method, using a capability and action that have already been determined.
+     * <p>
+     * The resources and parents retrieved for handler methods are authorized by this method, so subclasses can
+     * override it to add to or replace the check made by the capability.
+     * </p>
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @param restrictions  the restrictions on authorizing the object.
+     * @param capability    the capability to authorize the object with.
+     * @param action        the action to authorize.
+     * @param object        the object to authorize.
+     * @return <code>true</code> if access to the object is allowed, <code>false</code> if it is denied.
+     * @throws usa.browntrask.coffeecan.CoffeeCanException if there is a problem with authorization.
+     */
+    protected boolean authorizeObject(final HandlerMethod handlerMethod, final Map<String, Object> restrictions,
+                                      final Capability capability, final String action, final Object object)
+            throws CoffeeCanException {
+        if (!shouldHandle(handlerMethod, restrictions)) {
+            return true;
+        }
+
+        return capability.allows(action, object);
+    }
+
+    /**
+     * Determines the action to authorize for the resources of the handler method, using the restrictions set by
+     * {@link #authorizeResource(java.util.Map)}.
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @return the action.
+     */
+    protected String determineAction(final HandlerMethod handlerMethod) {
+        return determineAction(handlerMethod, resourceAuthorizeRestrictions);
+    }
+
+    /**
+     * Determines the action to authorize for the handler method. The action is the name of the handler method unless
+     * the restrictions map that name to another using <code>mapMethod</code>.
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @param restrictions  the restrictions on authorizing the resources.
+     * @return the action.
+     */
+    protected String determineAction(final HandlerMethod handlerMethod, final Map<String, Object> restrictions) {
         // TODO add test for this.
         String methodName = handlerMethod.getMethod().getName();
         if ((restrictions != null) && restrictions.containsKey("mapMethod")) {
@@ -89,7 +265,7 @@ public abstract class BaseResource<R, I extends Serializable> {
             }
         }
 
-        return capability().allows(methodName, object);
+        return methodName;
     }
 
     /**
@@ -111,16 +287,21 @@ public abstract class BaseResource<R, I extends Serializable> {
      *                     resources.</li>
      *                     <li>except -an array of method names for the handler methods that should not authorize
      *                     resources.</li>
+     *                     <li>async - an array of method names for the asynchronous handler methods that retrieve
+     *                     their resources by calling {@link #async(Supplier)} or {@link #deferred(Supplier)}.</li>
      *                     </ul>
      */
     protected void authorizeResource(final Map<String, Object> restrictions) {
-        synchronized (this) {
-            resourceAuthorizeRestrictions = Collections.unmodifiableMap(restrictions);
-        }
+        resourceAuthorizeRestrictions = Collections.unmodifiableMap(new HashMap<>(restrictions));
     }
 
     /**
      * Returns the capability to use to authorize access to the data.
+     * <p>
+     * This is called for each request. Rather than constructing a capability each time, implementations should ask a
+     * {@link usa.browntrask.coffeecan.CapabilityFactory} for the capability shared by the user's roles, and layer
+     * any rules particular to the user over it.
+     * </p>
      *
      * @return the capability.
      * @throws usa.browntrask.coffeecan.AuthorizationCriteriaException if there is a problem with authorization.
@@ -164,6 +345,8 @@ public abstract class BaseResource<R, I extends Serializable> {
      *                     authorize resources.</li>
      *                     <li>except -an array of method names for the handler methods that should not load or
      *                     authorize resources.</li>
+     *                     <li>async - an array of method names for the asynchronous handler methods that retrieve
+     *                     their resources by calling {@link #async(Supplier)} or {@link #deferred(Supplier)}.</li>
      *                     </ul>
      */
     protected void loadAndAuthorizeResource(final Map<String, Object> restrictions) {
@@ -192,9 +375,161 @@ public abstract class BaseResource<R, I extends Serializable> {
      *                     </ul>
      */
     protected void loadResource(final Map<String, Object> restrictions) {
-        synchronized (this) {
-            resourceLoadRestrictions = Collections.unmodifiableMap(restrictions);
+        resourceLoadRestrictions = Collections.unmodifiableMap(new HashMap<>(restrictions));
+    }
+
+    /**
+     * Loads and authorizes the resources for an asynchronous handler method on the
+     * {@link #getAsyncExecutor() asynchronous executor}, then calls the supplier on the same thread.
+     * <p>
+     * The supplier can use {@link #resource()}, {@link #resources()}, and the other accessors as usual. If a
+     * transaction manager is available, the retrieval and the supplier run in a single transaction. If access is
+     * denied, the future completes exceptionally with an {@link usa.browntrask.coffeecan.AccessDeniedException} and
+     * the supplier is not called.
+     * </p>
+     * <p>
+     * The retrieval is deferred by the {@link usa.browntrask.coffeecan.CoffeeCanInterceptor} for each request, so
+     * this may only be called once, by the asynchronous handler method for the request.
+     * </p>
+     *
+     * @param <T>      the type of result.
+     * @param supplier the supplier of the result.
+     * @return the future result.
+     * @throws java.lang.IllegalStateException if no retrieval is pending on the current thread.
+     */
+    protected <T> CompletableFuture<T> async(final Supplier<T> supplier) {
+        final Callable<Boolean> retrieval = deferredRetrieval.get();
+        if (retrieval == null) {
+            throw new IllegalStateException("No retrieval is pending for " + getClass().getSimpleName() +
+                                            "; the handler method must be listed in the async restriction, and" +
+                                            " can only retrieve its resources once for each request");
+        }
+        deferredRetrieval.remove();
+
+        return CompletableFuture.supplyAsync(() -> supplyAsync(retrieval, supplier), getAsyncExecutor());
+    }
+
+    /**
+     * Loads and authorizes the resources for an asynchronous handler method, returning the result of the supplier
+     * as a deferred result.
+     * <p>
+     * This is the equivalent of calling {@link #async(Supplier)} and adapting the future to a deferred result.
+     * </p>
+     *
+     * @param <T>      the type of result.
+     * @param supplier the supplier of the result.
+     * @return the deferred result.
+     * @throws java.lang.IllegalStateException if no retrieval is pending on the current thread.
+     */
+    protected <T> DeferredResult<T> deferred(final Supplier<T> supplier) {
+        final DeferredResult<T> deferredResult = new DeferredResult<>();
+
+        async(supplier).whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                deferredResult.setResult(result);
+            } else {
+                deferredResult.setErrorResult(
+                        (throwable instanceof CompletionException) ? throwable.getCause() : throwable);
+            }
+        });
+        return deferredResult;
+    }
+
+    /**
+     * Is the handler method asynchronous? Resources for asynchronous handler methods are not retrieved on the
+     * servlet thread; instead, the handler method must call {@link #async(Supplier)} or {@link #deferred(Supplier)}
+     * to retrieve them on the asynchronous executor.
+     * <p>
+     * By default, handler methods are asynchronous only if they return a
+     * {@link java.util.concurrent.CompletionStage} or a
+     * {@link org.springframework.web.context.request.async.DeferredResult} and are listed in the <code>async</code>
+     * restriction passed to {@link #authorizeResource(java.util.Map)}. Any other handler method has its resources
+     * retrieved and authorized before it is called, whatever it returns, so a handler method that never calls
+     * {@link #async(Supplier)} cannot run without being authorized.
+     * </p>
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @return <code>true</code> if the handler method is asynchronous, <code>false</code> otherwise.
+     */
+    protected boolean isAsync(final HandlerMethod handlerMethod) {
+        final Class<?> returnType = handlerMethod.getMethod().getReturnType();
+        final Map<String, Object> authorizeRestrictions = resourceAuthorizeRestrictions;
+
+        if (!CompletionStage.class.isAssignableFrom(returnType) && !DeferredResult.class.isAssignableFrom(returnType)) {
+            return false;
+        }
+
+        return (authorizeRestrictions != null) && authorizeRestrictions.containsKey("async") &&
+               isRestricted(handlerMethod, (String[]) authorizeRestrictions.get("async"));
+    }
+
+    /**
+     * Does the handler method retrieve a batch of resources using the <code>ids</code> request parameter? A
+     * <code>GET</code> request with an <code>ids</code> parameter is only retrieved as a batch for such handler
+     * methods; for any other handler method, the parameter is ignored.
+     * <p>
+     * By default, handler methods that bind the <code>ids</code> request parameter using
+     * {@link org.springframework.web.bind.annotation.RequestParam} retrieve a batch.
+     * </p>
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @return <code>true</code> if the handler method retrieves a batch, <code>false</code> otherwise.
+     */
+    protected boolean isBatch(final HandlerMethod handlerMethod) {
+        for (final MethodParameter methodParameter : handlerMethod.getMethodParameters()) {
+            final RequestParam requestParam = methodParameter.getParameterAnnotation(RequestParam.class);
+
+            if ((requestParam != null) &&
+                ("ids".equals(requestParam.value()) || "ids".equals(requestParam.name()))) {
+                return true;
+            }
         }
+
+        return false;
+    }
+
+    /**
+     * Defers the retrieval of the resources for an asynchronous handler method until it calls
+     * {@link #async(Supplier)} or {@link #deferred(Supplier)}.
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @param method        the HTTP method.
+     * @param ids           the ids to match.
+     * @param retrieval     the retrieval, which returns <code>false</code> if access is denied.
+     */
+    protected void deferRetrieval(final HandlerMethod handlerMethod, final String method,
+                                  final Map<String, String> ids, final Callable<Boolean> retrieval) {
+        deferredRetrieval.set(() -> {
+            if (!retrieval.call()) {
+                throw new AccessDeniedException(
+                        "Access denied " + method + " " + handlerMethod.getMethod().getName() + " for " + ids);
+            }
+
+            return true;
+        });
+    }
+
+    /**
+     * Is a retrieval deferred by {@link #deferRetrieval(HandlerMethod, String, Map, Callable)} still waiting for the
+     * handler method to call {@link #async(Supplier)} or {@link #deferred(Supplier)}?
+     *
+     * @return <code>true</code> if a retrieval is pending on the current thread, <code>false</code> otherwise.
+     */
+    protected boolean isRetrievalPending() {
+        return deferredRetrieval.get() != null;
+    }
+
+    /**
+     * Clears the resources retrieved on the current thread, along with any retrieval that is still pending. This is
+     * called once a request or an asynchronous retrieval completes, so that nothing is left behind on the servlet or
+     * executor threads.
+     */
+    protected void clearRetrieval() {
+        deferredRetrieval.remove();
+        resource.remove();
+        resourceBatch.remove();
+        resourceSpecifications.remove();
+        resourceResidualCriteria.remove();
     }
 
     /**
@@ -206,6 +541,15 @@ public abstract class BaseResource<R, I extends Serializable> {
         return resource.get();
     }
 
+    /**
+     * Returns the loaded batch of resources.
+     *
+     * @return the loaded batch of resources.
+     */
+    protected ResourceBatch<R, I> resourceBatch() {
+        return resourceBatch.get();
+    }
+
     /**
      * Returns the resources matching the authorization criteria and the ID criteria.
      * <p>
@@ -234,6 +578,10 @@ public abstract class BaseResource<R, I extends Serializable> {
     /**
      * Returns the resources matching the authorization criteria, ID criteria, and the provided specification sorted
      * using the sort.
+     * <p>
+     * Any authorization criteria that cannot be expressed as a database query is matched against the resources
+     * returned by the database.
+     * </p>
      *
      * @param specification the optional additional specification to apply.
      * @param sort          the optional sort to apply.
@@ -241,12 +589,15 @@ public abstract class BaseResource<R, I extends Serializable> {
      */
     protected List<R> resources(final Specification<R> specification, final Sort sort) {
         final Specifications<R> specifications = buildSpecifications(specification);
+        final List<R> resources;
 
         if (sort == null) {
-            return ((JpaSpecificationExecutor<R>) getResourceRepository()).findAll(specifications);
+            resources = specificationExecutor().findAll(specifications);
+        } else {
+            resources = specificationExecutor().findAll(specifications, sort);
         }
 
-        return ((JpaSpecificationExecutor<R>) getResourceRepository()).findAll(specifications, sort);
+        return matchResidualCriteria(resources);
     }
 
     /**
@@ -262,6 +613,13 @@ public abstract class BaseResource<R, I extends Serializable> {
 
     /**
      * Returns the resources matching the authorization criteria, ID criteria, and the provided specification.
+     * <p>
+     * If there is authorization criteria that cannot be expressed as a database query, the database cannot skip or
+     * count only the matching resources. Instead, the resources are read from the first, a page's worth at a time, and
+     * matched against that criteria until the page is filled, and any remaining resources are read to count the
+     * total when it cannot be determined from the page. Use {@link #resourcesAfter(Specification, Sort, List, int)}
+     * to avoid this cost for later pages.
+     * </p>
      *
      * @param specification the optional additional specification to apply to the resources.
      * @param pageable      the pageable to use.
@@ -269,8 +627,408 @@ public abstract class BaseResource<R, I extends Serializable> {
      */
     protected Page<R> resources(final Specification<R> specification, final Pageable pageable) {
         final Specifications<R> specifications = buildSpecifications(specification);
+        final AuthorizationCriteria<R> residualCriteria = resourceResidualCriteria.get();
+
+        if (residualCriteria == null) {
+            return specificationExecutor().findAll(specifications, pageable);
+        }
+
+        final CriteriaQuery<R> criteriaQuery = buildCriteriaQuery(entityManager.getCriteriaBuilder(), specifications,
+                                                                  pageable.getSort());
+        final int batchSize = Math.max(1, pageable.getPageSize());
+        final List<R> content = new ArrayList<>();
+        long matched = 0;
+        int position = 0;
+        boolean exhausted = false;
+
+        // Whole batches are matched, so that the count of matching resources read so far is exact.
+        while (!exhausted && (content.size() < pageable.getPageSize())) {
+            final List<R> batch = findBatchOfResources(criteriaQuery, position, batchSize);
+
+            for (final R resource : batch) {
+                if (matchesResidualCriteria(residualCriteria, resource)) {
+                    if ((matched >= pageable.getOffset()) && (content.size() < pageable.getPageSize())) {
+                        content.add(resource);
+                    }
+                    ++matched;
+                }
+            }
+            position += batch.size();
+            exhausted = batch.size() < batchSize;
+        }
+
+        final long matchedSoFar = matched;
+        final int remainingPosition = position;
+        final boolean remaining = !exhausted;
+        return PageableExecutionUtils.getPage(
+                content, pageable,
+                () -> matchedSoFar +
+                      (remaining ? countMatchingResources(criteriaQuery, residualCriteria, remainingPosition,
+                                                          batchSize) : 0));
+    }
+
+    /**
+     * Returns projections of the resources matching the authorization criteria, ID criteria, and the provided
+     * specification.
+     * <p>
+     * The projection is either an interface whose getters name fields of the resource or a class whose preferred
+     * constructor takes fields of the resource as parameters with matching names. Only those fields, the identifier,
+     * and any sort properties are selected from the database; the resources themselves are not loaded. Each resource
+     * is projected once, even if the authorization criteria join it to several rows. If there is authorization
+     * criteria that cannot be expressed as a database query, the resources are loaded to match that criteria and then
+     * projected.
+     * </p>
+     *
+     * @param <P>           the type of projection.
+     * @param specification the optional additional specification to apply.
+     * @param projection    the projection class.
+     * @return the projections.
+     */
+    protected <P> List<P> resources(final Specification<R> specification, final Class<P> projection) {
+        final List<String> properties = findProjectionProperties(projection);
+
+        if (resourceResidualCriteria.get() != null) {
+            return resources(specification, (Sort) null).stream()
+                    .map(resource -> projectResource(projection, properties, resource))
+                    .collect(Collectors.toList());
+        }
+
+        final Specifications<R> specifications = buildSpecifications(specification);
+        return entityManager.createQuery(buildProjectionQuery(specifications, properties, null))
+                .getResultList()
+                .stream()
+                .map(tuple -> projectTuple(projection, properties, tuple))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a page of projections of the resources matching the authorization criteria, ID criteria, and the
+     * provided specification.
+     * <p>
+     * See {@link #resources(Specification, Class)} for the supported projections.
+     * </p>
+     *
+     * @param <P>           the type of projection.
+     * @param specification the optional additional specification to apply.
+     * @param projection    the projection class.
+     * @param pageable      the pageable to use.
+     * @return the projections page.
+     */
+    protected <P> Page<P> resources(final Specification<R> specification, final Class<P> projection,
+                                    final Pageable pageable) {
+        final List<String> properties = findProjectionProperties(projection);
+
+        if (pageable == null) {
+            return new PageImpl<>(resources(specification, projection));
+        } else if (resourceResidualCriteria.get() != null) {
+            return resources(specification, pageable)
+                    .map(resource -> projectResource(projection, properties, resource));
+        }
+
+        final Specifications<R> specifications = buildSpecifications(specification);
+        final List<P> content = entityManager
+                .createQuery(buildProjectionQuery(specifications, properties, pageable.getSort()))
+                .setFirstResult(pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList()
+                .stream()
+                .map(tuple -> projectTuple(projection, properties, tuple))
+                .collect(Collectors.toList());
 
-        return ((JpaSpecificationExecutor<R>) getResourceRepository()).findAll(specifications, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> countInDatabase(specifications));
+    }
+
+    /**
+     * Returns the next slice of resources matching the authorization criteria and ID criteria after the last seen
+     * resource.
+     * <p>
+     * This is the equivalent of calling {@link #resourcesAfter(Specification, Sort, List, int)} with a null
+     * specification.
+     * </p>
+     *
+     * @param sort     the optional sort to apply.
+     * @param lastSeen the sort key of the last resource seen, as returned by {@link #keysetOf(Object, Sort)}, or
+     *                 <code>null</code> for the first slice.
+     * @param size     the maximum number of resources in the slice.
+     * @return the resources slice.
+     */
+    protected Slice<R> resourcesAfter(final Sort sort, final List<?> lastSeen, final int size) {
+        return resourcesAfter(null, sort, lastSeen, size);
+    }
+
+    /**
+     * Returns the next slice of resources matching the authorization criteria, ID criteria, and the provided
+     * specification after the last seen resource.
+     * <p>
+     * Unlike {@link #resources(Specification, Pageable)}, the slice is found by seeking past the sort key of the last
+     * seen resource rather than by skipping an offset, and no count query is performed, so every slice costs the same
+     * to retrieve. The identifier field is added to the sort if it is not already present so that the sort key is
+     * unique. The sorted fields must not be null.
+     * </p>
+     *
+     * @param specification the optional additional specification to apply.
+     * @param sort          the optional sort to apply.
+     * @param lastSeen      the sort key of the last resource seen, as returned by {@link #keysetOf(Object, Sort)},
+     *                      or <code>null</code> for the first slice.
+     * @param size          the maximum number of resources in the slice.
+     * @return the resources slice.
+     */
+    protected Slice<R> resourcesAfter(final Specification<R> specification, final Sort sort, final List<?> lastSeen,
+                                      final int size) {
+        final Sort keysetSort = buildKeysetSort(sort);
+        final Specifications<R> specifications = buildSpecifications(specification);
+        final AuthorizationCriteria<R> residualCriteria = resourceResidualCriteria.get();
+        final List<R> content = new ArrayList<>();
+        List<?> after = lastSeen;
+
+        // Fetch one extra resource to find out if there is another slice. Resources that fail to match any residual
+        // authorization criteria are skipped, which may require seeking further.
+        while (content.size() <= size) {
+            final List<R> batch = entityManager
+                    .createQuery(buildKeysetQuery(specifications, keysetSort, after))
+                    .setMaxResults(size + 1)
+                    .getResultList();
+
+            for (final R resource : batch) {
+                if ((residualCriteria == null) || matchesResidualCriteria(residualCriteria, resource)) {
+                    content.add(resource);
+                    if (content.size() > size) {
+                        break;
+                    }
+                }
+            }
+
+            if (batch.size() <= size) {
+                break;
+            }
+            after = keysetOf(batch.get(batch.size() - 1), keysetSort);
+        }
+
+        final boolean hasNext = content.size() > size;
+        final Pageable pageable = new PageRequest(0, Math.max(1, size), keysetSort);
+        return new SliceImpl<>(hasNext ? content.subList(0, size) : content, pageable, hasNext);
+    }
+
+    /**
+     * Returns the sort key of the resource for the sort. The sort key of the last resource in a slice is used to
+     * retrieve the next slice using {@link #resourcesAfter(Specification, Sort, List, int)}.
+     *
+     * @param resource the resource.
+     * @param sort     the optional sort.
+     * @return the sort key.
+     */
+    protected List<Object> keysetOf(final R resource, final Sort sort) {
+        final BeanWrapper beanWrapper = new BeanWrapperImpl(resource);
+        final List<Object> keyset = new ArrayList<>();
+
+        for (final Sort.Order order : buildKeysetSort(sort)) {
+            keyset.add(beanWrapper.getPropertyValue(order.getProperty()));
+        }
+
+        return keyset;
+    }
+
+    /**
+     * Streams the resources matching the authorization criteria and the ID criteria.
+     * <p>
+     * This is the equivalent of calling {@link #streamResources(Specification, Sort)} with a null specification and
+     * sort.
+     * </p>
+     *
+     * @return the resources stream.
+     */
+    protected Stream<R> streamResources() {
+        return streamResources((Specification<R>) null);
+    }
+
+    /**
+     * Streams the resources matching the authorization criteria, ID criteria, and the provided specification.
+     * <p>
+     * THis is the equivalent of calling {@link #streamResources(Specification, Sort)} with a null sort.
+     * </p>
+     *
+     * @param specification the additional specification to apply.
+     * @return the resources stream.
+     */
+    protected Stream<R> streamResources(final Specification<R> specification) {
+        return streamResources(specification, null);
+    }
+
+    /**
+     * Streams the resources matching the authorization criteria, ID criteria, and the provided specification sorted
+     * using the sort.
+     * <p>
+     * Unlike {@link #resources(Specification, Sort)}, the resources are read from a database cursor as the stream is
+     * consumed, {@link #getStreamFetchSize()} rows at a time. The resources are loaded read-only into a separate
+     * persistence context that is cleared after each batch, so any associations must be accessed before moving on to
+     * the next resource. Any authorization criteria that cannot be expressed as a database query is matched against
+     * each resource as it is read.
+     * </p>
+     * <p>
+     * The stream holds a database connection and must be closed.
+     * </p>
+     *
+     * @param specification the optional additional specification to apply.
+     * @param sort          the optional sort to apply.
+     * @return the resources stream.
+     */
+    protected Stream<R> streamResources(final Specification<R> specification, final Sort sort) {
+        final Specifications<R> specifications = buildSpecifications(specification);
+        final AuthorizationCriteria<R> residualCriteria = resourceResidualCriteria.get();
+        final EntityManager streamEntityManager = entityManagerFactory.createEntityManager();
+        ScrollableResults scrollableResults = null;
+
+        try {
+            streamEntityManager.getTransaction().begin();
+            scrollableResults = streamEntityManager.createQuery(
+                    buildCriteriaQuery(streamEntityManager.getCriteriaBuilder(), specifications, sort))
+                    .unwrap(Query.class)
+                    .setFetchSize(getStreamFetchSize())
+                    .setReadOnly(true)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+
+            final ScrollableResults streamResults = scrollableResults;
+            final Stream<R> stream = StreamSupport.stream(
+                    new ScrollableResultsSpliterator<>(streamResults, getResourceClass(), streamEntityManager,
+                                                       getStreamFetchSize()),
+                    false)
+                    .onClose(() -> closeStream(streamResults, streamEntityManager));
+
+            if (residualCriteria == null) {
+                return stream;
+            }
+            return stream.filter(resource -> matchesResidualCriteria(residualCriteria, resource));
+
+        } catch (final RuntimeException e) {
+            closeStream(scrollableResults, streamEntityManager);
+            throw e;
+        }
+    }
+
+    /**
+     * Determines if there are any resources matching the authorization criteria and the ID criteria.
+     * <p>
+     * This is the equivalent of calling {@link #anyResources(Specification)} with a null specification.
+     * </p>
+     *
+     * @return <code>true</code> if there is at least one matching resource, <code>false</code> otherwise.
+     */
+    protected boolean anyResources() {
+        return anyResources(null);
+    }
+
+    /**
+     * Determines if there are any resources matching the authorization criteria, ID criteria, and the provided
+     * specification.
+     * <p>
+     * Only the identifier of the first matching row is selected. If there is authorization criteria that cannot be
+     * expressed as a database query, the resources are streamed until one matches that criteria.
+     * </p>
+     *
+     * @param specification the optional additional specification to apply.
+     * @return <code>true</code> if there is at least one matching resource, <code>false</code> otherwise.
+     */
+    protected boolean anyResources(final Specification<R> specification) {
+        if (resourceResidualCriteria.get() != null) {
+            try (final Stream<R> resources = streamResources(specification)) {
+                return resources.findAny().isPresent();
+            }
+        }
+
+        return anyInDatabase(buildSpecifications(specification));
+    }
+
+    /**
+     * Counts the resources matching the authorization criteria and the ID criteria.
+     * <p>
+     * This is the equivalent of calling {@link #countResources(Specification)} with a null specification.
+     * </p>
+     *
+     * @return the number of resources.
+     */
+    protected long countResources() {
+        return countResources(null);
+    }
+
+    /**
+     * Counts the resources matching the authorization criteria, ID criteria, and the provided specification.
+     * <p>
+     * The count is performed by the database, counting each distinct resource once even if the authorization criteria
+     * joins to collections. If there is authorization criteria that cannot be expressed as a database query, the
+     * resources are streamed and counted as they match that criteria.
+     * </p>
+     *
+     * @param specification the optional additional specification to apply.
+     * @return the number of resources.
+     */
+    protected long countResources(final Specification<R> specification) {
+        if (resourceResidualCriteria.get() != null) {
+            try (final Stream<R> resources = streamResources(specification)) {
+                return resources.count();
+            }
+        }
+
+        return countInDatabase(buildSpecifications(specification));
+    }
+
+    /**
+     * Retrieves (load and authorize) a batch of resource objects.
+     * <p>
+     * The identifier contains a comma-separated list of identifiers. The resources are loaded using a single query
+     * with the authorization criteria applied, and the identifiers that were not loaded are then checked to
+     * determine which were denied and which are missing. Denying some of the resources does not deny the request; the
+     * handler method can decide what to do using {@link #resourceBatch()}.
+     * </p>
+     *
+     * @param handlerMethod the handler method for the endpoint.
+     * @param ids           the ids to match.
+     * @throws usa.browntrask.coffeecan.CoffeeCanException if there is a problem accessing the resources.
+     * @returns <code>true</code> if the retrieval was successful, <code>false</code> if it was denied.
+     */
+    protected boolean retrieveBatch(final HandlerMethod handlerMethod, final Map<String, String> ids)
+            throws CoffeeCanException {
+        // The restrictions are replaced rather than modified, so reading each once gives a consistent view of it.
+        final Map<String, Object> loadRestrictions = resourceLoadRestrictions;
+        final Map<String, Object> authorizeRestrictions = resourceAuthorizeRestrictions;
+
+        if (!shouldHandle(handlerMethod, loadRestrictions) &&
+            !shouldHandle(handlerMethod, authorizeRestrictions)) {
+            return true;
+        }
+
+        final List<I> batchIds = findResourceIds(ids);
+        final String action = determineAction(handlerMethod, authorizeRestrictions);
+        final AuthorizationPlan<R> authorizationPlan = shouldHandle(handlerMethod, authorizeRestrictions) ?
+                                                       capability().toPlan(action, getResourceClass()) :
+                                                       null;
+        final long start = metrics().start();
+        final Object loadEvent = FlightRecorderEvents.beginLoad();
+        final Map<I, R> loadedResources = findResourcesInBatch(batchIds, authorizationPlan);
+        metrics().recordLoad(action, getResourceClass(), start);
+        FlightRecorderEvents.endLoad(loadEvent, action, getResourceClass(), batchIds, Collections.emptySet(),
+                                     loadedResources.size());
+        final List<I> unloadedIds = batchIds.stream()
+                .filter(id -> !loadedResources.containsKey(id))
+                .collect(Collectors.toList());
+        final Set<I> existingIds = unloadedIds.isEmpty() ?
+                                   Collections.emptySet() :
+                                   findExistingResourceIds(unloadedIds);
+
+        // The accessors for multiple resources see only the authorized resources, never every resource.
+        resourceSpecifications.set(Specifications.where(
+                (authorizationPlan == null) ? null : authorizationPlan.getSpecification()));
+        resourceResidualCriteria.set((authorizationPlan == null) ? null : authorizationPlan.getResidual());
+        resourceBatch.set(new ResourceBatch<>(
+                shouldHandle(handlerMethod, loadRestrictions) ?
+                batchIds.stream()
+                        .filter(loadedResources::containsKey)
+                        .map(loadedResources::get)
+                        .collect(Collectors.toList()) :
+                Collections.emptyList(),
+                unloadedIds.stream().filter(existingIds::contains).collect(Collectors.toList()),
+                unloadedIds.stream().filter(id -> !existingIds.contains(id)).collect(Collectors.toList())));
+        return true;
     }
 
     /**
@@ -284,9 +1042,10 @@ public abstract class BaseResource<R, I extends Serializable> {
      */
     protected boolean retrieveMultiple(final HandlerMethod handlerMethod, final Map<String, String> ids)
             throws CoffeeCanException {
-        final Specification<R> authorizedSpecification = capability()
-                .toSpecification(handlerMethod.getMethod().getName(), getResourceClass());
-        resourceSpecifications.set(Specifications.where(authorizedSpecification));
+        final AuthorizationPlan<R> authorizationPlan = capability()
+                .toPlan(handlerMethod.getMethod().getName(), getResourceClass());
+        resourceSpecifications.set(Specifications.where(authorizationPlan.getSpecification()));
+        resourceResidualCriteria.set(authorizationPlan.getResidual());
         return true;
     }
 
@@ -343,37 +1102,496 @@ public abstract class BaseResource<R, I extends Serializable> {
         return specifications;
     }
 
-    private R findResource(final Map<String, String> ids) {
+    private CriteriaQuery<R> buildCriteriaQuery(final CriteriaBuilder criteriaBuilder,
+                                                final Specification<R> specification, final Sort sort) {
+        final CriteriaQuery<R> criteriaQuery = criteriaBuilder.createQuery(getResourceClass());
+        final Root<R> root = criteriaQuery.from(getResourceClass());
+        final Predicate predicate = specification.toPredicate(root, criteriaQuery, criteriaBuilder);
+
+        criteriaQuery.select(root);
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+        if (sort != null) {
+            criteriaQuery.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+
+        return criteriaQuery;
+    }
+
+    private CriteriaQuery<R> buildKeysetQuery(final Specification<R> specification, final Sort keysetSort,
+                                              final List<?> after) {
+        final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<R> criteriaQuery = criteriaBuilder.createQuery(getResourceClass());
+        final Root<R> root = criteriaQuery.from(getResourceClass());
+        final List<Predicate> predicates = new ArrayList<>();
+        final Predicate predicate = specification.toPredicate(root, criteriaQuery, criteriaBuilder);
+        final List<Order> orders = new ArrayList<>();
+        final List<Predicate> seekPredicates = new ArrayList<>();
+        final List<Predicate> equalPredicates = new ArrayList<>();
+        int keyIndex = 0;
+
+        if (predicate != null) {
+            predicates.add(predicate);
+        }
+
+        // Seek past (k1, k2, ...) using (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ..., reversing for descending keys.
+        for (final Sort.Order order : keysetSort) {
+            final Path<?> path = buildPropertyPath(root, order.getProperty());
+            orders.add(order.isAscending() ? criteriaBuilder.asc(path) : criteriaBuilder.desc(path));
+
+            if (after != null) {
+                final Object value = after.get(keyIndex++);
+                final Predicate seekPredicate = buildSeekPredicate(criteriaBuilder, path, value, order.isAscending());
+                final List<Predicate> keyPredicates = new ArrayList<>(equalPredicates);
+                keyPredicates.add(seekPredicate);
+                seekPredicates.add(criteriaBuilder.and(keyPredicates.toArray(new Predicate[keyPredicates.size()])));
+                equalPredicates.add(criteriaBuilder.equal(path, value));
+            }
+        }
+
+        if (!seekPredicates.isEmpty()) {
+            predicates.add(criteriaBuilder.or(seekPredicates.toArray(new Predicate[seekPredicates.size()])));
+        }
+
+        criteriaQuery.select(root)
+                .where(predicates.toArray(new Predicate[predicates.size()]))
+                .orderBy(orders);
+        return criteriaQuery;
+    }
+
+    private CriteriaQuery<Tuple> buildProjectionQuery(final Specification<R> specification,
+                                                      final List<String> properties, final Sort sort) {
+        final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+        final Root<R> root = criteriaQuery.from(getResourceClass());
+        final Predicate predicate = specification.toPredicate(root, criteriaQuery, criteriaBuilder);
+        final List<Selection<?>> selections = new ArrayList<>();
+
+        for (final String property : properties) {
+            selections.add(root.get(property).alias(property));
+        }
+        // The query is distinct, like the count, so the identifier keeps resources with the same values apart and the
+        // sort properties must be selected for the database to order by them.
+        if (!properties.contains(getResourceIdentifierField())) {
+            selections.add(root.get(getResourceIdentifierField()).alias(PROJECTION_IDENTIFIER_ALIAS));
+        }
+        if (sort != null) {
+            for (final Sort.Order order : sort) {
+                if (!properties.contains(order.getProperty()) &&
+                    !order.getProperty().equals(getResourceIdentifierField())) {
+                    selections.add(buildPropertyPath(root, order.getProperty())
+                                           .alias(PROJECTION_SORT_ALIAS + selections.size()));
+                }
+            }
+        }
+
+        criteriaQuery.multiselect(selections).distinct(true);
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+        if (sort != null) {
+            criteriaQuery.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+
+        return criteriaQuery;
+    }
+
+    private Sort buildKeysetSort(final Sort sort) {
+        final Sort identifierSort = new Sort(Sort.Direction.ASC, getResourceIdentifierField());
+
+        if (sort == null) {
+            return identifierSort;
+        } else if (sort.getOrderFor(getResourceIdentifierField()) != null) {
+            return sort;
+        }
+
+        return sort.and(identifierSort);
+    }
+
+    private Path<?> buildPropertyPath(final Root<R> root, final String property) {
+        Path<?> path = root;
+
+        for (final String field : property.split("\\.")) {
+            path = path.get(field);
+        }
+
+        return path;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Predicate buildSeekPredicate(final CriteriaBuilder criteriaBuilder, final Path<?> path, final Object value,
+                                         final boolean ascending) {
+        // The value was read from the property of the path, so both have the same comparable type.
+        final Expression<Comparable> comparablePath = (Expression<Comparable>) path;
+
+        return ascending ?
+               criteriaBuilder.greaterThan(comparablePath, (Comparable) value) :
+               criteriaBuilder.lessThan(comparablePath, (Comparable) value);
+    }
+
+    private boolean anyInDatabase(final Specification<R> specification) {
+        final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Object> criteriaQuery = criteriaBuilder.createQuery();
+        final Root<R> root = criteriaQuery.from(getResourceClass());
+        final Predicate predicate = specification.toPredicate(root, criteriaQuery, criteriaBuilder);
+
+        criteriaQuery.select(root.get(getResourceIdentifierField()));
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+
+        return !entityManager.createQuery(criteriaQuery).setMaxResults(1).getResultList().isEmpty();
+    }
+
+    private long countInDatabase(final Specification<R> specification) {
+        final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Long> criteriaQuery = criteriaBuilder.createQuery(Long.class);
+        final Root<R> root = criteriaQuery.from(getResourceClass());
+        final Predicate predicate = specification.toPredicate(root, criteriaQuery, criteriaBuilder);
+
+        criteriaQuery.select(criteriaBuilder.countDistinct(root));
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+
+        return entityManager.createQuery(criteriaQuery).getSingleResult();
+    }
+
+    private void closeStream(final ScrollableResults scrollableResults, final EntityManager streamEntityManager) {
+        try {
+            if (scrollableResults != null) {
+                scrollableResults.close();
+            }
+            if (streamEntityManager.getTransaction().isActive()) {
+                streamEntityManager.getTransaction().rollback();
+            }
+        } finally {
+            streamEntityManager.close();
+        }
+    }
+
+    private List<String> findProjectionProperties(final Class<?> projection) {
+        final List<String> properties = new ArrayList<>();
+
+        if (projection.isInterface()) {
+            for (final PropertyDescriptor propertyDescriptor :
+                    projectionFactory.getProjectionInformation(projection).getInputProperties()) {
+                properties.add(propertyDescriptor.getName());
+            }
+
+        } else {
+            for (final PreferredConstructor.Parameter<Object, ?> parameter :
+                    findProjectionConstructor(projection).getParameters()) {
+                properties.add(parameter.getName());
+            }
+        }
+
+        return properties;
+    }
+
+    private <P> P projectResource(final Class<P> projection, final List<String> properties, final R resource) {
+        final BeanWrapper beanWrapper = new BeanWrapperImpl(resource);
+        final Map<String, Object> values = new HashMap<>();
+
+        for (final String property : properties) {
+            values.put(property, beanWrapper.getPropertyValue(property));
+        }
+
+        return projectValues(projection, properties, values);
+    }
+
+    private <P> P projectTuple(final Class<P> projection, final List<String> properties, final Tuple tuple) {
+        final Map<String, Object> values = new HashMap<>();
+
+        for (final String property : properties) {
+            values.put(property, tuple.get(property));
+        }
+
+        return projectValues(projection, properties, values);
+    }
+
+    private <P> P projectValues(final Class<P> projection, final List<String> properties,
+                                final Map<String, Object> values) {
+        if (projection.isInterface()) {
+            return projectionFactory.createProjection(projection, values);
+        }
+
+        final Object[] arguments = properties.stream().map(values::get).toArray();
+        return projection.cast(
+                BeanUtils.instantiateClass(findProjectionConstructor(projection).getConstructor(), arguments));
+    }
+
+    private PreferredConstructor<?, ?> findProjectionConstructor(final Class<?> projection) {
+        return projectionConstructors.computeIfAbsent(
+                projection, key -> new PreferredConstructorDiscoverer<>(key).getConstructor());
+    }
+
+    private List<R> findBatchOfResources(final CriteriaQuery<R> criteriaQuery, final int position,
+                                         final int batchSize) {
+        return entityManager.createQuery(criteriaQuery)
+                .setFirstResult(position)
+                .setMaxResults(batchSize)
+                .getResultList();
+    }
+
+    private long countMatchingResources(final CriteriaQuery<R> criteriaQuery,
+                                        final AuthorizationCriteria<R> residualCriteria, final int position,
+                                        final int batchSize) {
+        long matched = 0;
+        int batchPosition = position;
+        List<R> batch;
+
+        do {
+            batch = findBatchOfResources(criteriaQuery, batchPosition, batchSize);
+            matched += batch.stream().filter(resource -> matchesResidualCriteria(residualCriteria, resource)).count();
+            batchPosition += batch.size();
+        } while (batch.size() == batchSize);
+
+        return matched;
+    }
+
+    private List<R> matchResidualCriteria(final List<R> resources) {
+        final AuthorizationCriteria<R> residualCriteria = resourceResidualCriteria.get();
+        if (residualCriteria == null) {
+            return resources;
+        }
+
+        return resources.stream()
+                .filter(resource -> matchesResidualCriteria(residualCriteria, resource))
+                .collect(Collectors.toList());
+    }
+
+    private boolean matchesResidualCriteria(final AuthorizationCriteria<R> residualCriteria, final R resource) {
+        try {
+            return residualCriteria.matches(resource);
+        } catch (final CoffeeCanException e) {
+            throw new IllegalStateException("Cannot match " + resource + " to " + residualCriteria, e);
+        }
+    }
+
+    /**
+     * Finds an object by its identifier, fetching the associations along the paths in the same query.
+     * <p>
+     * Only associations that are mapped by JPA are fetched. Hibernate cannot fetch more than one bag (a collection or
+     * a list without an {@link javax.persistence.OrderColumn}) in a single query, so only the first bag is fetched and
+     * any others are left to load lazily.
+     * </p>
+     *
+     * @param <T>        the type of object.
+     * @param klass      the class of object.
+     * @param id         the identifier of the object.
+     * @param fetchPaths the association paths to fetch.
+     * @return the object or <code>null</code> if there is no such object.
+     */
+    <T> T findWithFetchPaths(final Class<T> klass, final Object id, final Set<String> fetchPaths) {
+        final Map<String, Object> hints = new HashMap<>();
+
+        hints.put("javax.persistence.loadgraph", buildFetchGraph(klass, fetchPaths));
+        return entityManager.find(klass, id, hints);
+    }
+
+    private <T> EntityGraph<T> buildFetchGraph(final Class<T> klass, final Set<String> fetchPaths) {
+        final EntityGraph<T> entityGraph = entityManager.createEntityGraph(klass);
+        final Map<String, Subgraph<?>> subgraphs = new HashMap<>();
+        String bagPath = null;
+
+        for (final String fetchPath : fetchPaths) {
+            ManagedType<?> managedType = entityManager.getMetamodel().managedType(klass);
+            Subgraph<?> subgraph = null;
+            String path = null;
+
+            for (final String fieldName : fetchPath.split("\\.")) {
+                final Attribute<?, ?> attribute = findAttribute(managedType, fieldName);
+                if ((attribute == null) || !attribute.isAssociation()) {
+                    break;
+                }
+
+                path = (path == null) ? fieldName : path + "." + fieldName;
+                if (isBag(attribute)) {
+                    if ((bagPath != null) && !bagPath.equals(path)) {
+                        break;
+                    }
+                    bagPath = path;
+                }
+
+                if (!subgraphs.containsKey(path)) {
+                    subgraphs.put(path, (subgraph == null) ?
+                                        entityGraph.addSubgraph(fieldName) :
+                                        subgraph.addSubgraph(fieldName));
+                }
+                subgraph = subgraphs.get(path);
+
+                final Type<?> type = attribute.isCollection() ?
+                                     ((PluralAttribute<?, ?, ?>) attribute).getElementType() :
+                                     ((SingularAttribute<?, ?>) attribute).getType();
+                if (!(type instanceof ManagedType)) {
+                    break;
+                }
+                managedType = (ManagedType<?>) type;
+            }
+        }
+
+        return entityGraph;
+    }
+
+    private <T> T supplyAsync(final Callable<Boolean> retrieval, final Supplier<T> supplier) {
+        final Map<String, PlatformTransactionManager> transactionManagers =
+                applicationContext.getBeansOfType(PlatformTransactionManager.class);
+
+        try {
+            if (transactionManagers.size() == 1) {
+                return new TransactionTemplate(transactionManagers.values().iterator().next())
+                        .execute(status -> retrieveAndSupply(retrieval, supplier));
+            }
+
+            return retrieveAndSupply(retrieval, supplier);
+
+        } finally {
+            clearRetrieval();
+        }
+    }
+
+    private <T> T retrieveAndSupply(final Callable<Boolean> retrieval, final Supplier<T> supplier) {
+        try {
+            // The supplier must never run unless the retrieval explicitly allowed access.
+            if (!Boolean.TRUE.equals(retrieval.call())) {
+                throw new AccessDeniedException("Access denied for " + getClass().getSimpleName());
+            }
+        } catch (final RuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new CompletionException(e);
+        }
+
+        return supplier.get();
+    }
+
+    private boolean isBag(final Attribute<?, ?> attribute) {
+        if (!attribute.isCollection()) {
+            return false;
+        }
+
+        switch (((PluralAttribute<?, ?, ?>) attribute).getCollectionType()) {
+            case COLLECTION:
+                return true;
+
+            case LIST:
+                return !(attribute.getJavaMember() instanceof AnnotatedElement) ||
+                       !((AnnotatedElement) attribute.getJavaMember()).isAnnotationPresent(OrderColumn.class);
+
+            default:
+                return false;
+        }
+    }
+
+    private Attribute<?, ?> findAttribute(final ManagedType<?> managedType, final String fieldName) {
+        try {
+            return managedType.getAttribute(fieldName);
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private R findResource(final Map<String, String> ids, final Set<String> fetchPaths) {
         final I id = idOfType(getResourceIdentifierClass(), findResourceId(ids));
 
-        return findResourceInRepository(id);
+        if (fetchPaths.isEmpty()) {
+            return findResourceInRepository(id);
+        }
+        return findWithFetchPaths(getResourceClass(), id, fetchPaths);
+    }
+
+    private Set<I> findExistingResourceIds(final List<I> batchIds) {
+        final CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<I> criteriaQuery = criteriaBuilder.createQuery(getResourceIdentifierClass());
+        final Root<R> root = criteriaQuery.from(getResourceClass());
+        final Path<I> idPath = root.get(getResourceIdentifierField());
+
+        criteriaQuery.select(idPath).where(idPath.in(batchIds));
+
+        return new HashSet<>(entityManager.createQuery(criteriaQuery).getResultList());
     }
 
     private String findResourceId(final Map<String, String> ids) {
         return ids.get(getResourceIdentifierField());
     }
 
+    private List<I> findResourceIds(final Map<String, String> ids) {
+        final String batchIds = findResourceId(ids);
+        if (batchIds == null) {
+            return Collections.emptyList();
+        }
+
+        return Arrays.stream(batchIds.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(id -> idOfType(getResourceIdentifierClass(), id))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private Map<I, R> findResourcesInBatch(final List<I> batchIds, final AuthorizationPlan<R> authorizationPlan) {
+        if (batchIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Specification<R> idSpecification = (root, criteriaQuery, criteriaBuilder) ->
+                root.get(getResourceIdentifierField()).in(batchIds);
+        final Specifications<R> specifications = (authorizationPlan == null) ?
+                                                 Specifications.where(idSpecification) :
+                                                 Specifications.where(authorizationPlan.getSpecification())
+                                                         .and(idSpecification);
+        final AuthorizationCriteria<R> residualCriteria = (authorizationPlan == null) ?
+                                                          null :
+                                                          authorizationPlan.getResidual();
+        final Map<I, R> loadedResources = new HashMap<>();
+
+        for (final R loadedResource : specificationExecutor().findAll(specifications)) {
+            if ((residualCriteria == null) || matchesResidualCriteria(residualCriteria, loadedResource)) {
+                final BeanWrapper beanWrapper = new BeanWrapperImpl(loadedResource);
+                loadedResources.put(getResourceIdentifierClass().cast(
+                        beanWrapper.getPropertyValue(getResourceIdentifierField())), loadedResource);
+            }
+        }
+
+        return loadedResources;
+    }
+
+    @SuppressWarnings("unchecked")
+    private JpaSpecificationExecutor<R> specificationExecutor() {
+        // Authorized queries need the repository of the resource to execute specifications of that same resource.
+        return (JpaSpecificationExecutor<R>) getResourceRepository();
+    }
+
     private R findResourceInRepository(final I id) {
         return ((CrudRepository<R, I>) getResourceRepository()).findOne(id);
     }
 
     protected boolean retrieveResource(final HandlerMethod handlerMethod, final Map<String, String> ids)
             throws CoffeeCanException {
-        final Map<String, Object> loadRestrictions;
-        final Map<String, Object> authorizeRestrictions;
-        synchronized (this) {
-            loadRestrictions = (resourceLoadRestrictions == null) ? null : new HashMap<>(resourceLoadRestrictions);
-            authorizeRestrictions =
-                    (resourceAuthorizeRestrictions == null) ? null : new HashMap<>(resourceAuthorizeRestrictions);
-        }
+        // The restrictions are replaced rather than modified, so reading each once gives a consistent view of it.
+        final Map<String, Object> loadRestrictions = resourceLoadRestrictions;
+        final Map<String, Object> authorizeRestrictions = resourceAuthorizeRestrictions;
 
         if (!shouldHandle(handlerMethod, loadRestrictions) &&
             !shouldHandle(handlerMethod, authorizeRestrictions)) {
             return true;
         }
 
-        final R loadedResource = findResource(ids);
-        if (!authorizeObject(handlerMethod, authorizeRestrictions, loadedResource)) {
+        final String action = determineAction(handlerMethod, authorizeRestrictions);
+        // Look the capability up once; it is used both to plan the fetch and to authorize the resource loaded.
+        final Capability capability = shouldHandle(handlerMethod, authorizeRestrictions) ? capability() : null;
+        final Set<String> fetchPaths = (capability != null) ?
+                                       capability.toFetchPaths(action, getResourceClass()) :
+                                       Collections.emptySet();
+        final long start = metrics().start();
+        final Object loadEvent = FlightRecorderEvents.beginLoad();
+        final R loadedResource = findResource(ids, fetchPaths);
+        metrics().recordLoad(action, getResourceClass(), start);
+        FlightRecorderEvents.endLoad(loadEvent, action, getResourceClass(), findResourceId(ids), fetchPaths,
+                                     (loadedResource == null) ? 0 : 1);
+        if (!authorizeObject(handlerMethod, authorizeRestrictions, capability, action, loadedResource)) {
             return false;
         }
 
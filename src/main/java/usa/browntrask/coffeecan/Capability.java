@@ -10,6 +10,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Interface for objects representing the capabilities of a user as controlled through coffeecan.
@@ -141,6 +142,45 @@ public interface Capability {
      */
     <R> boolean denies(String action, R resource) throws CoffeeCanException;
 
+    /**
+     * Explains whether the action can be performed on the resource.
+     * <p>
+     * The decision is the same as that of {@link #allows(String, Object)}, but the returned trace shows the
+     * controlling actions considered and the result and evaluation time of each of the authorization criteria. This
+     * is intended for diagnosing slow or unexpected decisions; use {@link #allows(String, Object)} otherwise.
+     * </p>
+     * <p>
+     * By default, the trace only records the decision made by {@link #allows(String, Object)} and the time it took;
+     * it has no controlling actions or authorization criteria.
+     * </p>
+     *
+     * @param <R>      the type of resource.
+     * @param action   the action.
+     * @param resource the resource.
+     * @return the trace of the decision.
+     * @throws usa.browntrask.coffeecan.CoffeeCanException if there is a problem determining if the action is allowed.
+     */
+    default <R> DecisionTrace explain(final String action, final R resource) throws CoffeeCanException {
+        final long start = System.nanoTime();
+        final boolean allowed = allows(action, resource);
+
+        return new DecisionTrace(action, action, Collections.emptyList(), Collections.emptyList(), allowed,
+                                 System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the key under which the decisions made by this capability can be cached, for example by a
+     * {@link usa.browntrask.coffeecan.ParentCache}. Capabilities with equal keys must make the same decisions.
+     * <p>
+     * By default, each capability is its own key.
+     * </p>
+     *
+     * @return the decision key.
+     */
+    default Object getDecisionKey() {
+        return this;
+    }
+
     /**
      * Gets the default for access.
      *
@@ -195,4 +235,45 @@ public interface Capability {
      * @return the specification.
      */
     <R> Specification<R> toSpecification(final String action, final Class<R> resourceClass);
+
+    /**
+     * Returns the association paths that are navigated when matching resources of a particular class against the
+     * authorization criteria for the specified action.
+     * <p>
+     * Loading a resource with these associations fetched allows {@link #allows(String, Object)} to be evaluated
+     * without lazily loading each association separately.
+     * </p>
+     * <p>
+     * By default, no association paths are returned, so the associations are loaded lazily as they are navigated.
+     * </p>
+     *
+     * @param <R> the type of resource.
+     * @param action the action.
+     * @param resourceClass the resource class.
+     * @return the association paths, each a dotted list of field names starting at the resource.
+     */
+    default <R> Set<String> toFetchPaths(final String action, final Class<R> resourceClass) {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Returns a plan for finding resources of a particular class that can handle the specified action.
+     * <p>
+     * Unlike {@link #toSpecification(String, Class)}, the plan can be built for authorization criteria that cannot be
+     * fully expressed as a database query. The plan's specification finds a superset of the resources; the plan's
+     * residual criteria must be matched against each of the resulting resources.
+     * </p>
+     * <p>
+     * By default, the plan uses the specification returned by {@link #toSpecification(String, Class)} and has no
+     * residual criteria.
+     * </p>
+     *
+     * @param <R> the type of resource.
+     * @param action the action.
+     * @param resourceClass the resource class.
+     * @return the plan.
+     */
+    default <R> AuthorizationPlan<R> toPlan(final String action, final Class<R> resourceClass) {
+        return new AuthorizationPlan<>(toSpecification(action, resourceClass), null);
+    }
 }
@@ -0,0 +1,29 @@
+package usa.browntrask.coffeecan;
+
+import java.util.Collection;
+
+/**
+ * Factory for the capabilities shared by users with the same roles.
+ * <p>
+ * Implementations of {@link usa.browntrask.coffeecan.BaseResource#capability()} ask the factory for the capability
+ * for the current user's roles rather than constructing one themselves, and either use it directly or layer the rules
+ * particular to the user over it (see {@link usa.browntrask.coffeecan.BaseCapability#BaseCapability(BaseCapability)}).
+ * The returned capability is shared, so it must not be changed.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/28
+ */
+public interface CapabilityFactory {
+
+    /**
+     * Returns the capability for a user with the roles. The order of the roles and any duplicates do not matter.
+     *
+     * @param roles the names of the roles, and any other attributes of the user that determine their capability.
+     * @return the shared capability.
+     * @throws usa.browntrask.coffeecan.AuthorizationCriteriaException if the capability cannot be built for the
+     *                                                                 roles.
+     */
+    BaseCapability getCapability(Collection<String> roles) throws AuthorizationCriteriaException;
+}
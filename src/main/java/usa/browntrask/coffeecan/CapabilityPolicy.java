@@ -0,0 +1,91 @@
+package usa.browntrask.coffeecan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The capability templates for each role, as loaded from a policy file by a
+ * {@link usa.browntrask.coffeecan.PolicyLoader}.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/23
+ */
+public class CapabilityPolicy {
+
+    private final Map<String, CapabilityTemplate> templates;
+
+    /**
+     * Constructs a policy.
+     *
+     * @param templates the templates, keyed by role.
+     */
+    CapabilityPolicy(final Map<String, CapabilityTemplate> templates) {
+        super();
+
+        this.templates = Collections.unmodifiableMap(templates);
+    }
+
+    /**
+     * Returns the roles defined by the policy.
+     * <p>
+     * The returned set cannot be modified.
+     * </p>
+     *
+     * @return the roles.
+     */
+    public Set<String> getRoles() {
+        return templates.keySet();
+    }
+
+    /**
+     * Returns the template for a role.
+     *
+     * @param role the name of the role.
+     * @return the template.
+     * @throws usa.browntrask.coffeecan.PolicyException if the policy does not define the role.
+     */
+    public CapabilityTemplate getTemplate(final String role) throws PolicyException {
+        final CapabilityTemplate template = templates.get(role);
+        if (template == null) {
+            throw new PolicyException("The policy does not define the role " + role);
+        }
+
+        return template;
+    }
+
+    /**
+     * Builds a shared capability from the templates of the roles, over which the capabilities of users with those
+     * roles can be layered.
+     *
+     * @param roles the names of the roles, in the order their templates are applied.
+     * @return the shared capability.
+     * @throws usa.browntrask.coffeecan.PolicyException         if the policy does not define one of the roles.
+     * @throws usa.browntrask.coffeecan.RegisterActionException if the templates register the same action differently.
+     */
+    public SharedCapability share(final Collection<String> roles) throws PolicyException, RegisterActionException {
+        final List<CapabilityTemplate> roleTemplates = new ArrayList<>();
+
+        for (final String role : roles) {
+            roleTemplates.add(getTemplate(role));
+        }
+
+        return new SharedCapability(roleTemplates);
+    }
+
+    /**
+     * Returns the templates for each role.
+     * <p>
+     * The returned map cannot be modified.
+     * </p>
+     *
+     * @return the templates, keyed by role.
+     */
+    public Map<String, CapabilityTemplate> getTemplates() {
+        return templates;
+    }
+}
@@ -0,0 +1,73 @@
+package usa.browntrask.coffeecan;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the {@link usa.browntrask.coffeecan.BaseCapability} objects in memory, used to report on their rules.
+ * <p>
+ * Capabilities are registered explicitly, once they have been constructed and their rules added. The
+ * {@link usa.browntrask.coffeecan.MemoizingCapabilityFactory} registers each capability it builds; other long-lived
+ * capabilities can be registered with {@link #register(BaseCapability)}. Capabilities created for each request are
+ * usually not worth registering. The registry holds capabilities weakly, so a capability is dropped from it once
+ * nothing else refers to it.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/18
+ */
+public class CapabilityRegistry {
+
+    private static final CapabilityRegistry GLOBAL = new CapabilityRegistry();
+
+    private final Map<Reference<? extends BaseCapability>, Boolean> capabilities = new ConcurrentHashMap<>();
+    private final ReferenceQueue<BaseCapability> collectedCapabilities = new ReferenceQueue<>();
+
+    /**
+     * Returns the registry that capabilities register with.
+     *
+     * @return the global registry.
+     */
+    public static CapabilityRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the capabilities currently registered.
+     *
+     * @return a copy of the registered capabilities.
+     */
+    public List<BaseCapability> getCapabilities() {
+        expunge();
+        return capabilities.keySet()
+                .stream()
+                .map(Reference::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Registers a capability. Its rules should not be changed afterwards, or its statistics may not be reported.
+     *
+     * @param capability the capability.
+     */
+    public void register(final BaseCapability capability) {
+        expunge();
+        capabilities.put(new WeakReference<>(capability, collectedCapabilities), Boolean.TRUE);
+    }
+
+    private void expunge() {
+        Reference<? extends BaseCapability> collectedCapability;
+
+        while ((collectedCapability = collectedCapabilities.poll()) != null) {
+            capabilities.remove(collectedCapability);
+        }
+    }
+}
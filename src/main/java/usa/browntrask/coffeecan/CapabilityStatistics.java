@@ -0,0 +1,182 @@
+package usa.browntrask.coffeecan;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics describing the rules held by a {@link usa.browntrask.coffeecan.BaseCapability}.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/18
+ */
+public class CapabilityStatistics {
+
+    private final String capabilityClass;
+    private final boolean defaultAccess;
+    private final Map<String, List<String>> registeredActions;
+    private final Map<String, String> aliases;
+    private final List<Rules> rules;
+
+    /**
+     * Constructs capability statistics.
+     *
+     * @param capabilityClass   the name of the capability class.
+     * @param defaultAccess     the default access.
+     * @param registeredActions the registered actions.
+     * @param aliases           the action aliases.
+     * @param rules             the statistics for the rules of each action and resource class.
+     */
+    CapabilityStatistics(final String capabilityClass, final boolean defaultAccess,
+                         final Map<String, List<String>> registeredActions, final Map<String, String> aliases,
+                         final List<Rules> rules) {
+        super();
+
+        this.capabilityClass = capabilityClass;
+        this.defaultAccess = defaultAccess;
+        this.registeredActions = Collections.unmodifiableMap(registeredActions);
+        this.aliases = Collections.unmodifiableMap(aliases);
+        this.rules = Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Returns the action aliases.
+     *
+     * @return map of alias to action.
+     */
+    public Map<String, String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * Returns the name of the capability class.
+     *
+     * @return the class name.
+     */
+    public String getCapabilityClass() {
+        return capabilityClass;
+    }
+
+    /**
+     * Returns the registered actions.
+     *
+     * @return map of registered action to actions.
+     */
+    public Map<String, List<String>> getRegisteredActions() {
+        return registeredActions;
+    }
+
+    /**
+     * Returns the statistics for the rules of each action and resource class.
+     *
+     * @return the rule statistics.
+     */
+    public List<Rules> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the total number of criteria nodes across all of the rules.
+     *
+     * @return the number of nodes.
+     */
+    public int getTotalNodes() {
+        return rules.stream().mapToInt(Rules::getNodes).sum();
+    }
+
+    /**
+     * Returns the total number of rules added using <code>can</code> and <code>cannot</code>.
+     *
+     * @return the number of rules.
+     */
+    public int getTotalRules() {
+        return rules.stream().mapToInt(Rules::getCount).sum();
+    }
+
+    /**
+     * Is access to resources allowed by default?
+     *
+     * @return <code>true</code> if access is allowed by default, <code>false</code> if it is denied.
+     */
+    public boolean isDefaultAccess() {
+        return defaultAccess;
+    }
+
+    /**
+     * Statistics for the rules that allow or deny an action on a resource class.
+     */
+    public static class Rules {
+
+        private final String action;
+        private final String resourceClass;
+        private final boolean allows;
+        private final int count;
+        private final int depth;
+        private final int nodes;
+
+        Rules(final String action, final String resourceClass, final boolean allows, final int count,
+              final int depth, final int nodes) {
+            this.action = action;
+            this.resourceClass = resourceClass;
+            this.allows = allows;
+            this.count = count;
+            this.depth = depth;
+            this.nodes = nodes;
+        }
+
+        /**
+         * Returns the action.
+         *
+         * @return the action.
+         */
+        public String getAction() {
+            return action;
+        }
+
+        /**
+         * Returns the number of rules added for the action and resource class.
+         *
+         * @return the number of rules.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the depth of the combined criteria tree.
+         *
+         * @return the depth.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Returns the number of nodes in the combined criteria tree.
+         *
+         * @return the number of nodes.
+         */
+        public int getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the name of the resource class.
+         *
+         * @return the class name.
+         */
+        public String getResourceClass() {
+            return resourceClass;
+        }
+
+        /**
+         * Do the rules allow the action?
+         *
+         * @return <code>true</code> for rules added by <code>can</code>, <code>false</code> for <code>cannot</code>.
+         */
+        public boolean isAllows() {
+            return allows;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package usa.browntrask.coffeecan;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of rules for a role, from which capabilities are built.
+ * <p>
+ * Templates are produced by a {@link usa.browntrask.coffeecan.PolicyLoader}, which verifies every field path in their
+ * authorization criteria against the resource classes when the policy is loaded. Applying a template to a capability
+ * therefore cannot fail because of a malformed rule, and the criteria are shared by every capability built from the
+ * template rather than being rebuilt for each one.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/23
+ */
+public class CapabilityTemplate {
+
+    private final String role;
+    private final Boolean defaultAccess;
+    private final Map<String, List<String>> registeredActions;
+    private final Map<String, String> aliases;
+    private final List<Rule<?>> rules;
+
+    /**
+     * Constructs a capability template.
+     *
+     * @param role              the name of the role.
+     * @param defaultAccess     the default access, or <code>null</code> to leave that of the capability unchanged.
+     * @param registeredActions the actions to register, each with the actions it includes.
+     * @param aliases           the aliases to define, each with the action it stands for.
+     * @param rules             the rules, in the order they are applied.
+     */
+    CapabilityTemplate(final String role, final Boolean defaultAccess,
+                       final Map<String, List<String>> registeredActions, final Map<String, String> aliases,
+                       final List<Rule<?>> rules) {
+        super();
+
+        this.role = role;
+        this.defaultAccess = defaultAccess;
+        this.registeredActions = Collections.unmodifiableMap(registeredActions);
+        this.aliases = Collections.unmodifiableMap(aliases);
+        this.rules = Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Applies the template to a capability: sets its default access, registers the actions and aliases, and adds the
+     * rules.
+     * <p>
+     * Several templates may be applied to the same capability to combine roles, as long as they do not register the
+     * same action differently.
+     * </p>
+     *
+     * @param <C>        the type of capability.
+     * @param capability the capability.
+     * @return the capability.
+     * @throws usa.browntrask.coffeecan.RegisterActionException if an action is already registered differently.
+     */
+    public <C extends Capability> C applyTo(final C capability) throws RegisterActionException {
+        if (defaultAccess != null) {
+            capability.setDefaultAccess(defaultAccess);
+        }
+        for (final Map.Entry<String, List<String>> entry : registeredActions.entrySet()) {
+            capability.registerAction(entry.getKey(), entry.getValue());
+        }
+        for (final Map.Entry<String, String> entry : aliases.entrySet()) {
+            capability.aliasForAction(entry.getKey(), entry.getValue());
+        }
+        for (final Rule<?> rule : rules) {
+            rule.applyTo(capability);
+        }
+
+        return capability;
+    }
+
+    /**
+     * Returns the aliases defined by the template, each with the action it stands for.
+     * <p>
+     * The returned map cannot be modified.
+     * </p>
+     *
+     * @return the aliases.
+     */
+    public Map<String, String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * Returns the default access set by the template.
+     *
+     * @return the default access, or <code>null</code> if the template leaves it unchanged.
+     */
+    public Boolean getDefaultAccess() {
+        return defaultAccess;
+    }
+
+    /**
+     * Returns the actions registered by the template, each with the actions it includes.
+     * <p>
+     * The returned map cannot be modified.
+     * </p>
+     *
+     * @return the registered actions.
+     */
+    public Map<String, List<String>> getRegisteredActions() {
+        return registeredActions;
+    }
+
+    /**
+     * Returns the name of the role.
+     *
+     * @return the role.
+     */
+    public String getRole() {
+        return role;
+    }
+
+    /**
+     * Returns the rules of the template, in the order they are applied.
+     * <p>
+     * The returned list cannot be modified.
+     * </p>
+     *
+     * @return the rules.
+     */
+    public List<Rule<?>> getRules() {
+        return rules;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " " + role + " " + rules;
+    }
+
+    /**
+     * A rule allowing or denying actions on a class of resource that match an authorization criteria.
+     *
+     * @param <R> the type of resource.
+     */
+    public static class Rule<R> {
+
+        private final boolean allows;
+        private final List<String> actions;
+        private final Class<R> resourceClass;
+        private final AuthorizationCriteria<R> authorizationCriteria;
+
+        /**
+         * Constructs a rule.
+         *
+         * @param allows                <code>true</code> if the rule allows the actions, <code>false</code> if it
+         *                              denies them.
+         * @param actions               the actions.
+         * @param resourceClass         the class of resource.
+         * @param authorizationCriteria the verified authorization criteria.
+         */
+        Rule(final boolean allows, final List<String> actions, final Class<R> resourceClass,
+             final AuthorizationCriteria<R> authorizationCriteria) {
+            super();
+
+            this.allows = allows;
+            this.actions = Collections.unmodifiableList(actions);
+            this.resourceClass = resourceClass;
+            this.authorizationCriteria = authorizationCriteria;
+        }
+
+        /**
+         * Returns the actions allowed or denied by the rule.
+         * <p>
+         * The returned list cannot be modified.
+         * </p>
+         *
+         * @return the actions.
+         */
+        public List<String> getActions() {
+            return actions;
+        }
+
+        /**
+         * Returns the authorization criteria that resources must match for the rule to apply.
+         *
+         * @return the authorization criteria.
+         */
+        public AuthorizationCriteria<R> getAuthorizationCriteria() {
+            return authorizationCriteria;
+        }
+
+        /**
+         * Returns the class of resource to which the rule applies.
+         *
+         * @return the resource class.
+         */
+        public Class<R> getResourceClass() {
+            return resourceClass;
+        }
+
+        /**
+         * Does the rule allow the actions?
+         *
+         * @return <code>true</code> if the rule allows the actions, <code>false</code> if it denies them.
+         */
+        public boolean isAllows() {
+            return allows;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return (allows ? "can " : "cannot ") + actions + " " + resourceClass.getSimpleName() + " when " +
+                   authorizationCriteria;
+        }
+
+        private void applyTo(final Capability capability) {
+            if (allows) {
+                capability.can(actions, resourceClass, authorizationCriteria);
+            } else {
+                capability.cannot(actions, resourceClass, authorizationCriteria);
+            }
+        }
+    }
+}
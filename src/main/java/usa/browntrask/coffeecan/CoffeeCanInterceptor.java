@@ -6,8 +6,14 @@ import org.springframework.aop.TargetClassAware;
 import org.springframework.aop.TargetSource;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import usa.browntrask.coffeecan.audit.AuditSink;
+import usa.browntrask.coffeecan.metrics.CoffeeCanMetrics;
+import usa.browntrask.coffeecan.metrics.Outcome;
+import usa.browntrask.coffeecan.metrics.SqlStatementCounter;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.lang.reflect.Method;
@@ -15,11 +21,26 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 /**
  * Spring {@link org.springframework.web.servlet.HandlerInterceptor} that uses CoffeeCan to control access.
+ * <p>
+ * CoffeeCan is built on Spring MVC 4.3, which has no reactive stack, so this interceptor is the only integration
+ * point. Handler methods that should not hold a servlet thread while resources are loaded can return a
+ * {@link java.util.concurrent.CompletableFuture} or
+ * {@link org.springframework.web.context.request.async.DeferredResult}, be listed in the <code>async</code>
+ * restriction of {@link usa.browntrask.coffeecan.BaseResource#authorizeResource(java.util.Map)}, and retrieve their
+ * resources using {@link usa.browntrask.coffeecan.BaseResource#async(java.util.function.Supplier)}. Any other handler
+ * method has its resources retrieved and authorized before it is called, even if it returns a future.
+ * {@link Capability} and
+ * {@link AuthorizationCriteria} evaluation reads the properties of loaded entities, and reading a lazy association
+ * issues a blocking JDBC query. Fetch paths avoid most of these queries, but neither may be evaluated on an event
+ * loop thread.
+ * </p>
  *
  * @author Ian Brown
  * @version 1.0.0
@@ -28,6 +49,57 @@ import java.util.stream.Collectors;
 public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
 
     private Logger logger = LoggerFactory.getLogger(getClass());
+    private final CoffeeCanMetrics coffeeCanMetrics;
+    private final boolean serverTiming;
+    private final AuditSink auditSink;
+
+    /**
+     * Constructs an interceptor that records metrics to the Micrometer global registry.
+     */
+    public CoffeeCanInterceptor() {
+        this(CoffeeCanMetrics.global());
+    }
+
+    /**
+     * Constructs an interceptor that records metrics using the specified metrics.
+     *
+     * @param coffeeCanMetrics the metrics.
+     */
+    public CoffeeCanInterceptor(final CoffeeCanMetrics coffeeCanMetrics) {
+        this(coffeeCanMetrics, false);
+    }
+
+    /**
+     * Constructs an interceptor that records metrics using the specified metrics and, optionally, reports the time
+     * taken and SQL statements issued to authorize each request in a <code>Server-Timing</code> response header.
+     * Asynchronous requests are authorized on another thread after the handler method returns, so they have no
+     * header.
+     *
+     * @param coffeeCanMetrics the metrics.
+     * @param serverTiming     <code>true</code> to add the <code>Server-Timing</code> header, <code>false</code>
+     *                         otherwise.
+     */
+    public CoffeeCanInterceptor(final CoffeeCanMetrics coffeeCanMetrics, final boolean serverTiming) {
+        this(coffeeCanMetrics, serverTiming, null);
+    }
+
+    /**
+     * Constructs an interceptor that records metrics, optionally reports a <code>Server-Timing</code> header, and
+     * audits decisions to an audit sink.
+     *
+     * @param coffeeCanMetrics the metrics.
+     * @param serverTiming     <code>true</code> to add the <code>Server-Timing</code> header, <code>false</code>
+     *                         otherwise.
+     * @param auditSink        the audit sink, or <code>null</code> if decisions are not audited.
+     */
+    public CoffeeCanInterceptor(final CoffeeCanMetrics coffeeCanMetrics, final boolean serverTiming,
+                                final AuditSink auditSink) {
+        super();
+
+        this.coffeeCanMetrics = coffeeCanMetrics;
+        this.serverTiming = serverTiming;
+        this.auditSink = auditSink;
+    }
 
     /**
      * {@inheritDoc}
@@ -35,6 +107,11 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
     @Override
     public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
                              final Object handler) throws Exception {
+        // Resources were retrieved before the request went asynchronous; do not retrieve them again on redispatch.
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
         if (handler instanceof HandlerMethod) {
             return preHandleHandlerMethod(request, response, (HandlerMethod) handler);
         }
@@ -42,6 +119,51 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A handler method listed in the <code>async</code> restriction must call
+     * {@link BaseResource#async(java.util.function.Supplier)} or
+     * {@link BaseResource#deferred(java.util.function.Supplier)} before it returns; otherwise its resources are never
+     * retrieved or authorized, and the retrieval that was deferred for it is discarded.
+     * </p>
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(final HttpServletRequest request, final HttpServletResponse response,
+                                               final Object handler) throws Exception {
+        final BaseResource<?, ?> bean = findBaseResource(handler);
+
+        if ((bean != null) && bean.isRetrievalPending()) {
+            logger.error("Asynchronous handler method " + ((HandlerMethod) handler).getMethod().getName() +
+                         " did not retrieve its resources; nothing was authorized");
+            bean.clearRetrieval();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clears the resources retrieved for the request, so that nothing is left behind on the servlet thread.
+     * </p>
+     */
+    @Override
+    public void afterCompletion(final HttpServletRequest request, final HttpServletResponse response,
+                                final Object handler, final Exception ex) throws Exception {
+        final BaseResource<?, ?> bean = findBaseResource(handler);
+
+        if (bean != null) {
+            bean.clearRetrieval();
+        }
+    }
+
+    private BaseResource<?, ?> findBaseResource(final Object handler) {
+        if ((handler instanceof HandlerMethod) && (((HandlerMethod) handler).getBean() instanceof BaseResource)) {
+            return (BaseResource<?, ?>) new CglibHelper(((HandlerMethod) handler).getBean()).getTargetObject();
+        }
+
+        return null;
+    }
+
     private List<String> extractPathVariables(final RequestMapping requestMapping) {
         if ((requestMapping != null) && (requestMapping.path().length > 0)) {
             if (requestMapping.path().length > 1) {
@@ -63,7 +185,7 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
     }
 
     private Map<String, String> findIdsInRequest(
-            final BaseResource bean,
+            final BaseResource<?, ?> bean,
             final RequestMapping controllerRequestMapping,
             final RequestMapping methodRequestMapping,
             final HttpServletRequest request) {
@@ -102,7 +224,8 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
     private boolean preHandleBaseResource(final HttpServletRequest request,
                                           final HttpServletResponse response,
                                           final HandlerMethod handler,
-                                          final BaseResource bean) throws CoffeeCanException {
+                                          final BaseResource<?, ?> bean,
+                                          final Decision decision) throws CoffeeCanException {
         final Class<?> klass;
         if (bean instanceof TargetClassAware) {
             klass = ((TargetClassAware) bean).getTargetClass();
@@ -112,6 +235,9 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
         final RequestMapping controllerRequestMapping = klass.getAnnotation(RequestMapping.class);
         final RequestMapping methodRequestMapping = handler.getMethodAnnotation(RequestMapping.class);
 
+        // Never authorize a request using anything retrieved for an earlier request on this thread.
+        bean.clearRetrieval();
+
         if ((controllerRequestMapping == null) && (methodRequestMapping == null)) {
             return true;
         }
@@ -122,22 +248,41 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
                 methodRequestMapping,
                 request);
 
-        if (!preHandleRequestMethod(handler, bean, request.getMethod(), ids)) {
-            return bean.respondToAccessDenied(response, handler.getMethod().getName(), request.getMethod(), ids);
+        final String method = request.getMethod();
+        final String batchParameter = request.getParameter("ids");
+        if (bean.isAsync(handler)) {
+            decision.deferred = true;
+            bean.deferRetrieval(handler, method, ids, () -> decision.complete(
+                    () -> preHandleRequestMethod(handler, bean, method, batchParameter, ids)));
+            return true;
+        }
+
+        if (!preHandleRequestMethod(handler, bean, method, batchParameter, ids)) {
+            return bean.respondToAccessDenied(response, handler.getMethod().getName(), method, ids);
         }
 
         return true;
     }
 
-    private boolean preHandleDelete(final HandlerMethod handler, final BaseResource bean,
+    private boolean preHandleDelete(final HandlerMethod handler, final BaseResource<?, ?> bean,
                                     final Map<String, String> ids) throws CoffeeCanException {
         return bean.retrieveSingle(handler, ids);
     }
 
     private boolean preHandleGet(final HandlerMethod handler,
-                                 final BaseResource bean,
+                                 final BaseResource<?, ?> bean,
+                                 final String batchParameter,
                                  final Map<String, String> ids) throws CoffeeCanException {
-        return ids.keySet().contains("id") ? bean.retrieveSingle(handler, ids) : bean.retrieveMultiple(handler, ids);
+        if (ids.keySet().contains("id")) {
+            return ids.get("id").contains(",") ? bean.retrieveBatch(handler, ids) : bean.retrieveSingle(handler, ids);
+
+        } else if ((batchParameter != null) && bean.isBatch(handler)) {
+            final Map<String, String> batchIds = new HashMap<>(ids);
+            batchIds.put("id", batchParameter);
+            return bean.retrieveBatch(handler, batchIds);
+        }
+
+        return bean.retrieveMultiple(handler, ids);
     }
 
     private boolean preHandleHandlerMethod(final HttpServletRequest request,
@@ -145,33 +290,63 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
                                            final HandlerMethod handler) throws CoffeeCanException {
         if (handler.getBean() instanceof BaseResource) {
             final CglibHelper helper = new CglibHelper(handler.getBean());
-            return preHandleBaseResource(request, response, handler, (BaseResource) helper.getTargetObject());
+            final BaseResource<?, ?> bean = (BaseResource<?, ?>) helper.getTargetObject();
+            final long start = coffeeCanMetrics.start();
+            final Decision decision = new Decision(request, bean.determineAction(handler), bean.getResourceClass());
+            Outcome outcome = Outcome.ERROR;
+
+            SqlStatementCounter.begin();
+            try {
+                final boolean handled = preHandleBaseResource(request, response, handler, bean, decision);
+                outcome = Outcome.of(handled);
+                return handled;
+
+            } catch (final AccessDeniedException e) {
+                outcome = Outcome.DENIED;
+                throw e;
+
+            } finally {
+                final long statements = SqlStatementCounter.end();
+
+                // The decision for an asynchronous request is recorded once its deferred retrieval completes.
+                if (!decision.deferred) {
+                    decision.record(outcome, start, statements);
+                }
+                if (serverTiming && !decision.deferred) {
+                    response.addHeader("Server-Timing", String.format(
+                            Locale.ROOT,
+                            "coffeecan;dur=%.3f;desc=\"%d statements\"",
+                            (coffeeCanMetrics.start() - start) / 1000000.0,
+                            statements));
+                }
+            }
         }
 
         return true;
     }
 
     // TODO: this method needs to be tested.
-    private boolean preHandlePost(final HandlerMethod handler, final BaseResource bean,
+    private boolean preHandlePost(final HandlerMethod handler, final BaseResource<?, ?> bean,
                                    final Map<String, String> ids) throws CoffeeCanException {
         return bean.retrieveContext(handler, ids);
     }
 
-    private boolean preHandlePatch(final HandlerMethod handler, final BaseResource bean,
+    private boolean preHandlePatch(final HandlerMethod handler, final BaseResource<?, ?> bean,
                                    final Map<String, String> ids) throws CoffeeCanException {
         return bean.retrieveSingle(handler, ids);
     }
 
-    private boolean preHandlePut(final HandlerMethod handler, final BaseResource bean,
+    private boolean preHandlePut(final HandlerMethod handler, final BaseResource<?, ?> bean,
                                  final Map<String, String> ids) throws CoffeeCanException {
         return bean.retrieveSingle(handler, ids);
     }
 
     private boolean preHandleRequestMethod(final HandlerMethod handler,
-                                           final BaseResource bean, final String method,
+                                           final BaseResource<?, ?> bean, final String method,
+                                           final String batchParameter,
                                            final Map<String, String> ids) throws CoffeeCanException {
         if ("GET".equalsIgnoreCase(method)) {
-            return preHandleGet(handler, bean, ids);
+            return preHandleGet(handler, bean, batchParameter, ids);
         } else if ("DELETE".equalsIgnoreCase(method)) {
             return preHandleDelete(handler, bean, ids);
         } else if ("PATCH".equalsIgnoreCase(method)) {
@@ -185,6 +360,60 @@ public class CoffeeCanInterceptor extends HandlerInterceptorAdapter {
         }
     }
 
+    /**
+     * Internal class representing the authorization decision for a request, which may be made on another thread if
+     * the retrieval is deferred.
+     */
+    private class Decision {
+
+        private final String principal;
+
+        private final String method;
+
+        private final String action;
+
+        private final Class<?> resourceClass;
+
+        private final Object ids;
+
+        private boolean deferred = false;
+
+        Decision(final HttpServletRequest request, final String action, final Class<?> resourceClass) {
+            this.principal = request.getRemoteUser();
+            this.method = request.getMethod();
+            this.action = action;
+            this.resourceClass = resourceClass;
+            this.ids = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        }
+
+        void record(final Outcome outcome, final long start, final long statements) {
+            coffeeCanMetrics.recordRequest(method, action, resourceClass, outcome, start);
+            coffeeCanMetrics.recordStatements(method, action, resourceClass, statements);
+            if (auditSink != null) {
+                auditSink.record(principal, method, action, resourceClass, ids, outcome);
+            }
+        }
+
+        Boolean complete(final Callable<Boolean> retrieval) throws Exception {
+            final long start = coffeeCanMetrics.start();
+            Outcome outcome = Outcome.ERROR;
+
+            SqlStatementCounter.begin();
+            try {
+                final boolean allowed = retrieval.call();
+                outcome = Outcome.of(allowed);
+                return allowed;
+
+            } catch (final AccessDeniedException e) {
+                outcome = Outcome.DENIED;
+                throw e;
+
+            } finally {
+                record(outcome, start, SqlStatementCounter.end());
+            }
+        }
+    }
+
     private class CglibHelper {
         private final Object proxied;
 
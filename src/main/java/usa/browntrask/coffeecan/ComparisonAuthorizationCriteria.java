@@ -3,11 +3,13 @@ package usa.browntrask.coffeecan;
 import org.reflections.Reflections;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.OrderColumn;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.ListJoin;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
@@ -25,10 +27,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 /**
  * Extended {@link usa.browntrask.coffeecan.AbstractAuthorizationCriteria} implementation that compares a field to a value.
+ * <p>
+ * The getter methods that navigate the field path are resolved once for each class of resource, when the criteria is
+ * verified or first matched, and reused after that.
+ * </p>
  *
  * @param <R> the type of resource matched by the criteria.
  * @author Ian Brown
@@ -41,6 +49,7 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
     private final String field;
     private final Operation operation;
     private final Object value;
+    private final ConcurrentMap<Class<?>, List<MethodMatch>> methodMatchesByClass = new ConcurrentHashMap<>();
 
     /**
      * Constructs an authorization criteria with the specified values.
@@ -100,6 +109,48 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
         return false;
     }
 
+    /**
+     * Returns the association paths navigated to reach the field. For example, <code>project.members[0].id</code>
+     * navigates <code>project</code> and <code>project.members</code>.
+     *
+     * @return the association paths, shortest first.
+     */
+    List<String> getAssociationPaths() {
+        final List<String> associationPaths = new ArrayList<>();
+        final String[] fieldNames = getField().split("\\.");
+        String path = null;
+
+        for (int idx = 0; idx < fieldNames.length - 1; ++idx) {
+            final int openBracket = fieldNames[idx].indexOf("[");
+            final String fieldName = (openBracket > -1) ? fieldNames[idx].substring(0, openBracket) : fieldNames[idx];
+            if (fieldName.isEmpty()) {
+                continue;
+            }
+
+            path = (path == null) ? fieldName : path + "." + fieldName;
+            associationPaths.add(path);
+        }
+
+        return associationPaths;
+    }
+
+    /**
+     * Returns the type of the field for the specified class of resource. If the field is a collection, this is the type
+     * of its elements.
+     *
+     * @param klass the class of resource.
+     * @return the type of the field, or <code>null</code> if the field path cannot be resolved for the class.
+     */
+    Class<?> getFieldType(final Class<?> klass) {
+        final List<MethodMatch> methodMatches = methodMatchesFor(klass);
+        final MethodMatch last = methodMatches.get(methodMatches.size() - 1);
+
+        if ((last.getMethod() == null) && !last.isOffset()) {
+            return null;
+        }
+        return last.getMethodKlass();
+    }
+
     public Class<R> getKlass() {
         return klass;
     }
@@ -116,6 +167,37 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
         return value;
     }
 
+    /**
+     * Can this comparison be expressed as a database query?
+     * <p>
+     * Comparisons against offsets (for example, <code>items[0].id</code>) can only be performed by the database if
+     * the offset is into a list with an {@link javax.persistence.OrderColumn}. Offsets into other lists or arrays can
+     * only be matched in memory.
+     * </p>
+     *
+     * @return <code>true</code> if the comparison can be performed by the database, <code>false</code> if it must be
+     * performed in memory.
+     */
+    boolean isDatabaseExpressible() {
+        if (!getField().contains("[")) {
+            return true;
+        }
+
+        final List<MethodMatch> methodMatches = methodMatchesFor(getKlass());
+        for (int idx = 0; idx < methodMatches.size(); ++idx) {
+            final MethodMatch methodMatch = methodMatches.get(idx);
+            if (methodMatch.getMethod() != null) {
+                continue;
+            }
+
+            if (!methodMatch.isOffset() || (idx == 0) || !methodMatches.get(idx - 1).isOrderedList()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * {inheritDoc}
      */
@@ -165,7 +247,7 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
         if (!getKlass().isAssignableFrom(klass)) {
             throw new MalformedAuthorizationCriteriaException("Cannot verify for " + klass + "; it is not a subclass of " + getKlass());
         }
-        final List<MethodMatch> methodMatches = buildMethodMatches(klass, getField());
+        final List<MethodMatch> methodMatches = methodMatchesFor(klass);
         verifyField(klass, methodMatches, 0);
     }
 
@@ -220,7 +302,7 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
                     "); it is not an instance of a " + getKlass());
         }
 
-        final List<MethodMatch> methodMatches = buildMethodMatches(object.getClass(), getField());
+        final List<MethodMatch> methodMatches = methodMatchesFor(object.getClass());
         return retrieveValue(object, methodMatches, 0, object.toString(), getKlass().getName());
     }
 
@@ -306,6 +388,18 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
         verifyField(methodMatch.getKlass(), methodMatches, fieldIndex + 1);
     }
 
+    private List<MethodMatch> methodMatchesFor(final Class<?> klass) {
+        final List<MethodMatch> methodMatches = methodMatchesByClass.get(klass);
+        if (methodMatches != null) {
+            return methodMatches;
+        }
+
+        // Resolved outside of the map so that concurrent resolutions do not block; the first to finish is kept.
+        final List<MethodMatch> resolvedMethodMatches = buildMethodMatches(klass, getField());
+        final List<MethodMatch> existingMethodMatches = methodMatchesByClass.putIfAbsent(klass, resolvedMethodMatches);
+        return (existingMethodMatches == null) ? resolvedMethodMatches : existingMethodMatches;
+    }
+
     private List<MethodMatch> buildMethodMatches(final Class<?> klass, final String fieldName) {
         final List<String> fieldList = Arrays.asList(getField().split("\\."));
         final List<MethodMatch> methodMatches = new ArrayList<>();
@@ -449,6 +543,50 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
             return nextFieldIndex;
         }
 
+        /**
+         * Returns the offset represented by this match.
+         *
+         * @return the offset.
+         */
+        public int getOffset() {
+            return Integer.parseInt(getFieldName().substring(1, getFieldName().length() - 1));
+        }
+
+        /**
+         * Is this match an offset into the value of the previous match?
+         *
+         * @return <code>true</code> if this is an offset, <code>false</code> if it is a field.
+         */
+        public boolean isOffset() {
+            return (getMethod() == null) && getFieldName().startsWith("[") && getFieldName().endsWith("]");
+        }
+
+        /**
+         * Does this match retrieve a list whose order is stored in the database using an
+         * {@link javax.persistence.OrderColumn}?
+         *
+         * @return <code>true</code> if the list order is stored, <code>false</code> otherwise.
+         */
+        public boolean isOrderedList() {
+            if ((getMethod() == null) || !List.class.isAssignableFrom(getMethod().getReturnType())) {
+                return false;
+            } else if (getMethod().isAnnotationPresent(OrderColumn.class)) {
+                return true;
+            }
+
+            for (Class<?> fieldKlass = getMethod().getDeclaringClass();
+                 fieldKlass != null;
+                 fieldKlass = fieldKlass.getSuperclass()) {
+                try {
+                    return fieldKlass.getDeclaredField(getFieldName()).isAnnotationPresent(OrderColumn.class);
+                } catch (final NoSuchFieldException e) {
+                    // Try the superclass.
+                }
+            }
+
+            return false;
+        }
+
         public Class<?> getMethodKlass() {
             if (getMethod() == null) {
                 return getKlass();
@@ -489,42 +627,77 @@ class ComparisonAuthorizationCriteria<R> extends AbstractAuthorizationCriteria<R
         @Override
         public Predicate toPredicate(final Root<R> root, final CriteriaQuery<?> criteriaQuery,
                                      final CriteriaBuilder criteriaBuilder) {
-            final Path<String> fieldPath = buildFieldPath(root);
+            final List<Predicate> offsetPredicates = new ArrayList<>();
+            final Path<String> fieldPath = buildFieldPath(root, criteriaBuilder, offsetPredicates);
+            final Predicate predicate;
 
             switch (getOperation()) {
                 case EQUALS:
                     if (getValue() == null) {
-                        return criteriaBuilder.isNull(fieldPath);
+                        predicate = criteriaBuilder.isNull(fieldPath);
+                    } else {
+                        predicate = criteriaBuilder.equal(fieldPath, getValue().toString());
                     }
-                    return criteriaBuilder.equal(fieldPath, getValue().toString());
+                    break;
 
                 default:
                     throw new UnsupportedOperationException("Not implemented yet");
             }
+
+            if (offsetPredicates.isEmpty()) {
+                return predicate;
+            }
+
+            offsetPredicates.add(predicate);
+            return criteriaBuilder.and(offsetPredicates.toArray(new Predicate[offsetPredicates.size()]));
         }
 
-        private Path<String> buildFieldPath(final Root<R> root) {
-            final List<MethodMatch> methodMatches = buildMethodMatches(getKlass(), getField());
-            return buildFieldMatchPath(root, methodMatches, 0);
+        private Path<String> buildFieldPath(final Root<R> root, final CriteriaBuilder criteriaBuilder,
+                                            final List<Predicate> offsetPredicates) {
+            final List<MethodMatch> methodMatches = methodMatchesFor(getKlass());
+            return buildFieldMatchPath(root, criteriaBuilder, methodMatches, 0, offsetPredicates);
         }
 
-        private Path<String> buildFieldMatchPath(final From<?, ?> from, final List<MethodMatch> methodMatches, final int fieldIndex) {
+        private Path<String> buildFieldMatchPath(final From<?, ?> from, final CriteriaBuilder criteriaBuilder,
+                                                 final List<MethodMatch> methodMatches, final int fieldIndex,
+                                                 final List<Predicate> offsetPredicates) {
             final MethodMatch methodMatch = methodMatches.get(fieldIndex);
             final String fieldName = methodMatch.getFieldName();
             final Method method = methodMatch.getMethod();
             if (method == null) {
-                if ((fieldName.startsWith("[") && fieldName.endsWith("]"))) {
-                    throw new UnsupportedOperationException("Searching by offset not yet implemented for " + getField());
+                if (methodMatch.isOffset()) {
+                    throw new UnsupportedOperationException(
+                            "Searching by offset requires a list with an order column for " + getField());
                 } else {
                     throw new IllegalStateException("Malformed comparison authorization criteria");
                 }
             }
 
-            if (fieldIndex + 1 == methodMatches.size()) {
+            final boolean offsetNext = (fieldIndex + 1 < methodMatches.size()) &&
+                                       methodMatches.get(fieldIndex + 1).isOffset();
+            if (offsetNext) {
+                if (!methodMatch.isOrderedList()) {
+                    throw new UnsupportedOperationException(
+                            "Searching by offset requires a list with an order column for " + getField());
+                }
+
+                final ListJoin<?, ?> join = from.joinList(fieldName, JoinType.INNER);
+                offsetPredicates.add(criteriaBuilder.equal(join.index(),
+                                                           methodMatches.get(fieldIndex + 1).getOffset()));
+                if (fieldIndex + 2 == methodMatches.size()) {
+                    // The element is compared like the value of any other field, which is typed as a string here.
+                    @SuppressWarnings("unchecked")
+                    final Path<String> elementPath = (Path<String>) join;
+                    return elementPath;
+                }
+                return buildFieldMatchPath(join, criteriaBuilder, methodMatches, fieldIndex + 2, offsetPredicates);
+
+            } else if (fieldIndex + 1 == methodMatches.size()) {
                 return from.get(fieldName);
+
             } else {
                 final Join<?, ?> join = from.join(fieldName, JoinType.INNER);
-                return buildFieldMatchPath(join, methodMatches, fieldIndex + 1);
+                return buildFieldMatchPath(join, criteriaBuilder, methodMatches, fieldIndex + 1, offsetPredicates);
             }
         }
     }
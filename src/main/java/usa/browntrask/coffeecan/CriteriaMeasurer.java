@@ -0,0 +1,57 @@
+package usa.browntrask.coffeecan;
+
+/**
+ * Measures the size and depth of {@link usa.browntrask.coffeecan.AuthorizationCriteria} trees.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/18
+ */
+class CriteriaMeasurer {
+
+    /**
+     * Counts the nodes in the authorization criteria.
+     *
+     * @param <R>                   the type of resource.
+     * @param authorizationCriteria the authorization criteria, which may be <code>null</code>.
+     * @return the number of nodes.
+     */
+    <R> int countNodes(final AuthorizationCriteria<R> authorizationCriteria) {
+        if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            return 1 + countNodes(((NotAuthorizationCriteria<R>) authorizationCriteria).getChild());
+
+        } else if (authorizationCriteria instanceof AbstractJoinAuthorizationCriteria) {
+            int count = 1;
+            for (final AuthorizationCriteria<R> joinedCriteria :
+                    ((AbstractJoinAuthorizationCriteria<R>) authorizationCriteria).getJoinedCriteria()) {
+                count += countNodes(joinedCriteria);
+            }
+            return count;
+        }
+
+        return (authorizationCriteria == null) ? 0 : 1;
+    }
+
+    /**
+     * Measures the depth of the authorization criteria.
+     *
+     * @param <R>                   the type of resource.
+     * @param authorizationCriteria the authorization criteria, which may be <code>null</code>.
+     * @return the number of nodes on the longest path from the root to a leaf.
+     */
+    <R> int measureDepth(final AuthorizationCriteria<R> authorizationCriteria) {
+        if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            return 1 + measureDepth(((NotAuthorizationCriteria<R>) authorizationCriteria).getChild());
+
+        } else if (authorizationCriteria instanceof AbstractJoinAuthorizationCriteria) {
+            int depth = 0;
+            for (final AuthorizationCriteria<R> joinedCriteria :
+                    ((AbstractJoinAuthorizationCriteria<R>) authorizationCriteria).getJoinedCriteria()) {
+                depth = Math.max(depth, measureDepth(joinedCriteria));
+            }
+            return 1 + depth;
+        }
+
+        return (authorizationCriteria == null) ? 0 : 1;
+    }
+}
@@ -0,0 +1,44 @@
+package usa.browntrask.coffeecan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for an authorization decision made by {@link usa.browntrask.coffeecan.Capability#allows}.
+ * <p>
+ * The event is disabled by default; enable it in the recording settings to record it.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/11
+ */
+@Name("usa.browntrask.coffeecan.Decision")
+@Label("Authorization Decision")
+@Description("Authorization decision for an action on a resource")
+@Category("CoffeeCan")
+@Enabled(false)
+@StackTrace(false)
+class DecisionEvent extends Event {
+
+    @Label("Action")
+    String action;
+
+    @Label("Resource Class")
+    String resourceClass;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Criteria Size")
+    @Description("Number of authorization criteria nodes for the action")
+    int criteriaSize;
+
+    @Label("Field Paths")
+    String fieldPaths;
+}
@@ -0,0 +1,265 @@
+package usa.browntrask.coffeecan;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trace of how a {@link usa.browntrask.coffeecan.Capability} decided whether an action can be performed on a resource.
+ * <p>
+ * The trace lists the controlling actions that were considered for the requested action and, for each controlling
+ * action that has authorization criteria for the resource, a tree of {@link Node nodes} mirroring those criteria.
+ * Each node records its result, how long it took to evaluate and whether it short-circuited. Nodes that were not
+ * evaluated because an earlier sibling already decided the result have no result.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/10
+ */
+public class DecisionTrace {
+
+    private final String action;
+    private final String actualAction;
+    private final List<String> controllingActions;
+    private final List<Node> actionNodes;
+    private final boolean allowed;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a decision trace.
+     *
+     * @param action             the requested action.
+     * @param actualAction       the action after resolving any alias.
+     * @param controllingActions the controlling actions considered.
+     * @param actionNodes        the nodes for the controlling actions with authorization criteria.
+     * @param allowed            the decision.
+     * @param elapsedNanos       the time taken to make the decision, in nanoseconds.
+     */
+    DecisionTrace(final String action, final String actualAction, final List<String> controllingActions,
+                  final List<Node> actionNodes, final boolean allowed, final long elapsedNanos) {
+        super();
+
+        this.action = action;
+        this.actualAction = actualAction;
+        this.controllingActions = Collections.unmodifiableList(controllingActions);
+        this.actionNodes = Collections.unmodifiableList(actionNodes);
+        this.allowed = allowed;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the requested action.
+     *
+     * @return the action.
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Returns the node for each controlling action that has authorization criteria for the resource, in the order
+     * they were considered. The first node to be allowed short-circuits the remainder.
+     * <p>
+     * The returned list cannot be modified.
+     * </p>
+     *
+     * @return the action nodes.
+     */
+    public List<Node> getActionNodes() {
+        return actionNodes;
+    }
+
+    /**
+     * Returns the requested action after resolving any alias.
+     *
+     * @return the actual action.
+     */
+    public String getActualAction() {
+        return actualAction;
+    }
+
+    /**
+     * Returns the controlling actions that were considered: the actual action, {@link Capability#MANAGE} and any
+     * registered actions that include the actual action.
+     * <p>
+     * The returned list cannot be modified.
+     * </p>
+     *
+     * @return the controlling actions.
+     */
+    public List<String> getControllingActions() {
+        return controllingActions;
+    }
+
+    /**
+     * Returns the time taken to make the decision, including the tracing overhead.
+     *
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Was the action allowed?
+     *
+     * @return <code>true</code> if the action was allowed, <code>false</code> if it was denied.
+     */
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    /**
+     * Was the decision made using the default access because there are no authorization criteria for the resource?
+     *
+     * @return <code>true</code> if the default access decided, <code>false</code> if the criteria did.
+     */
+    public boolean isDefaultDecision() {
+        return actionNodes.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(action);
+        if (!action.equals(actualAction)) {
+            sb.append(" (").append(actualAction).append(")");
+        }
+        sb.append(allowed ? " allowed" : " denied")
+                .append(isDefaultDecision() ? " by default" : "")
+                .append(" in ").append(TimeUnit.NANOSECONDS.toMicros(elapsedNanos)).append("us")
+                .append(" considering ").append(controllingActions);
+        for (final Node actionNode : actionNodes) {
+            actionNode.append(sb, 1);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * A node in the trace, representing either a controlling action or one of its authorization criteria.
+     */
+    public static class Node {
+
+        private final String description;
+        private final Boolean result;
+        private final long elapsedNanos;
+        private final boolean shortCircuited;
+        private final List<Node> children;
+
+        /**
+         * Constructs a node.
+         *
+         * @param description    the description of the node.
+         * @param result         the result, or <code>null</code> if the node was not evaluated.
+         * @param elapsedNanos   the time taken to evaluate the node, in nanoseconds.
+         * @param shortCircuited <code>true</code> if the result was decided before all of the children were evaluated.
+         * @param children       the child nodes.
+         */
+        Node(final String description, final Boolean result, final long elapsedNanos, final boolean shortCircuited,
+             final List<Node> children) {
+            super();
+
+            this.description = description;
+            this.result = result;
+            this.elapsedNanos = elapsedNanos;
+            this.shortCircuited = shortCircuited;
+            this.children = Collections.unmodifiableList(children);
+        }
+
+        /**
+         * Returns the child nodes.
+         * <p>
+         * The returned list cannot be modified.
+         * </p>
+         *
+         * @return the child nodes.
+         */
+        public List<Node> getChildren() {
+            return children;
+        }
+
+        /**
+         * Returns the description of the node: the controlling action, the operator of a join or NOT criteria, or the
+         * comparison made.
+         *
+         * @return the description.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Returns the time taken to evaluate the node, including its children.
+         *
+         * @return the elapsed time in nanoseconds, or <code>0</code> if the node was not evaluated.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the result of evaluating the node.
+         *
+         * @return the result, or <code>null</code> if the node was not evaluated.
+         */
+        public Boolean getResult() {
+            return result;
+        }
+
+        /**
+         * Was the node evaluated?
+         *
+         * @return <code>true</code> if the node was evaluated, <code>false</code> if it was skipped.
+         */
+        public boolean isEvaluated() {
+            return result != null;
+        }
+
+        /**
+         * Was the result decided before all of the children were evaluated?
+         *
+         * @return <code>true</code> if some children were skipped, <code>false</code> otherwise.
+         */
+        public boolean isShortCircuited() {
+            return shortCircuited;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+
+            append(sb, 0);
+            return sb.toString().trim();
+        }
+
+        private void append(final StringBuilder sb, final int depth) {
+            sb.append(System.lineSeparator());
+            for (int indent = 0; indent < depth; ++indent) {
+                sb.append("  ");
+            }
+
+            sb.append(description).append(": ");
+            if (!isEvaluated()) {
+                sb.append("skipped");
+            } else {
+                sb.append(result).append(" in ").append(TimeUnit.NANOSECONDS.toMicros(elapsedNanos)).append("us");
+                if (shortCircuited) {
+                    sb.append(" (short-circuited)");
+                }
+            }
+
+            for (final Node child : children) {
+                child.append(sb, depth + 1);
+            }
+        }
+    }
+}
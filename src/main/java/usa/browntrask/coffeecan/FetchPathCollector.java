@@ -0,0 +1,49 @@
+package usa.browntrask.coffeecan;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the association paths that will be navigated when {@link usa.browntrask.coffeecan.AuthorizationCriteria}
+ * is matched against a resource in memory.
+ * <p>
+ * Loading a resource with these paths fetched allows the criteria to be matched without lazily loading each
+ * association along the way.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/08
+ */
+class FetchPathCollector {
+
+    /**
+     * Collects the association paths for the authorization criteria.
+     *
+     * @param <R>                   the type of resource.
+     * @param authorizationCriteria the authorization criteria, which may be <code>null</code>.
+     * @return the paths, each of which is a dotted list of field names starting at the resource.
+     */
+    <R> Set<String> collect(final AuthorizationCriteria<R> authorizationCriteria) {
+        final Set<String> fetchPaths = new LinkedHashSet<>();
+
+        collectPaths(authorizationCriteria, fetchPaths);
+        return Collections.unmodifiableSet(fetchPaths);
+    }
+
+    private <R> void collectPaths(final AuthorizationCriteria<R> authorizationCriteria, final Set<String> fetchPaths) {
+        if (authorizationCriteria instanceof ComparisonAuthorizationCriteria) {
+            fetchPaths.addAll(((ComparisonAuthorizationCriteria<R>) authorizationCriteria).getAssociationPaths());
+
+        } else if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            collectPaths(((NotAuthorizationCriteria<R>) authorizationCriteria).getChild(), fetchPaths);
+
+        } else if (authorizationCriteria instanceof AbstractJoinAuthorizationCriteria) {
+            for (final AuthorizationCriteria<R> joinedCriteria :
+                    ((AbstractJoinAuthorizationCriteria<R>) authorizationCriteria).getJoinedCriteria()) {
+                collectPaths(joinedCriteria, fetchPaths);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package usa.browntrask.coffeecan;
+
+import org.springframework.util.ClassUtils;
+import usa.browntrask.coffeecan.metrics.Outcome;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Emits Java Flight Recorder events for authorization decisions, resource loads and specification builds.
+ * <p>
+ * The events are only created if the running JVM provides the <code>jdk.jfr</code> API, and are only committed if
+ * they have been enabled for a recording. The events are disabled by default, so when nothing is recording them the
+ * only cost is checking that they are disabled. The attributes of an event are only computed if it is committed.
+ * </p>
+ * <p>
+ * Each <code>begin</code> method returns a handle to pass to the matching <code>end</code> method; the handle is
+ * <code>null</code> if the event is not being recorded.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/11
+ */
+final class FlightRecorderEvents {
+
+    private static final boolean AVAILABLE = ClassUtils.isPresent("jdk.jfr.Event",
+                                                                  FlightRecorderEvents.class.getClassLoader());
+    private static final CriteriaMeasurer CRITERIA_MEASURER = new CriteriaMeasurer();
+
+    private FlightRecorderEvents() {
+        super();
+    }
+
+    /**
+     * Begins an authorization decision event.
+     *
+     * @return the handle for the event.
+     */
+    static Object beginDecision() {
+        return AVAILABLE ? Recorder.beginDecision() : null;
+    }
+
+    /**
+     * Begins a resource load event.
+     *
+     * @return the handle for the event.
+     */
+    static Object beginLoad() {
+        return AVAILABLE ? Recorder.beginLoad() : null;
+    }
+
+    /**
+     * Begins a specification build event.
+     *
+     * @return the handle for the event.
+     */
+    static Object beginSpecification() {
+        return AVAILABLE ? Recorder.beginSpecification() : null;
+    }
+
+    /**
+     * Ends an authorization decision event, committing it if it is being recorded.
+     *
+     * @param event                 the handle for the event.
+     * @param action                the action.
+     * @param resourceClass         the class of resource.
+     * @param outcome               the outcome of the decision.
+     * @param authorizationCriteria the authorization criteria, or <code>null</code> if there were none.
+     */
+    static void endDecision(final Object event, final String action, final Class<?> resourceClass,
+                            final Outcome outcome, final AuthorizationCriteria<?> authorizationCriteria) {
+        if (event != null) {
+            Recorder.endDecision(event, action, resourceClass, outcome, authorizationCriteria);
+        }
+    }
+
+    /**
+     * Ends a resource load event, committing it if it is being recorded.
+     *
+     * @param event         the handle for the event.
+     * @param action        the action.
+     * @param resourceClass the class of resource.
+     * @param ids           the identifiers of the resources.
+     * @param fetchPaths    the association paths fetched with the resources.
+     * @param loaded        the number of resources loaded.
+     */
+    static void endLoad(final Object event, final String action, final Class<?> resourceClass, final Object ids,
+                        final Collection<String> fetchPaths, final int loaded) {
+        if (event != null) {
+            Recorder.endLoad(event, action, resourceClass, ids, fetchPaths, loaded);
+        }
+    }
+
+    /**
+     * Ends a specification build event, committing it if it is being recorded.
+     *
+     * @param event                 the handle for the event.
+     * @param action                the action.
+     * @param resourceClass         the class of resource.
+     * @param authorizationCriteria the authorization criteria, or <code>null</code> if the build failed.
+     * @param exact                 <code>true</code> if the database can evaluate all of the criteria.
+     */
+    static void endSpecification(final Object event, final String action, final Class<?> resourceClass,
+                                 final AuthorizationCriteria<?> authorizationCriteria, final boolean exact) {
+        if (event != null) {
+            Recorder.endSpecification(event, action, resourceClass, authorizationCriteria, exact);
+        }
+    }
+
+    private static <R> void collectFieldPaths(final AuthorizationCriteria<R> authorizationCriteria,
+                                              final Set<String> fieldPaths) {
+        if (authorizationCriteria instanceof ComparisonAuthorizationCriteria) {
+            fieldPaths.add(((ComparisonAuthorizationCriteria<R>) authorizationCriteria).getField());
+
+        } else if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            collectFieldPaths(((NotAuthorizationCriteria<R>) authorizationCriteria).getChild(), fieldPaths);
+
+        } else if (authorizationCriteria instanceof AbstractJoinAuthorizationCriteria) {
+            for (final AuthorizationCriteria<R> joinedCriteria :
+                    ((AbstractJoinAuthorizationCriteria<R>) authorizationCriteria).getJoinedCriteria()) {
+                collectFieldPaths(joinedCriteria, fieldPaths);
+            }
+        }
+    }
+
+    private static String describeFieldPaths(final AuthorizationCriteria<?> authorizationCriteria) {
+        final Set<String> fieldPaths = new LinkedHashSet<>();
+
+        collectFieldPaths(authorizationCriteria, fieldPaths);
+        return String.join(",", fieldPaths);
+    }
+
+    private static String describeResourceClass(final Class<?> resourceClass) {
+        return (resourceClass == null) ? null : ClassUtils.getUserClass(resourceClass).getName();
+    }
+
+    /**
+     * Internal class that refers to the event classes, so that they are only loaded if the flight recorder API is
+     * available.
+     */
+    private static class Recorder {
+
+        static Object beginDecision() {
+            final DecisionEvent event = new DecisionEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+
+            event.begin();
+            return event;
+        }
+
+        static Object beginLoad() {
+            final LoadEvent event = new LoadEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+
+            event.begin();
+            return event;
+        }
+
+        static Object beginSpecification() {
+            final SpecificationEvent event = new SpecificationEvent();
+            if (!event.isEnabled()) {
+                return null;
+            }
+
+            event.begin();
+            return event;
+        }
+
+        static void endDecision(final Object handle, final String action, final Class<?> resourceClass,
+                                final Outcome outcome, final AuthorizationCriteria<?> authorizationCriteria) {
+            final DecisionEvent event = (DecisionEvent) handle;
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.action = action;
+                event.resourceClass = describeResourceClass(resourceClass);
+                event.outcome = outcome.getTag();
+                event.criteriaSize = CRITERIA_MEASURER.countNodes(authorizationCriteria);
+                event.fieldPaths = describeFieldPaths(authorizationCriteria);
+                event.commit();
+            }
+        }
+
+        static void endLoad(final Object handle, final String action, final Class<?> resourceClass, final Object ids,
+                            final Collection<String> fetchPaths, final int loaded) {
+            final LoadEvent event = (LoadEvent) handle;
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.action = action;
+                event.resourceClass = describeResourceClass(resourceClass);
+                event.ids = String.valueOf(ids);
+                event.fetchPaths = String.join(",", fetchPaths);
+                event.loaded = loaded;
+                event.commit();
+            }
+        }
+
+        static void endSpecification(final Object handle, final String action, final Class<?> resourceClass,
+                                     final AuthorizationCriteria<?> authorizationCriteria, final boolean exact) {
+            final SpecificationEvent event = (SpecificationEvent) handle;
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.action = action;
+                event.resourceClass = describeResourceClass(resourceClass);
+                event.criteriaSize = CRITERIA_MEASURER.countNodes(authorizationCriteria);
+                event.fieldPaths = describeFieldPaths(authorizationCriteria);
+                event.exact = exact;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package usa.browntrask.coffeecan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for loading a resource or parent by {@link usa.browntrask.coffeecan.BaseResource} or
+ * {@link usa.browntrask.coffeecan.BaseChildResource}.
+ * <p>
+ * The event is disabled by default; enable it in the recording settings to record it.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/11
+ */
+@Name("usa.browntrask.coffeecan.Load")
+@Label("Resource Load")
+@Description("Load of the resources or parent for a handler method")
+@Category("CoffeeCan")
+@Enabled(false)
+@StackTrace(false)
+class LoadEvent extends Event {
+
+    @Label("Action")
+    String action;
+
+    @Label("Resource Class")
+    String resourceClass;
+
+    @Label("Identifiers")
+    String ids;
+
+    @Label("Fetch Paths")
+    String fetchPaths;
+
+    @Label("Loaded")
+    @Description("Number of resources loaded")
+    int loaded;
+}
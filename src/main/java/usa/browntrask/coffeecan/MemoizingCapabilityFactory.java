@@ -0,0 +1,201 @@
+package usa.browntrask.coffeecan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of {@link usa.browntrask.coffeecan.CapabilityFactory} that builds a
+ * {@link usa.browntrask.coffeecan.SharedCapability} from the current policy of a
+ * {@link usa.browntrask.coffeecan.PolicyHolder} once for each set of roles and reuses it.
+ * <p>
+ * Capabilities are cached by their role set: the distinct role names in sorted order, which is also the order in
+ * which the templates are applied. If several threads ask for the capability of a role set that is not cached, it is
+ * built once, by the first of them, and the others wait for it. A capability that cannot be built is not cached, so
+ * it is built again on the next request.
+ * </p>
+ * <p>
+ * Each cached capability records the generation of the policy from which it was built. The cache is cleared when a
+ * new policy is published, and a capability from an older generation is not returned to requests that start after
+ * that. A capability that was being built while the policy was reloaded is still returned to the thread building it
+ * and to the threads already waiting for it. Once the cache is full, the capabilities used least recently are removed.
+ * </p>
+ * <p>
+ * If building a capability fails with an {@link Error}, the threads waiting for it fail as well and the error is
+ * thrown again to the thread that was building it.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/28
+ */
+public class MemoizingCapabilityFactory implements CapabilityFactory {
+
+    private final PolicyHolder policyHolder;
+    private final int maximumSize;
+    private final Map<List<String>, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a capability factory.
+     *
+     * @param policyHolder the holder of the policy from which capabilities are built.
+     * @param maximumSize  the maximum number of role sets for which capabilities are cached.
+     */
+    public MemoizingCapabilityFactory(final PolicyHolder policyHolder, final int maximumSize) {
+        super();
+
+        this.policyHolder = policyHolder;
+        this.maximumSize = Math.max(1, maximumSize);
+        policyHolder.addListener(generation -> invalidateAll());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SharedCapability getCapability(final Collection<String> roles) throws AuthorizationCriteriaException {
+        final List<String> roleSet = canonicalize(roles);
+
+        while (true) {
+            final PolicyHolder.Generation generation = policyHolder.current();
+            final Entry entry = entries.get(roleSet);
+
+            if ((entry != null) && (entry.generation == generation.getNumber())) {
+                hits.increment();
+                entry.lastUsed = System.nanoTime();
+                return await(roleSet, entry);
+            }
+
+            if (entry != null) {
+                // Built from an older policy; replace it, unless another thread already has.
+                entries.remove(roleSet, entry);
+                continue;
+            }
+
+            final Entry createdEntry = new Entry(generation.getNumber());
+            if (entries.size() >= maximumSize) {
+                evict();
+            }
+            if (entries.putIfAbsent(roleSet, createdEntry) != null) {
+                continue;
+            }
+
+            misses.increment();
+            build(roleSet, generation, createdEntry);
+            return await(roleSet, createdEntry);
+        }
+    }
+
+    /**
+     * Returns the number of times a cached capability was found, including capabilities that were still being built.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the maximum number of role sets for which capabilities are cached.
+     *
+     * @return the maximum size.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the number of times a capability had to be built.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Removes all of the cached capabilities.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of role sets for which capabilities are cached, including any that are being built.
+     *
+     * @return the number of role sets.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private SharedCapability await(final List<String> roleSet, final Entry entry)
+            throws AuthorizationCriteriaException {
+        try {
+            return entry.capability.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AuthorizationCriteriaException) {
+                throw (AuthorizationCriteriaException) cause;
+            }
+
+            throw new AuthorizationCriteriaException("Cannot build the capability for roles " + roleSet, cause);
+        }
+    }
+
+    private void build(final List<String> roleSet, final PolicyHolder.Generation generation, final Entry entry) {
+        try {
+            final SharedCapability capability = generation.getPolicy().share(roleSet);
+
+            CapabilityRegistry.global().register(capability);
+            entry.capability.complete(capability);
+        } catch (final PolicyException | RegisterActionException | RuntimeException e) {
+            entries.remove(roleSet, entry);
+            entry.capability.completeExceptionally(
+                    new AuthorizationCriteriaException("Cannot build the capability for roles " + roleSet, e));
+        } catch (final Error e) {
+            // Never leave the entry incomplete, or every later request for the role set would wait forever.
+            entries.remove(roleSet, entry);
+            entry.capability.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private List<String> canonicalize(final Collection<String> roles) {
+        return Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(roles)));
+    }
+
+    private void evict() {
+        while (entries.size() >= maximumSize) {
+            entries.entrySet()
+                    .stream()
+                    .min((first, second) -> Long.compare(first.getValue().lastUsed, second.getValue().lastUsed))
+                    .ifPresent(entry -> entries.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Internal class representing a capability that has been built, or is being built, for a role set.
+     */
+    private static class Entry {
+
+        private final long generation;
+
+        private final CompletableFuture<SharedCapability> capability = new CompletableFuture<>();
+
+        private volatile long lastUsed = System.nanoTime();
+
+        Entry(final long generation) {
+            this.generation = generation;
+        }
+    }
+}
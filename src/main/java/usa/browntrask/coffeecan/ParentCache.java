@@ -0,0 +1,77 @@
+package usa.browntrask.coffeecan;
+
+/**
+ * Cache of the authorization decisions made for parent resources, used by
+ * {@link usa.browntrask.coffeecan.BaseChildResource} to avoid reauthorizing the parent on each request.
+ * <p>
+ * Only decisions are cached. Each request still loads its parent in its own persistence context, so a parent is never
+ * shared between requests, but when a decision is cached the parent is loaded without the associations needed to
+ * make it and the authorization criteria are not evaluated.
+ * </p>
+ * <p>
+ * Decisions are cached under the identifier and version of the parent, and under the
+ * {@link usa.browntrask.coffeecan.Capability#getDecisionKey() decision key} of the capability that made them. A
+ * decision made for one version of the parent is never used for another. A capability that is changed after it has
+ * been used must not be reused, or the cache must be invalidated. Capabilities built by a
+ * {@link usa.browntrask.coffeecan.CapabilityFactory} are shared by every request with the same roles, so their
+ * decisions are shared too.
+ * </p>
+ * <p>
+ * Changes that do not change the version of the parent, including every change to a parent that is not versioned,
+ * are seen through the {@link usa.browntrask.coffeecan.ParentCacheInvalidator}: it invalidates the decisions for a
+ * parent when the parent is updated or deleted, when one of its collections changes, and when an entity that refers
+ * to it is inserted, updated, or deleted. Changes further away from the parent, or made without Hibernate, are only
+ * seen once the decisions expire.
+ * </p>
+ *
+ * @param <P> the type of parent class.
+ * @param <J> the type of parent identifier class.
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/14
+ */
+public interface ParentCache<P, J> {
+
+    /**
+     * Returns the parent class whose decisions are cached.
+     *
+     * @return the parent class.
+     */
+    Class<P> getParentClass();
+
+    /**
+     * Returns the cached authorization decision for a version of the parent.
+     *
+     * @param id         the identifier of the parent.
+     * @param version    the version of the parent or <code>null</code> if it is not versioned.
+     * @param action     the action authorized.
+     * @param capability the capability making the decision.
+     * @return <code>true</code> if the action was allowed, <code>false</code> if it was denied, or <code>null</code> if
+     * there is no cached decision.
+     */
+    Boolean getDecision(J id, Object version, String action, Capability capability);
+
+    /**
+     * Removes all of the cached decisions.
+     */
+    void invalidateAll();
+
+    /**
+     * Removes the decisions made for a parent.
+     *
+     * @param id the identifier of the parent.
+     */
+    void invalidate(Object id);
+
+    /**
+     * Caches an authorization decision for a version of the parent. Decisions cached for any other version of the
+     * parent are discarded.
+     *
+     * @param id         the identifier of the parent.
+     * @param version    the version of the parent or <code>null</code> if it is not versioned.
+     * @param action     the action authorized.
+     * @param capability the capability that made the decision.
+     * @param allowed    <code>true</code> if the action was allowed, <code>false</code> if it was denied.
+     */
+    void putDecision(J id, Object version, String action, Capability capability, boolean allowed);
+}
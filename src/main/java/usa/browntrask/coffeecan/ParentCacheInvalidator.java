@@ -0,0 +1,276 @@
+package usa.browntrask.coffeecan;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnit;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate event listener that invalidates {@link usa.browntrask.coffeecan.ParentCache} entries when the parents
+ * change.
+ * <p>
+ * The decisions for a parent are invalidated when the parent is updated or deleted, when one of its collections is
+ * changed, and when an entity that refers to it through a to-one association is inserted, updated, or deleted, or
+ * changed to refer to another parent.
+ * </p>
+ * <p>
+ * Entries are invalidated after the transaction completes, so that a request running between the flush and the
+ * commit cannot cache a decision made for the old state of the parent again.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/14
+ */
+@Component
+public class ParentCacheInvalidator
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener,
+                   PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+                   PostCollectionRemoveEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Logger logger = LoggerFactory.getLogger(getClass());
+
+    @PersistenceUnit
+    private transient EntityManagerFactory entityManagerFactory;
+
+    private final transient Set<ParentCache<?, ?>> parentCaches = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Registers this listener with Hibernate.
+     */
+    @PostConstruct
+    public void registerListener() {
+        final EventListenerRegistry eventListenerRegistry;
+
+        try {
+            eventListenerRegistry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry()
+                    .getService(EventListenerRegistry.class);
+        } catch (final PersistenceException e) {
+            logger.warn("Parent caches will not be invalidated; the persistence provider is not Hibernate", e);
+            return;
+        }
+
+        eventListenerRegistry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        eventListenerRegistry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        eventListenerRegistry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        eventListenerRegistry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        eventListenerRegistry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+        eventListenerRegistry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+    }
+
+    /**
+     * Returns the parent caches that have been registered.
+     * <p>
+     * The returned set cannot be modified.
+     * </p>
+     *
+     * @return the parent caches.
+     */
+    public Set<ParentCache<?, ?>> getParentCaches() {
+        return Collections.unmodifiableSet(parentCaches);
+    }
+
+    /**
+     * Removes all of the cached decisions from every registered parent cache, for example when the
+     * policy from which capabilities are built changes.
+     */
+    public void invalidateAll() {
+        for (final ParentCache<?, ?> parentCache : parentCaches) {
+            parentCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Registers a parent cache to be invalidated. Registering the same cache more than once has no effect.
+     *
+     * @param parentCache the parent cache.
+     */
+    public void register(final ParentCache<?, ?> parentCache) {
+        parentCaches.add(parentCache);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        invalidate(event.getPersister(), event.getId());
+        invalidateReferences(event.getPersister(), event.getDeletedState(), event.getSession());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostDeleteCommitFailed(final PostDeleteEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        invalidateReferences(event.getPersister(), event.getState(), event.getSession());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostInsertCommitFailed(final PostInsertEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        invalidate(event.getPersister(), event.getId());
+        invalidateReferences(event.getPersister(), event.getOldState(), event.getSession());
+        invalidateReferences(event.getPersister(), event.getState(), event.getSession());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostUpdateCommitFailed(final PostUpdateEvent event) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean requiresPostCommitHanding(final EntityPersister persister) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+        invalidateOwner(event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+        invalidateOwner(event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+        invalidateOwner(event);
+    }
+
+    private void invalidate(final EntityPersister persister, final Serializable id) {
+        final Class<?> entityClass = persister.getMappedClass();
+
+        for (final ParentCache<?, ?> parentCache : parentCaches) {
+            if (parentCache.getParentClass().isAssignableFrom(entityClass)) {
+                parentCache.invalidate(id);
+            }
+        }
+    }
+
+    private void invalidateOwner(final AbstractCollectionEvent event) {
+        if (parentCaches.isEmpty()) {
+            return;
+        }
+
+        final EntityPersister ownerPersister = event.getSession()
+                .getFactory()
+                .getEntityPersister(event.getAffectedOwnerEntityName());
+        final Serializable ownerId = event.getAffectedOwnerIdOrNull();
+
+        // Collection events are raised when the session is flushed, so the owner is invalidated after the commit.
+        event.getSession().getActionQueue().registerProcess(
+                (AfterTransactionCompletionProcess) (success, session) -> {
+                    if (ownerId != null) {
+                        invalidate(ownerPersister, ownerId);
+                        return;
+                    }
+
+                    for (final ParentCache<?, ?> parentCache : parentCaches) {
+                        if (parentCache.getParentClass().isAssignableFrom(ownerPersister.getMappedClass())) {
+                            parentCache.invalidateAll();
+                        }
+                    }
+                });
+    }
+
+    private void invalidateReferences(final EntityPersister persister, final Object[] state,
+                                      final SessionImplementor session) {
+        if ((state == null) || parentCaches.isEmpty()) {
+            return;
+        }
+
+        final Type[] propertyTypes = persister.getPropertyTypes();
+
+        for (int index = 0; index < propertyTypes.length; ++index) {
+            if (propertyTypes[index].isEntityType() && (state[index] != null)) {
+                invalidateReference((EntityType) propertyTypes[index], state[index], session);
+            }
+        }
+    }
+
+    private void invalidateReference(final EntityType entityType, final Object reference,
+                                     final SessionImplementor session) {
+        final EntityPersister referencePersister = session.getFactory()
+                .getEntityPersister(entityType.getAssociatedEntityName(session.getFactory()));
+        final Class<?> referenceClass = referencePersister.getMappedClass();
+        Serializable referenceId = null;
+
+        for (final ParentCache<?, ?> parentCache : parentCaches) {
+            // The association may be declared with a superclass of the parent class.
+            if (parentCache.getParentClass().isAssignableFrom(referenceClass) ||
+                referenceClass.isAssignableFrom(parentCache.getParentClass())) {
+                if (referenceId == null) {
+                    referenceId = (reference instanceof HibernateProxy) ?
+                                  ((HibernateProxy) reference).getHibernateLazyInitializer().getIdentifier() :
+                                  referencePersister.getIdentifier(reference, session);
+                }
+                parentCache.invalidate(referenceId);
+            }
+        }
+    }
+}
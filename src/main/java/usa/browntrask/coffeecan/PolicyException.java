@@ -0,0 +1,22 @@
+package usa.browntrask.coffeecan;
+
+/**
+ * Extended {@link usa.browntrask.coffeecan.CoffeeCanException} thrown if a policy file cannot be read or describes
+ * rules that cannot be built.
+ *
+ * @author Ian Brown
+ * @since 2018/05/23
+ * @version 1.0.0
+ */
+public class PolicyException extends CoffeeCanException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PolicyException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public PolicyException(final String message) {
+        super(message);
+    }
+}
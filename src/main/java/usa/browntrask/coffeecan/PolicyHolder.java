@@ -0,0 +1,253 @@
+package usa.browntrask.coffeecan;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link usa.browntrask.coffeecan.CapabilityPolicy} and replaces it when the policy is reloaded.
+ * <p>
+ * A new policy is loaded and verified completely on the thread that reloads it, and only then published with a single
+ * swap of the reference to the current {@link Generation}. Reading the policy never locks, and a capability built by
+ * {@link #applyTo(Capability, Collection)} takes all of its rules from one generation, so a request that is being
+ * authorized while the policy is reloaded sees either the old policy or the new one, never a mixture. If the new
+ * policy cannot be loaded, the current one is kept.
+ * </p>
+ * <p>
+ * Caches that depend on the policy should either be keyed by the generation number, or be invalidated by a
+ * {@link Listener}, which is called after each new generation is published.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/24
+ */
+public class PolicyHolder {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final PolicyLoader policyLoader;
+    private final Resource resource;
+    private final AtomicReference<Generation> current;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Object publishLock = new Object();
+
+    /**
+     * Constructs a policy holder for a fixed policy. The policy can still be replaced by
+     * {@link #publish(CapabilityPolicy)} or {@link #reload(InputStream)}.
+     *
+     * @param policyLoader the loader used to reload the policy.
+     * @param policy       the initial policy.
+     */
+    public PolicyHolder(final PolicyLoader policyLoader, final CapabilityPolicy policy) {
+        super();
+
+        this.policyLoader = policyLoader;
+        this.resource = null;
+        this.current = new AtomicReference<>(new Generation(1L, policy));
+    }
+
+    /**
+     * Constructs a policy holder that loads the policy from a resource, such as a policy file.
+     *
+     * @param policyLoader the loader used to load the policy.
+     * @param resource     the resource containing the policy.
+     * @throws java.io.IOException                      if the resource cannot be read.
+     * @throws usa.browntrask.coffeecan.PolicyException if the policy is not valid.
+     */
+    public PolicyHolder(final PolicyLoader policyLoader, final Resource resource) throws IOException, PolicyException {
+        super();
+
+        this.policyLoader = policyLoader;
+        this.resource = resource;
+        this.current = new AtomicReference<>(new Generation(1L, load(resource)));
+    }
+
+    /**
+     * Adds a listener to be called after each new generation of the policy is published.
+     *
+     * @param listener the listener.
+     */
+    public void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Applies the templates for the roles from the current generation of the policy to a capability.
+     *
+     * @param <C>        the type of capability.
+     * @param capability the capability.
+     * @param roles      the names of the roles.
+     * @return the capability.
+     * @throws usa.browntrask.coffeecan.PolicyException         if the policy does not define one of the roles.
+     * @throws usa.browntrask.coffeecan.RegisterActionException if the templates register the same action differently.
+     */
+    public <C extends Capability> C applyTo(final C capability, final Collection<String> roles)
+            throws PolicyException, RegisterActionException {
+        final CapabilityPolicy policy = current().getPolicy();
+
+        for (final String role : roles) {
+            policy.getTemplate(role).applyTo(capability);
+        }
+
+        return capability;
+    }
+
+    /**
+     * Returns the current generation of the policy.
+     *
+     * @return the generation.
+     */
+    public Generation current() {
+        return current.get();
+    }
+
+    /**
+     * Returns the current policy.
+     *
+     * @return the policy.
+     */
+    public CapabilityPolicy getPolicy() {
+        return current().getPolicy();
+    }
+
+    /**
+     * Returns the resource from which the policy is loaded.
+     *
+     * @return the resource or <code>null</code> if the holder was constructed with a fixed policy.
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Publishes a new policy, replacing the current one, and calls the listeners.
+     *
+     * @param policy the new policy.
+     * @return the new generation.
+     */
+    public Generation publish(final CapabilityPolicy policy) {
+        final Generation generation;
+
+        // Publishers are serialized so that generations are numbered in the order they become current; readers are not.
+        synchronized (publishLock) {
+            generation = new Generation(current.get().getNumber() + 1L, policy);
+            current.set(generation);
+        }
+
+        logger.info("Published policy generation {} with roles {}", generation.getNumber(), policy.getRoles());
+        for (final Listener listener : listeners) {
+            try {
+                listener.published(generation);
+            } catch (final RuntimeException e) {
+                logger.error("Policy listener " + listener + " failed for generation " + generation.getNumber(), e);
+            }
+        }
+
+        return generation;
+    }
+
+    /**
+     * Reloads the policy from the resource with which the holder was constructed.
+     *
+     * @return the new generation.
+     * @throws java.io.IOException                      if the resource cannot be read.
+     * @throws usa.browntrask.coffeecan.PolicyException if the policy is not valid, or the holder was constructed with a
+     *                                                  fixed policy. The current policy is kept.
+     */
+    public Generation reload() throws IOException, PolicyException {
+        if (resource == null) {
+            throw new PolicyException("There is no policy resource to reload from");
+        }
+
+        return publish(load(resource));
+    }
+
+    /**
+     * Reloads the policy from a stream.
+     *
+     * @param inputStream the stream containing the policy.
+     * @return the new generation.
+     * @throws usa.browntrask.coffeecan.PolicyException if the policy is not valid. The current policy is kept.
+     */
+    public Generation reload(final InputStream inputStream) throws PolicyException {
+        return publish(policyLoader.load(inputStream));
+    }
+
+    private CapabilityPolicy load(final Resource resource) throws IOException, PolicyException {
+        try (final InputStream inputStream = resource.getInputStream()) {
+            return policyLoader.load(inputStream);
+        } catch (final PolicyException e) {
+            throw new PolicyException(resource.getDescription() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A published policy and its generation number.
+     */
+    public static class Generation {
+
+        private final long number;
+        private final CapabilityPolicy policy;
+
+        /**
+         * Constructs a generation.
+         *
+         * @param number the generation number.
+         * @param policy the policy.
+         */
+        Generation(final long number, final CapabilityPolicy policy) {
+            super();
+
+            this.number = number;
+            this.policy = policy;
+        }
+
+        /**
+         * Returns the generation number. The first policy is generation 1, and each policy published after it has the
+         * next number.
+         *
+         * @return the generation number.
+         */
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the policy.
+         *
+         * @return the policy.
+         */
+        public CapabilityPolicy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " " + number + " " + policy.getRoles();
+        }
+    }
+
+    /**
+     * Listener called after a new generation of the policy is published.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called after a new generation of the policy is published.
+         *
+         * @param generation the new generation.
+         */
+        void published(Generation generation);
+    }
+}
@@ -0,0 +1,413 @@
+package usa.browntrask.coffeecan;
+
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.ClassUtils;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads a {@link usa.browntrask.coffeecan.CapabilityPolicy} from a YAML policy file.
+ * <p>
+ * A policy file lists the rules for each role:
+ * </p>
+ * <pre>
+ * packages: [com.example.domain]
+ * defaultAccess: false
+ * actions:
+ *   publish: [read, update]
+ * aliases:
+ *   view: read
+ * roles:
+ *   reader:
+ *     - can: read
+ *       resource: Article
+ *       when:
+ *         published: true
+ *   editor:
+ *     - can: [read, update]
+ *       resource: Article
+ *       when:
+ *         any:
+ *           - author.name: alice
+ *           - status: [draft, review]
+ *     - cannot: delete
+ *       resource: Article
+ * </pre>
+ * <p>
+ * Each rule has either <code>can</code> or <code>cannot</code>, with one action or a list of them, and a
+ * <code>resource</code> class, which is either fully qualified or found in one of the <code>packages</code>. A rule
+ * without <code>when</code> applies to every resource of the class. Otherwise, <code>when</code> maps field paths to
+ * the values they must equal; a list of values matches any of them. Several entries in the same map must all match,
+ * and the <code>all</code>, <code>any</code> and <code>not</code> keys combine nested maps with AND, OR and NOT.
+ * </p>
+ * <p>
+ * Everything is checked when the policy is loaded: each action must be standard or declared under
+ * <code>actions</code> or <code>aliases</code>, the resource classes are resolved, every field path is verified
+ * against them, and each value is converted to the type of its field. Any problem is reported as a
+ * {@link usa.browntrask.coffeecan.PolicyException} naming the role and rule, so that a broken policy fails at startup
+ * rather than when a request is authorized.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/23
+ */
+public class PolicyLoader {
+
+    private static final Set<String> POLICY_KEYS =
+            new HashSet<>(Arrays.asList("packages", "defaultAccess", "actions", "aliases", "roles"));
+    private static final Set<String> RULE_KEYS = new HashSet<>(Arrays.asList("can", "cannot", "resource", "when"));
+    private static final String ALL = "all";
+    private static final String ANY = "any";
+    private static final String NOT = "not";
+
+    private final ClassLoader classLoader;
+    private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+    /**
+     * Constructs a policy loader that resolves resource classes using the default class loader.
+     */
+    public PolicyLoader() {
+        this(ClassUtils.getDefaultClassLoader());
+    }
+
+    /**
+     * Constructs a policy loader that resolves resource classes using the specified class loader.
+     *
+     * @param classLoader the class loader.
+     */
+    public PolicyLoader(final ClassLoader classLoader) {
+        super();
+
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Loads a policy.
+     *
+     * @param inputStream the YAML policy.
+     * @return the policy.
+     * @throws usa.browntrask.coffeecan.PolicyException if the policy cannot be parsed, or any of its rules cannot be
+     *                                                  built.
+     */
+    public CapabilityPolicy load(final InputStream inputStream) throws PolicyException {
+        final Object document;
+        try {
+            document = new Yaml(new SafeConstructor()).load(inputStream);
+        } catch (final YAMLException e) {
+            throw new PolicyException("Cannot parse the policy: " + e.getMessage(), e);
+        }
+
+        final Map<String, Object> policy = asMap(document, "The policy");
+        checkKeys(policy, POLICY_KEYS, "The policy");
+
+        final List<String> packages = asStrings(policy.get("packages"), "packages");
+        final Boolean defaultAccess = asBoolean(policy.get("defaultAccess"), "defaultAccess");
+        final Map<String, List<String>> registeredActions = buildRegisteredActions(policy.get("actions"));
+        final Map<String, String> aliases = buildAliases(policy.get("aliases"), registeredActions);
+        final Set<String> actions = new HashSet<>(registeredActions.keySet());
+        actions.addAll(aliases.keySet());
+        final Map<String, CapabilityTemplate> templates = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, Object> role : asMap(policy.get("roles"), "roles").entrySet()) {
+            final List<CapabilityTemplate.Rule<?>> rules = new ArrayList<>();
+            int index = 0;
+
+            for (final Object rule : asList(role.getValue(), "Role " + role.getKey())) {
+                rules.add(buildRule(rule, packages, actions, "Role " + role.getKey() + ", rule " + (++index)));
+            }
+            templates.put(role.getKey(),
+                          new CapabilityTemplate(role.getKey(), defaultAccess, registeredActions, aliases, rules));
+        }
+
+        return new CapabilityPolicy(templates);
+    }
+
+    private Map<String, List<String>> buildRegisteredActions(final Object value) throws PolicyException {
+        final Map<String, List<String>> registeredActions = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, Object> entry : asMap(value, "actions").entrySet()) {
+            if (Capability.STANDARD_ACTIONS.contains(entry.getKey().toLowerCase())) {
+                throw new PolicyException("actions: cannot register standard action " + entry.getKey());
+            }
+
+            registeredActions.put(entry.getKey(), Collections.unmodifiableList(
+                    asStrings(entry.getValue(), "actions." + entry.getKey())));
+        }
+
+        for (final Map.Entry<String, List<String>> entry : registeredActions.entrySet()) {
+            checkAction(entry.getValue(), registeredActions.keySet(), "actions." + entry.getKey());
+        }
+
+        return registeredActions;
+    }
+
+    private Map<String, String> buildAliases(final Object value, final Map<String, List<String>> registeredActions)
+            throws PolicyException {
+        final Map<String, String> aliases = new LinkedHashMap<>();
+
+        for (final Map.Entry<String, Object> entry : asMap(value, "aliases").entrySet()) {
+            if (!(entry.getValue() instanceof String)) {
+                throw new PolicyException("aliases." + entry.getKey() + ": expected an action");
+            }
+            checkAction(Collections.singletonList((String) entry.getValue()), registeredActions.keySet(),
+                        "aliases." + entry.getKey());
+
+            aliases.put(entry.getKey(), (String) entry.getValue());
+        }
+
+        return aliases;
+    }
+
+    private <R> AuthorizationCriteria<R> buildComparison(final Class<R> resourceClass, final String field,
+                                                         final Object value, final String location)
+            throws PolicyException {
+        try {
+            final ComparisonAuthorizationCriteria<R> comparison =
+                    new ComparisonAuthorizationCriteria<>(resourceClass, field, Operation.EQUALS, value);
+            comparison.verify(resourceClass);
+
+            final Object fieldValue = convert(value, comparison.getFieldType(resourceClass), location + ", " + field);
+            if (fieldValue == value) {
+                return comparison;
+            }
+
+            final ComparisonAuthorizationCriteria<R> convertedComparison =
+                    new ComparisonAuthorizationCriteria<>(resourceClass, field, Operation.EQUALS, fieldValue);
+            convertedComparison.verify(resourceClass);
+            return convertedComparison;
+
+        } catch (final AuthorizationCriteriaException e) {
+            throw new PolicyException(location + ": " + e.getMessage(), e);
+        }
+    }
+
+    private <R> AuthorizationCriteria<R> buildCriteria(final Class<R> resourceClass, final Object when,
+                                                       final String location) throws PolicyException {
+        final List<AuthorizationCriteria<R>> criteria = new ArrayList<>();
+
+        for (final Map.Entry<String, Object> entry : asMap(when, location).entrySet()) {
+            switch (entry.getKey()) {
+                case ALL:
+                    criteria.add(join(new AndAuthorizationCriteria<>(),
+                                      buildCriteriaList(resourceClass, entry.getValue(), location + ", " + ALL)));
+                    break;
+
+                case ANY:
+                    criteria.add(join(new OrAuthorizationCriteria<>(),
+                                      buildCriteriaList(resourceClass, entry.getValue(), location + ", " + ANY)));
+                    break;
+
+                case NOT:
+                    criteria.add(new NotAuthorizationCriteria<>(
+                            buildCriteria(resourceClass, entry.getValue(), location + ", " + NOT)));
+                    break;
+
+                default:
+                    criteria.add(buildFieldCriteria(resourceClass, entry.getKey(), entry.getValue(), location));
+            }
+        }
+
+        if (criteria.isEmpty()) {
+            throw new PolicyException(location + ": expected at least one condition");
+        }
+        return (criteria.size() == 1) ? criteria.get(0) : join(new AndAuthorizationCriteria<>(), criteria);
+    }
+
+    private <R> List<AuthorizationCriteria<R>> buildCriteriaList(final Class<R> resourceClass, final Object value,
+                                                                 final String location) throws PolicyException {
+        final List<AuthorizationCriteria<R>> criteria = new ArrayList<>();
+
+        for (final Object when : asList(value, location)) {
+            criteria.add(buildCriteria(resourceClass, when, location));
+        }
+
+        if (criteria.isEmpty()) {
+            throw new PolicyException(location + ": expected at least one condition");
+        }
+        return criteria;
+    }
+
+    private <R> AuthorizationCriteria<R> buildFieldCriteria(final Class<R> resourceClass, final String field,
+                                                            final Object value, final String location)
+            throws PolicyException {
+        if (!(value instanceof List)) {
+            return buildComparison(resourceClass, field, value, location);
+        }
+
+        final List<AuthorizationCriteria<R>> criteria = new ArrayList<>();
+        for (final Object entry : (List<?>) value) {
+            criteria.add(buildComparison(resourceClass, field, entry, location));
+        }
+
+        if (criteria.isEmpty()) {
+            throw new PolicyException(location + ", " + field + ": expected at least one value");
+        }
+        return (criteria.size() == 1) ? criteria.get(0) : join(new OrAuthorizationCriteria<>(), criteria);
+    }
+
+    private CapabilityTemplate.Rule<?> buildRule(final Object value, final List<String> packages,
+                                                 final Set<String> knownActions, final String location)
+            throws PolicyException {
+        final Map<String, Object> rule = asMap(value, location);
+        checkKeys(rule, RULE_KEYS, location);
+
+        final boolean allows = rule.containsKey("can");
+        if (allows == rule.containsKey("cannot")) {
+            throw new PolicyException(location + ": expected exactly one of can or cannot");
+        }
+
+        final List<String> actions = asStrings(rule.get(allows ? "can" : "cannot"), location);
+        if (actions.isEmpty()) {
+            throw new PolicyException(location + ": expected at least one action");
+        }
+        checkAction(actions, knownActions, location);
+
+        return buildRule(allows, actions, resolveClass(rule.get("resource"), packages, location), rule.get("when"),
+                         location);
+    }
+
+    private <R> CapabilityTemplate.Rule<R> buildRule(final boolean allows, final List<String> actions,
+                                                     final Class<R> resourceClass, final Object when,
+                                                     final String location) throws PolicyException {
+        final AuthorizationCriteria<R> authorizationCriteria = (when == null) ?
+                                                               new TrueAuthorizationCriteria<>() :
+                                                               buildCriteria(resourceClass, when, location);
+
+        try {
+            authorizationCriteria.verify(resourceClass);
+        } catch (final AuthorizationCriteriaException e) {
+            throw new PolicyException(location + ": " + e.getMessage(), e);
+        }
+
+        return new CapabilityTemplate.Rule<>(allows, actions, resourceClass, authorizationCriteria);
+    }
+
+    private Object convert(final Object value, final Class<?> fieldType, final String location)
+            throws PolicyException {
+        if ((value == null) || (fieldType == null)) {
+            return value;
+        }
+
+        final Class<?> targetType = ClassUtils.resolvePrimitiveIfNecessary(fieldType);
+        if (targetType.isInstance(value)) {
+            return value;
+        } else if (!conversionService.canConvert(value.getClass(), targetType)) {
+            throw new PolicyException(location + ": cannot compare a " + fieldType.getSimpleName() + " to " + value);
+        }
+
+        try {
+            return conversionService.convert(value, targetType);
+        } catch (final ConversionException e) {
+            throw new PolicyException(
+                    location + ": cannot compare a " + fieldType.getSimpleName() + " to " + value, e);
+        }
+    }
+
+    private <R> AuthorizationCriteria<R> join(final JoinAuthorizationCriteria<R> joinAuthorizationCriteria,
+                                              final List<AuthorizationCriteria<R>> criteria) {
+        criteria.forEach(joinAuthorizationCriteria::add);
+        return joinAuthorizationCriteria;
+    }
+
+    private Class<?> resolveClass(final Object value, final List<String> packages, final String location)
+            throws PolicyException {
+        if (!(value instanceof String)) {
+            throw new PolicyException(location + ": expected a resource class");
+        }
+
+        final String name = (String) value;
+        final List<String> candidates = new ArrayList<>();
+        candidates.add(name);
+        if (!name.contains(".")) {
+            packages.forEach(packageName -> candidates.add(packageName + "." + name));
+        }
+
+        for (final String candidate : candidates) {
+            try {
+                return ClassUtils.forName(candidate, classLoader);
+            } catch (final ClassNotFoundException | LinkageError e) {
+                // Try the next package.
+            }
+        }
+
+        throw new PolicyException(location + ": cannot find resource class " + name + " in " + packages);
+    }
+
+    private Map<String, Object> asMap(final Object value, final String location) throws PolicyException {
+        if (value == null) {
+            return Collections.emptyMap();
+        } else if (!(value instanceof Map)) {
+            throw new PolicyException(location + ": expected a map but found " + value);
+        }
+
+        final Map<String, Object> map = new LinkedHashMap<>();
+        for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            map.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return map;
+    }
+
+    private List<?> asList(final Object value, final String location) throws PolicyException {
+        if (value == null) {
+            return Collections.emptyList();
+        } else if (!(value instanceof List)) {
+            throw new PolicyException(location + ": expected a list but found " + value);
+        }
+
+        return (List<?>) value;
+    }
+
+    private List<String> asStrings(final Object value, final String location) throws PolicyException {
+        final List<?> entries = (value instanceof String) ? Collections.singletonList(value) : asList(value, location);
+        final List<String> strings = new ArrayList<>();
+
+        for (final Object entry : entries) {
+            if (!(entry instanceof String)) {
+                throw new PolicyException(location + ": expected a name but found " + entry);
+            }
+            strings.add((String) entry);
+        }
+
+        return strings;
+    }
+
+    private Boolean asBoolean(final Object value, final String location) throws PolicyException {
+        if ((value != null) && !(value instanceof Boolean)) {
+            throw new PolicyException(location + ": expected true or false but found " + value);
+        }
+
+        return (Boolean) value;
+    }
+
+    private void checkAction(final List<String> actions, final Set<String> knownActions, final String location)
+            throws PolicyException {
+        for (final String action : actions) {
+            if (!Capability.STANDARD_ACTIONS.contains(action.toLowerCase()) && !knownActions.contains(action)) {
+                throw new PolicyException(location + ": unknown action " + action);
+            }
+        }
+    }
+
+    private void checkKeys(final Map<String, Object> map, final Set<String> keys, final String location)
+            throws PolicyException {
+        for (final String key : map.keySet()) {
+            if (!keys.contains(key)) {
+                throw new PolicyException(location + ": unrecognized key " + key);
+            }
+        }
+    }
+}
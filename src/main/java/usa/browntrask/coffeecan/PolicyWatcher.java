@@ -0,0 +1,111 @@
+package usa.browntrask.coffeecan;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the policy of a {@link usa.browntrask.coffeecan.PolicyHolder} when its policy file changes.
+ * <p>
+ * The modification time of the file is checked periodically on a background thread, which also loads and verifies
+ * the new policy, so requests are never delayed by a reload. The file is only reloaded once its modification time has
+ * been the same for two checks in a row, so that a file that is still being written is not read. Even so, a policy
+ * file is best replaced by writing the new policy to a temporary file and renaming it over the old one, which is
+ * atomic.
+ * </p>
+ * <p>
+ * A policy that cannot be loaded is logged and not retried until the file changes again; the current policy is kept
+ * in the meantime.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/24
+ */
+public class PolicyWatcher implements AutoCloseable {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final PolicyHolder policyHolder;
+    private final ScheduledExecutorService scheduler;
+    private long lastModified;
+    private long pendingModified = NONE;
+    private long failedModified = NONE;
+
+    /**
+     * Constructs a policy watcher and starts watching the policy file.
+     *
+     * @param policyHolder   the holder of the policy, which must have been constructed with the policy file.
+     * @param intervalMillis the interval between checks of the policy file, in milliseconds.
+     * @throws java.io.IOException if the modification time of the policy file cannot be determined.
+     */
+    public PolicyWatcher(final PolicyHolder policyHolder, final long intervalMillis) throws IOException {
+        super();
+
+        if (policyHolder.getResource() == null) {
+            throw new IllegalArgumentException("The policy holder was not constructed with a policy file");
+        }
+
+        this.policyHolder = policyHolder;
+        this.lastModified = policyHolder.getResource().lastModified();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "coffeecan-policy");
+
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops watching the policy file.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Checks whether the policy file has changed and reloads it if it has not changed again since the last check.
+     *
+     * @return <code>true</code> if a new policy was published, <code>false</code> otherwise.
+     */
+    boolean check() {
+        final long modified;
+
+        try {
+            modified = policyHolder.getResource().lastModified();
+        } catch (final IOException e) {
+            logger.warn("Cannot check the policy file " + policyHolder.getResource().getDescription(), e);
+            return false;
+        }
+
+        if ((modified == lastModified) || (modified == failedModified)) {
+            pendingModified = NONE;
+            return false;
+        }
+
+        // Wait for the file to stay the same for a whole interval, in case it is still being written.
+        if (modified != pendingModified) {
+            pendingModified = modified;
+            return false;
+        }
+
+        pendingModified = NONE;
+        try {
+            policyHolder.reload();
+            lastModified = modified;
+            return true;
+        } catch (final IOException | PolicyException e) {
+            failedModified = modified;
+            logger.error("The policy file changed but could not be loaded; keeping policy generation " +
+                         policyHolder.current().getNumber(), e);
+            return false;
+        }
+    }
+}
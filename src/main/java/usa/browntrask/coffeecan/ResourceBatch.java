@@ -0,0 +1,83 @@
+package usa.browntrask.coffeecan;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of retrieving a batch of resources by their identifiers.
+ * <p>
+ * Each requested identifier is either one of the retrieved resources, denied by the authorization criteria, or
+ * missing from the database.
+ * </p>
+ *
+ * @param <R> the type of resource.
+ * @param <I> the type of identifier for the resource.
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/10
+ */
+public class ResourceBatch<R, I> {
+
+    private final List<R> resources;
+    private final List<I> deniedIds;
+    private final List<I> missingIds;
+
+    /**
+     * Constructs a resource batch.
+     *
+     * @param resources  the retrieved resources, in the order their identifiers were requested.
+     * @param deniedIds  the identifiers of the resources that exist but were denied.
+     * @param missingIds the identifiers of the resources that do not exist.
+     */
+    ResourceBatch(final List<R> resources, final List<I> deniedIds, final List<I> missingIds) {
+        super();
+
+        this.resources = Collections.unmodifiableList(resources);
+        this.deniedIds = Collections.unmodifiableList(deniedIds);
+        this.missingIds = Collections.unmodifiableList(missingIds);
+    }
+
+    /**
+     * Returns the identifiers of the resources that exist, but were denied.
+     *
+     * @return the denied identifiers.
+     */
+    public List<I> getDeniedIds() {
+        return deniedIds;
+    }
+
+    /**
+     * Returns the identifiers of the resources that do not exist.
+     *
+     * @return the missing identifiers.
+     */
+    public List<I> getMissingIds() {
+        return missingIds;
+    }
+
+    /**
+     * Returns the retrieved resources, in the order their identifiers were requested.
+     *
+     * @return the resources.
+     */
+    public List<R> getResources() {
+        return resources;
+    }
+
+    /**
+     * Were all of the requested resources retrieved?
+     *
+     * @return <code>true</code> if no resources were denied or missing, <code>false</code> otherwise.
+     */
+    public boolean isComplete() {
+        return deniedIds.isEmpty() && missingIds.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "resources " + resources.size() + ", denied " + deniedIds + ", missing " + missingIds;
+    }
+}
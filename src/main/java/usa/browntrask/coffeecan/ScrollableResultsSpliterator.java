@@ -0,0 +1,65 @@
+package usa.browntrask.coffeecan;
+
+import org.hibernate.ScrollableResults;
+
+import javax.persistence.EntityManager;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of {@link java.util.Spliterator} over the rows of a Hibernate {@link org.hibernate.ScrollableResults}.
+ * <p>
+ * The entity manager that loaded the rows is cleared each time another batch of rows is about to be retrieved, so
+ * that the entities that have already been processed do not accumulate in the persistence context.
+ * </p>
+ *
+ * @param <R> the type of resource.
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/04
+ */
+class ScrollableResultsSpliterator<R> extends Spliterators.AbstractSpliterator<R> {
+
+    private final ScrollableResults scrollableResults;
+    private final Class<R> resourceClass;
+    private final EntityManager entityManager;
+    private final int clearInterval;
+    private long count = 0;
+
+    /**
+     * Constructs a spliterator for the scrollable results.
+     *
+     * @param scrollableResults the scrollable results.
+     * @param resourceClass     the class of the resource in the first column of each row.
+     * @param entityManager     the entity manager used to load the results.
+     * @param clearInterval     the number of rows to process before clearing the entity manager.
+     */
+    ScrollableResultsSpliterator(final ScrollableResults scrollableResults, final Class<R> resourceClass,
+                                 final EntityManager entityManager, final int clearInterval) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        this.scrollableResults = scrollableResults;
+        this.resourceClass = resourceClass;
+        this.entityManager = entityManager;
+        this.clearInterval = Math.max(1, clearInterval);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryAdvance(final Consumer<? super R> action) {
+        if ((count > 0) && (count % clearInterval == 0)) {
+            entityManager.clear();
+        }
+
+        if (!scrollableResults.next()) {
+            return false;
+        }
+
+        ++count;
+        action.accept(resourceClass.cast(scrollableResults.get(0)));
+        return true;
+    }
+}
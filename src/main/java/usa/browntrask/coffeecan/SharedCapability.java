@@ -0,0 +1,112 @@
+package usa.browntrask.coffeecan;
+
+import java.util.List;
+
+/**
+ * Capability built from the {@link usa.browntrask.coffeecan.CapabilityTemplate} objects of a set of roles, to be
+ * shared by the capabilities of every user with those roles.
+ * <p>
+ * The templates are applied once, when the shared capability is constructed, and it cannot be changed afterwards. The
+ * capability for a request is then a {@link usa.browntrask.coffeecan.BaseCapability} layered over the shared
+ * capability, to which only the rules particular to the user are added:
+ * </p>
+ * <pre>
+ * public class UserCapability extends BaseCapability {
+ *     public UserCapability(final SharedCapability shared, final User user) throws AuthorizationCriteriaException {
+ *         super(shared);
+ *         can(UPDATE, Article.class, new AuthorizationCriteriaBuilder&lt;&gt;(Article.class)
+ *                 .compare("author.id", Operation.EQUALS, user.getId())
+ *                 .build());
+ *     }
+ * }
+ * </pre>
+ * <p>
+ * A shared capability may be used by any number of threads at once.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/25
+ */
+public final class SharedCapability extends BaseCapability {
+
+    private final boolean frozen;
+
+    /**
+     * Constructs a shared capability by applying the templates in order.
+     *
+     * @param templates the templates of the roles.
+     * @throws usa.browntrask.coffeecan.RegisterActionException if the templates register the same action differently.
+     */
+    public SharedCapability(final List<CapabilityTemplate> templates) throws RegisterActionException {
+        super();
+
+        for (final CapabilityTemplate template : templates) {
+            template.applyTo(this);
+        }
+        this.frozen = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws java.lang.UnsupportedOperationException once the shared capability has been constructed.
+     */
+    @Override
+    public void aliasForAction(final String alias, final String action) {
+        checkNotFrozen();
+        super.aliasForAction(alias, action);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws java.lang.UnsupportedOperationException once the shared capability has been constructed.
+     */
+    @Override
+    public <R> void can(final String action, final Class<R> resourceClass,
+                        final AuthorizationCriteria<R> resourceAuthorization) {
+        checkNotFrozen();
+        super.can(action, resourceClass, resourceAuthorization);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws java.lang.UnsupportedOperationException once the shared capability has been constructed.
+     */
+    @Override
+    public <R> void cannot(final String action, final Class<R> resourceClass,
+                           final AuthorizationCriteria<R> resourceAuthorization) {
+        checkNotFrozen();
+        super.cannot(action, resourceClass, resourceAuthorization);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws java.lang.UnsupportedOperationException once the shared capability has been constructed.
+     */
+    @Override
+    public void registerAction(final String action, final List<String> actions) throws RegisterActionException {
+        checkNotFrozen();
+        super.registerAction(action, actions);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws java.lang.UnsupportedOperationException once the shared capability has been constructed.
+     */
+    @Override
+    public void setDefaultAccess(final boolean defaultAccess) {
+        checkNotFrozen();
+        super.setDefaultAccess(defaultAccess);
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("A shared capability cannot be changed");
+        }
+    }
+}
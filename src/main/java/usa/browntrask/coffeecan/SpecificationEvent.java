@@ -0,0 +1,45 @@
+package usa.browntrask.coffeecan;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for building the specification or plan used to query authorized resources.
+ * <p>
+ * The event is disabled by default; enable it in the recording settings to record it.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/11
+ */
+@Name("usa.browntrask.coffeecan.Specification")
+@Label("Specification Build")
+@Description("Build of the database specification for an action on a resource class")
+@Category("CoffeeCan")
+@Enabled(false)
+@StackTrace(false)
+class SpecificationEvent extends Event {
+
+    @Label("Action")
+    String action;
+
+    @Label("Resource Class")
+    String resourceClass;
+
+    @Label("Criteria Size")
+    @Description("Number of authorization criteria nodes for the action")
+    int criteriaSize;
+
+    @Label("Field Paths")
+    String fieldPaths;
+
+    @Label("Exact")
+    @Description("Whether the database can evaluate all of the criteria")
+    boolean exact;
+}
@@ -0,0 +1,139 @@
+package usa.browntrask.coffeecan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates {@link usa.browntrask.coffeecan.AuthorizationCriteria} against a resource while building a
+ * {@link usa.browntrask.coffeecan.DecisionTrace.Node} for each criteria.
+ * <p>
+ * The evaluation mirrors the <code>matches</code> methods of the criteria, including their short-circuiting, but is
+ * kept separate from them so that ordinary authorization decisions do not pay for the tracing.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/10
+ */
+class TracingEvaluator {
+
+    /**
+     * Evaluates the authorization criteria for a controlling action.
+     *
+     * @param <R>                   the type of resource.
+     * @param action                the controlling action.
+     * @param authorizationCriteria the authorization criteria for the action.
+     * @param resource              the resource.
+     * @return the node for the action.
+     * @throws usa.browntrask.coffeecan.CoffeeCanException if there is a problem matching the resource.
+     */
+    <R> DecisionTrace.Node evaluate(final String action, final AuthorizationCriteria<R> authorizationCriteria,
+                                    final R resource) throws CoffeeCanException {
+        final long start = System.nanoTime();
+        final DecisionTrace.Node child = evaluate(authorizationCriteria, resource);
+        final List<DecisionTrace.Node> children = new ArrayList<>();
+
+        children.add(child);
+        return new DecisionTrace.Node(action, child.getResult(), System.nanoTime() - start, false, children);
+    }
+
+    /**
+     * Builds the node for a controlling action that was not evaluated, because an earlier one already allowed access.
+     *
+     * @param <R>                   the type of resource.
+     * @param action                the controlling action.
+     * @param authorizationCriteria the authorization criteria for the action.
+     * @return the node for the action.
+     */
+    <R> DecisionTrace.Node skip(final String action, final AuthorizationCriteria<R> authorizationCriteria) {
+        final List<DecisionTrace.Node> children = new ArrayList<>();
+
+        children.add(skip(authorizationCriteria));
+        return new DecisionTrace.Node(action, null, 0L, false, children);
+    }
+
+    private String describe(final AuthorizationCriteria<?> authorizationCriteria) {
+        if (authorizationCriteria instanceof JoinAuthorizationCriteria) {
+            return ((JoinAuthorizationCriteria<?>) authorizationCriteria).operator();
+
+        } else if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            return "NOT";
+
+        } else if (authorizationCriteria instanceof TrueAuthorizationCriteria) {
+            return "TRUE";
+
+        } else if (authorizationCriteria instanceof FalseAuthorizationCriteria) {
+            return "FALSE";
+        }
+
+        return authorizationCriteria.toString();
+    }
+
+    private <R> DecisionTrace.Node evaluate(final AuthorizationCriteria<R> authorizationCriteria, final R resource)
+            throws CoffeeCanException {
+        if (authorizationCriteria instanceof AndAuthorizationCriteria) {
+            return evaluateJoined((AndAuthorizationCriteria<R>) authorizationCriteria, false, resource);
+
+        } else if (authorizationCriteria instanceof OrAuthorizationCriteria) {
+            return evaluateJoined((OrAuthorizationCriteria<R>) authorizationCriteria, true, resource);
+
+        } else if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            return evaluateNot((NotAuthorizationCriteria<R>) authorizationCriteria, resource);
+        }
+
+        final long start = System.nanoTime();
+        final boolean result = authorizationCriteria.matches(resource);
+        return new DecisionTrace.Node(describe(authorizationCriteria), result, System.nanoTime() - start, false,
+                                      new ArrayList<>());
+    }
+
+    private <R> DecisionTrace.Node evaluateJoined(final AbstractJoinAuthorizationCriteria<R> joinAuthorizationCriteria,
+                                                  final boolean decidingResult, final R resource)
+            throws CoffeeCanException {
+        final long start = System.nanoTime();
+        final List<DecisionTrace.Node> children = new ArrayList<>();
+        boolean decided = false;
+
+        for (final AuthorizationCriteria<R> authorizationCriteria : joinAuthorizationCriteria.getJoinedCriteria()) {
+            if (decided) {
+                children.add(skip(authorizationCriteria));
+                continue;
+            }
+
+            final DecisionTrace.Node child = evaluate(authorizationCriteria, resource);
+            children.add(child);
+            decided = (child.getResult() == decidingResult);
+        }
+
+        final boolean shortCircuited = children.stream().anyMatch(child -> !child.isEvaluated());
+        return new DecisionTrace.Node(describe(joinAuthorizationCriteria), decided == decidingResult,
+                                      System.nanoTime() - start, shortCircuited, children);
+    }
+
+    private <R> DecisionTrace.Node evaluateNot(final NotAuthorizationCriteria<R> notAuthorizationCriteria,
+                                               final R resource) throws CoffeeCanException {
+        final long start = System.nanoTime();
+        final DecisionTrace.Node child = evaluate(notAuthorizationCriteria.getChild(), resource);
+        final List<DecisionTrace.Node> children = new ArrayList<>();
+
+        children.add(child);
+        return new DecisionTrace.Node(describe(notAuthorizationCriteria), !child.getResult(),
+                                      System.nanoTime() - start, false, children);
+    }
+
+    private <R> DecisionTrace.Node skip(final AuthorizationCriteria<R> authorizationCriteria) {
+        final List<DecisionTrace.Node> children = new ArrayList<>();
+
+        if (authorizationCriteria instanceof AbstractJoinAuthorizationCriteria) {
+            for (final AuthorizationCriteria<R> child :
+                    ((AbstractJoinAuthorizationCriteria<R>) authorizationCriteria).getJoinedCriteria()) {
+                children.add(skip(child));
+            }
+
+        } else if (authorizationCriteria instanceof NotAuthorizationCriteria) {
+            children.add(skip(((NotAuthorizationCriteria<R>) authorizationCriteria).getChild()));
+        }
+
+        return new DecisionTrace.Node(describe(authorizationCriteria), null, 0L, false, children);
+    }
+}
@@ -0,0 +1,229 @@
+package usa.browntrask.coffeecan;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of {@link usa.browntrask.coffeecan.ParentCache} that holds the decisions for a bounded number of
+ * parents for a limited time.
+ * <p>
+ * Once the cache is full, expired parents are removed and then, if it is still full, the parents that will expire
+ * soonest. The decisions for a version of a parent expire a fixed time after the first of them was cached; caching
+ * more decisions for the same version does not extend it. Each parent holds a bounded number of decisions; once it is
+ * full, further decisions for it are not cached.
+ * </p>
+ *
+ * @param <P> the type of parent class.
+ * @param <J> the type of parent identifier class.
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/14
+ */
+public class TtlParentCache<P, J> implements ParentCache<P, J> {
+
+    private static final int DEFAULT_MAXIMUM_DECISIONS = 64;
+
+    private final Class<P> parentClass;
+    private final int maximumSize;
+    private final int maximumDecisions;
+    private final long timeToLive;
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder decisionHits = new LongAdder();
+    private final LongAdder decisionMisses = new LongAdder();
+
+    /**
+     * Constructs a parent cache.
+     *
+     * @param parentClass the parent class whose decisions are cached.
+     * @param maximumSize the maximum number of parents to cache decisions for.
+     * @param timeToLive  the time to keep the decisions for each parent.
+     * @param unit        the unit of the time to live.
+     */
+    public TtlParentCache(final Class<P> parentClass, final int maximumSize, final long timeToLive,
+                          final TimeUnit unit) {
+        this(parentClass, maximumSize, DEFAULT_MAXIMUM_DECISIONS, timeToLive, unit);
+    }
+
+    /**
+     * Constructs a parent cache holding a limited number of decisions for each parent.
+     *
+     * @param parentClass      the parent class whose decisions are cached.
+     * @param maximumSize      the maximum number of parents to cache decisions for.
+     * @param maximumDecisions the maximum number of decisions to cache for each parent.
+     * @param timeToLive       the time to keep the decisions for each parent.
+     * @param unit             the unit of the time to live.
+     */
+    public TtlParentCache(final Class<P> parentClass, final int maximumSize, final int maximumDecisions,
+                          final long timeToLive, final TimeUnit unit) {
+        super();
+
+        this.parentClass = parentClass;
+        this.maximumSize = Math.max(1, maximumSize);
+        this.maximumDecisions = Math.max(1, maximumDecisions);
+        this.timeToLive = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Class<P> getParentClass() {
+        return parentClass;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Boolean getDecision(final J id, final Object version, final String action, final Capability capability) {
+        final Entry entry = findEntry(id);
+        final Boolean decision = ((entry == null) || !Objects.equals(version, entry.version)) ?
+                                 null :
+                                 entry.decisions.get(new DecisionKey(action, capability.getDecisionKey()));
+
+        (decision == null ? decisionMisses : decisionHits).increment();
+        return decision;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(final Object id) {
+        entries.remove(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putDecision(final J id, final Object version, final String action, final Capability capability,
+                            final boolean allowed) {
+        final long now = System.nanoTime();
+        Entry entry = findEntry(id);
+
+        // Decisions made for another version of the parent no longer apply.
+        if ((entry == null) || !Objects.equals(version, entry.version)) {
+            if ((entry == null) && (entries.size() >= maximumSize)) {
+                evict(now);
+            }
+            entry = new Entry(version, now + timeToLive);
+            entries.put(id, entry);
+        }
+
+        if (entry.decisions.size() < maximumDecisions) {
+            entry.decisions.put(new DecisionKey(action, capability.getDecisionKey()), allowed);
+        }
+    }
+
+    /**
+     * Returns the number of times a cached decision was found.
+     *
+     * @return the number of decision hits.
+     */
+    public long getDecisionHits() {
+        return decisionHits.sum();
+    }
+
+    /**
+     * Returns the number of times a decision was not cached.
+     *
+     * @return the number of decision misses.
+     */
+    public long getDecisionMisses() {
+        return decisionMisses.sum();
+    }
+
+    /**
+     * Returns the number of parents with cached decisions, including any that have expired but not yet been removed.
+     *
+     * @return the number of parents.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(final long now) {
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+
+        while (entries.size() >= maximumSize) {
+            entries.entrySet()
+                    .stream()
+                    .min((first, second) -> Long.compare(first.getValue().expiresAt, second.getValue().expiresAt))
+                    .ifPresent(entry -> entries.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private Entry findEntry(final J id) {
+        final Entry entry = entries.get(id);
+
+        if ((entry != null) && entry.isExpired(System.nanoTime())) {
+            entries.remove(id, entry);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Internal class representing the decisions made for a version of a parent.
+     */
+    private static class Entry {
+
+        private final Object version;
+
+        private final long expiresAt;
+
+        private final Map<DecisionKey, Boolean> decisions = new ConcurrentHashMap<>();
+
+        Entry(final Object version, final long expiresAt) {
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(final long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Internal class representing the key for an authorization decision.
+     */
+    private static class DecisionKey {
+
+        private final String action;
+
+        private final Object capabilityKey;
+
+        DecisionKey(final String action, final Object capabilityKey) {
+            this.action = action;
+            this.capabilityKey = capabilityKey;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof DecisionKey)) {
+                return false;
+            }
+
+            final DecisionKey decisionKey = (DecisionKey) o;
+            return action.equals(decisionKey.action) && capabilityKey.equals(decisionKey.capabilityKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * action.hashCode() + capabilityKey.hashCode();
+        }
+    }
+}
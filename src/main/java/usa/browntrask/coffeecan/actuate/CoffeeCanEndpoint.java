@@ -0,0 +1,175 @@
+package usa.browntrask.coffeecan.actuate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import usa.browntrask.coffeecan.BaseCapability;
+import usa.browntrask.coffeecan.CapabilityRegistry;
+import usa.browntrask.coffeecan.CapabilityStatistics;
+import usa.browntrask.coffeecan.ParentCache;
+import usa.browntrask.coffeecan.ParentCacheInvalidator;
+import usa.browntrask.coffeecan.TtlParentCache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Spring Boot actuator endpoint reporting on the capabilities in memory and the parent caches.
+ * <p>
+ * The report contains:
+ * </p>
+ * <ul>
+ * <li><code>capabilities</code>, <code>rules</code>, <code>nodes</code> - the number of capabilities in memory and
+ * the total number of rules and criteria nodes they hold.</li>
+ * <li><code>capabilityClasses</code> - the same totals, and the largest number of nodes in a single capability, for
+ * each capability class.</li>
+ * <li><code>heaviest</code> - the statistics of the capabilities with the most criteria nodes, including their rule
+ * counts, criteria depths and node counts for each action and resource class, and their registered actions and
+ * aliases.</li>
+ * <li><code>parentCaches</code> - the size and hit counts of each registered parent cache.</li>
+ * </ul>
+ * <p>
+ * The endpoint id is <code>coffeecan</code>. It is sensitive by default.
+ * </p>
+ * <p>
+ * Only capabilities registered with the {@link usa.browntrask.coffeecan.CapabilityRegistry} are reported. A
+ * capability whose rules are changed while the report is made is left out of it.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/18
+ */
+@ConfigurationProperties(prefix = "endpoints.coffeecan")
+public class CoffeeCanEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private static final int STATISTICS_ATTEMPTS = 3;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final CapabilityRegistry capabilityRegistry;
+    private final ParentCacheInvalidator parentCacheInvalidator;
+    private int heaviest = 20;
+
+    /**
+     * Constructs the endpoint.
+     *
+     * @param capabilityRegistry     the registry of capabilities.
+     * @param parentCacheInvalidator the invalidator with which parent caches are registered.
+     */
+    public CoffeeCanEndpoint(final CapabilityRegistry capabilityRegistry,
+                             final ParentCacheInvalidator parentCacheInvalidator) {
+        super("coffeecan");
+
+        this.capabilityRegistry = capabilityRegistry;
+        this.parentCacheInvalidator = parentCacheInvalidator;
+    }
+
+    /**
+     * Returns the number of the heaviest capabilities to report in detail.
+     *
+     * @return the number of capabilities.
+     */
+    public int getHeaviest() {
+        return heaviest;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> invoke() {
+        final List<CapabilityStatistics> capabilityStatistics = capabilityRegistry.getCapabilities()
+                .stream()
+                .map(this::findStatistics)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(CapabilityStatistics::getTotalNodes).reversed())
+                .collect(Collectors.toList());
+        final Map<String, Object> report = new LinkedHashMap<>();
+
+        report.put("capabilities", capabilityStatistics.size());
+        report.put("rules", capabilityStatistics.stream().mapToInt(CapabilityStatistics::getTotalRules).sum());
+        report.put("nodes", capabilityStatistics.stream().mapToInt(CapabilityStatistics::getTotalNodes).sum());
+        report.put("capabilityClasses", summarizeCapabilityClasses(capabilityStatistics));
+        report.put("heaviest", capabilityStatistics.stream().limit(heaviest).collect(Collectors.toList()));
+        report.put("parentCaches", summarizeParentCaches());
+        return report;
+    }
+
+    /**
+     * Sets the number of the heaviest capabilities to report in detail (<code>endpoints.coffeecan.heaviest</code>).
+     *
+     * @param heaviest the number of capabilities.
+     */
+    public void setHeaviest(final int heaviest) {
+        this.heaviest = heaviest;
+    }
+
+    private CapabilityStatistics findStatistics(final BaseCapability capability) {
+        // A registered capability that is still being changed is skipped rather than failing the whole report.
+        for (int attempt = 0; attempt < STATISTICS_ATTEMPTS; ++attempt) {
+            try {
+                return capability.statistics();
+            } catch (final ConcurrentModificationException e) {
+                logger.debug("Capability " + capability.getClass().getName() + " changed while it was measured", e);
+            }
+        }
+
+        return null;
+    }
+
+    private Map<String, Object> summarizeCapabilityClasses(final List<CapabilityStatistics> capabilityStatistics) {
+        final Map<String, Object> capabilityClasses = new TreeMap<>();
+
+        capabilityStatistics.stream()
+                .collect(Collectors.groupingBy(CapabilityStatistics::getCapabilityClass))
+                .forEach((capabilityClass, statistics) -> {
+                    final Map<String, Object> summary = new LinkedHashMap<>();
+
+                    summary.put("capabilities", statistics.size());
+                    summary.put("rules", statistics.stream().mapToInt(CapabilityStatistics::getTotalRules).sum());
+                    summary.put("nodes", statistics.stream().mapToInt(CapabilityStatistics::getTotalNodes).sum());
+                    summary.put("maximumNodes",
+                                statistics.stream().mapToInt(CapabilityStatistics::getTotalNodes).max().orElse(0));
+                    capabilityClasses.put(capabilityClass, summary);
+                });
+
+        return capabilityClasses;
+    }
+
+    private List<Map<String, Object>> summarizeParentCaches() {
+        final List<Map<String, Object>> parentCaches = new ArrayList<>();
+
+        if (parentCacheInvalidator == null) {
+            return parentCaches;
+        }
+
+        for (final ParentCache<?, ?> parentCache : parentCacheInvalidator.getParentCaches()) {
+            final Map<String, Object> summary = new LinkedHashMap<>();
+
+            summary.put("cacheClass", parentCache.getClass().getName());
+            summary.put("parentClass", parentCache.getParentClass().getName());
+            if (parentCache instanceof TtlParentCache) {
+                final TtlParentCache<?, ?> ttlParentCache = (TtlParentCache<?, ?>) parentCache;
+
+                summary.put("size", ttlParentCache.size());
+                summary.put("decisionHitRatio",
+                            ratio(ttlParentCache.getDecisionHits(), ttlParentCache.getDecisionMisses()));
+            }
+            parentCaches.add(summary);
+        }
+
+        return parentCaches;
+    }
+
+    private double ratio(final long hits, final long misses) {
+        return (hits + misses == 0) ? 0.0 : (double) hits / (hits + misses);
+    }
+}
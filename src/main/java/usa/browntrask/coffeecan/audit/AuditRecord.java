@@ -0,0 +1,103 @@
+package usa.browntrask.coffeecan.audit;
+
+import usa.browntrask.coffeecan.metrics.Outcome;
+
+/**
+ * Record of an authorization decision to be audited.
+ * <p>
+ * Records are preallocated in the {@link AuditRingBuffer} and reused once they have been written, so an
+ * {@link AuditWriter} must not keep a reference to a record after its <code>write</code> method returns.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/21
+ */
+public class AuditRecord {
+
+    private long timestamp;
+    private String principal;
+    private String method;
+    private String action;
+    private Class<?> resourceClass;
+    private Object ids;
+    private Outcome outcome;
+
+    /**
+     * Returns the action.
+     *
+     * @return the action.
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Returns the identifiers of the resources, as matched from the request.
+     *
+     * @return the identifiers, or <code>null</code> if there were none.
+     */
+    public Object getIds() {
+        return ids;
+    }
+
+    /**
+     * Returns the HTTP method.
+     *
+     * @return the method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the outcome of the decision.
+     *
+     * @return the outcome.
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Returns the name of the user that made the request.
+     *
+     * @return the principal, or <code>null</code> if the request was not authenticated.
+     */
+    public String getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * Returns the class of resource.
+     *
+     * @return the resource class.
+     */
+    public Class<?> getResourceClass() {
+        return resourceClass;
+    }
+
+    /**
+     * Returns the time of the decision.
+     *
+     * @return the time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    void clear() {
+        set(0L, null, null, null, null, null, null);
+    }
+
+    void set(final long timestamp, final String principal, final String method, final String action,
+             final Class<?> resourceClass, final Object ids, final Outcome outcome) {
+        this.timestamp = timestamp;
+        this.principal = principal;
+        this.method = method;
+        this.action = action;
+        this.resourceClass = resourceClass;
+        this.ids = ids;
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,145 @@
+package usa.browntrask.coffeecan.audit;
+
+import usa.browntrask.coffeecan.metrics.Outcome;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free ring buffer of preallocated {@link AuditRecord audit records}, with any number of producers and
+ * a single consumer.
+ * <p>
+ * Each slot has a sequence number. A producer claims the slot at the tail when its sequence shows it is free, fills it
+ * in and then publishes it by advancing the sequence; the consumer takes published slots from the head and frees them
+ * again once they have been written. A producer that finds the buffer full fails immediately rather than waiting.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/21
+ */
+class AuditRingBuffer {
+
+    private final AuditRecord[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0L;
+
+    /**
+     * Constructs a ring buffer.
+     *
+     * @param capacity the minimum number of records held; it is rounded up to a power of two.
+     */
+    AuditRingBuffer(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+        records = new AuditRecord[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int index = 0; index < size; ++index) {
+            records[index] = new AuditRecord();
+            sequences.set(index, index);
+        }
+    }
+
+    /**
+     * Returns the number of records the buffer holds.
+     *
+     * @return the capacity.
+     */
+    int capacity() {
+        return records.length;
+    }
+
+    /**
+     * Drains up to a maximum number of published records into the batch. Must only be called by the consumer.
+     * <p>
+     * The records remain in the buffer until {@link #release(int)} is called.
+     * </p>
+     *
+     * @param batch   the list to add the records to.
+     * @param maximum the maximum number of records.
+     * @return the number of records added.
+     */
+    int drain(final List<AuditRecord> batch, final int maximum) {
+        final long position = head;
+        int count = 0;
+
+        while ((count < maximum) && (sequences.get(index(position + count)) == position + count + 1)) {
+            batch.add(records[index(position + count)]);
+            ++count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Offers a record to the buffer.
+     *
+     * @param timestamp     the time of the decision.
+     * @param principal     the name of the user.
+     * @param method        the HTTP method.
+     * @param action        the action.
+     * @param resourceClass the class of resource.
+     * @param ids           the identifiers of the resources.
+     * @param outcome       the outcome.
+     * @return <code>true</code> if the record was added, <code>false</code> if the buffer was full.
+     */
+    boolean offer(final long timestamp, final String principal, final String method, final String action,
+                  final Class<?> resourceClass, final Object ids, final Outcome outcome) {
+        long position = tail.get();
+
+        while (true) {
+            final int index = index(position);
+            final long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    records[index].set(timestamp, principal, method, action, resourceClass, ids, outcome);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+
+            } else if (difference < 0) {
+                // The slot still holds a record from the previous lap, so the buffer is full.
+                return false;
+
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Releases drained records so their slots can be reused. Must only be called by the consumer.
+     *
+     * @param count the number of records drained.
+     */
+    void release(final int count) {
+        final long position = head;
+
+        for (int offset = 0; offset < count; ++offset) {
+            final int index = index(position + offset);
+
+            records[index].clear();
+            sequences.lazySet(index, position + offset + records.length);
+        }
+        head = position + count;
+    }
+
+    /**
+     * Returns the approximate number of records in the buffer.
+     *
+     * @return the number of records.
+     */
+    int size() {
+        return (int) Math.max(0L, Math.min(records.length, tail.get() - head));
+    }
+
+    private int index(final long position) {
+        return (int) position & mask;
+    }
+}
@@ -0,0 +1,216 @@
+package usa.browntrask.coffeecan.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import usa.browntrask.coffeecan.metrics.Outcome;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit log of authorization decisions that does not make request threads wait for I/O.
+ * <p>
+ * Denied decisions, and allowed decisions for the configured sensitive actions, are placed in a preallocated
+ * {@link AuditRingBuffer}. A background thread, which parks while the buffer is empty, drains the buffer in batches
+ * and passes each batch to an {@link AuditWriter}. If the buffer is full, the record is dropped according to the
+ * {@link DropPolicy} and counted.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/21
+ */
+public class AuditSink implements AutoCloseable {
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final AuditWriter auditWriter;
+    private final AuditRingBuffer ringBuffer;
+    private final int batchSize;
+    private final DropPolicy dropPolicy;
+    private final Set<String> sensitiveActions;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final Thread writerThread;
+    private volatile boolean running = false;
+    private volatile boolean idle = false;
+
+    /**
+     * Constructs an audit sink.
+     *
+     * @param auditWriter      the writer for the batches of records.
+     * @param capacity         the number of records that can be queued.
+     * @param batchSize        the maximum number of records to write at a time.
+     * @param dropPolicy       the policy for dropping records when the writer cannot keep up.
+     * @param sensitiveActions the actions for which allowed decisions are audited as well as denied ones.
+     */
+    public AuditSink(final AuditWriter auditWriter, final int capacity, final int batchSize,
+                     final DropPolicy dropPolicy, final Set<String> sensitiveActions) {
+        super();
+
+        this.auditWriter = auditWriter;
+        this.ringBuffer = new AuditRingBuffer(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.dropPolicy = dropPolicy;
+        this.sensitiveActions = Collections.unmodifiableSet(new HashSet<>(sensitiveActions));
+        this.writerThread = new Thread(this::writeRecords, "coffeecan-audit");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Stops the background thread, writes any queued records and closes the writer.
+     *
+     * @throws java.io.IOException if there is a problem closing the writer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (running) {
+            running = false;
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        auditWriter.close();
+    }
+
+    /**
+     * Returns the number of records dropped because the buffer was full.
+     *
+     * @return the number of records.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of records lost because the writer failed to write them.
+     *
+     * @return the number of records.
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the number of records queued but not yet written.
+     *
+     * @return the approximate number of records.
+     */
+    public int getQueued() {
+        return ringBuffer.size();
+    }
+
+    /**
+     * Returns the number of records written.
+     *
+     * @return the number of records.
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * Records an authorization decision, if it should be audited. This never blocks.
+     *
+     * @param principal     the name of the user, or <code>null</code> if the request was not authenticated.
+     * @param method        the HTTP method.
+     * @param action        the action.
+     * @param resourceClass the class of resource.
+     * @param ids           the identifiers of the resources; these are converted to text by the writer.
+     * @param outcome       the outcome of the decision.
+     * @return <code>true</code> if the decision was queued to be audited, <code>false</code> if it is not audited or
+     * was dropped.
+     */
+    public boolean record(final String principal, final String method, final String action,
+                          final Class<?> resourceClass, final Object ids, final Outcome outcome) {
+        final boolean allowed = (outcome == Outcome.ALLOWED);
+
+        if (allowed && !sensitiveActions.contains(action)) {
+            return false;
+        }
+
+        if (allowed && (dropPolicy == DropPolicy.PREFER_DENIED) &&
+            (ringBuffer.size() >= ringBuffer.capacity() - ringBuffer.capacity() / 4)) {
+            dropped.increment();
+            return false;
+        }
+
+        if (!ringBuffer.offer(System.currentTimeMillis(), principal, method, action, resourceClass, ids, outcome)) {
+            dropped.increment();
+            return false;
+        }
+
+        if (idle) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    /**
+     * Starts the background thread that writes the queued records.
+     */
+    public void start() {
+        running = true;
+        writerThread.start();
+    }
+
+    /**
+     * Writes one batch of queued records. Must only be called by the background thread, or before the sink has
+     * been started.
+     *
+     * @param batch the list to use for the batch.
+     * @return the number of records in the batch.
+     */
+    int writeBatch(final List<AuditRecord> batch) {
+        final int count = ringBuffer.drain(batch, batchSize);
+
+        if (count == 0) {
+            return 0;
+        }
+
+        try {
+            auditWriter.write(batch);
+            written.add(count);
+        } catch (final IOException | RuntimeException e) {
+            failed.add(count);
+            logger.error("Failed to write " + count + " audit records", e);
+        } finally {
+            batch.clear();
+            ringBuffer.release(count);
+        }
+
+        return count;
+    }
+
+    private void writeRecords() {
+        final List<AuditRecord> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            if (writeBatch(batch) == 0) {
+                // Park until a record is offered; the timeout only guards against a missed wake up.
+                idle = true;
+                if (running && (ringBuffer.size() == 0)) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                idle = false;
+            }
+        }
+
+        while (writeBatch(batch) > 0) {
+            // Write the records queued before the sink was closed.
+        }
+    }
+}
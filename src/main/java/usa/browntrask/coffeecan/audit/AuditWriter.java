@@ -0,0 +1,27 @@
+package usa.browntrask.coffeecan.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface for objects that write batches of {@link AuditRecord audit records} to durable storage.
+ * <p>
+ * Writers are called from the {@link AuditSink}'s background thread only, so they need not be thread safe. The
+ * records are reused once {@link #write(List)} returns.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/21
+ */
+public interface AuditWriter extends Closeable {
+
+    /**
+     * Writes a batch of audit records.
+     *
+     * @param records the records.
+     * @throws java.io.IOException if there is a problem writing the records.
+     */
+    void write(List<AuditRecord> records) throws IOException;
+}
@@ -0,0 +1,25 @@
+package usa.browntrask.coffeecan.audit;
+
+/**
+ * Policy for dropping audit records when the {@link AuditSink} cannot keep up.
+ * <p>
+ * Request threads never wait for the audit log; a record that cannot be queued is dropped and counted instead.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/21
+ */
+public enum DropPolicy {
+
+    /**
+     * Drop a new record of any outcome once the buffer is full.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop new records of allowed decisions once the buffer is three quarters full, keeping the remaining space for
+     * denied decisions; drop any new record once the buffer is full.
+     */
+    PREFER_DENIED
+}
@@ -0,0 +1,88 @@
+package usa.browntrask.coffeecan.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * {@link AuditWriter} that appends audit records to a file through a memory-mapped region.
+ * <p>
+ * Each record is written as a line of tab-separated fields: the time, principal, HTTP method, action, resource
+ * class, identifiers and outcome. The file is mapped a region at a time; when a region is full, the next one is
+ * mapped from the end of the last record. The file is truncated to the last record when the writer is closed.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/21
+ */
+public class MappedFileAuditWriter implements AuditWriter {
+
+    private final FileChannel fileChannel;
+    private final int regionSize;
+    private MappedByteBuffer region;
+    private long regionStart;
+
+    /**
+     * Constructs a writer appending to a file.
+     *
+     * @param path       the path of the file.
+     * @param regionSize the number of bytes to map at a time.
+     * @throws java.io.IOException if there is a problem opening the file.
+     */
+    public MappedFileAuditWriter(final Path path, final int regionSize) throws IOException {
+        super();
+
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE);
+        this.regionSize = Math.max(4096, regionSize);
+        map(fileChannel.size(), this.regionSize);
+    }
+
+    /**
+     * Flushes the written records to the file, truncates the file after the last record and closes it.
+     *
+     * @throws java.io.IOException if there is a problem closing the file.
+     */
+    @Override
+    public void close() throws IOException {
+        region.force();
+        fileChannel.truncate(regionStart + region.position());
+        fileChannel.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final List<AuditRecord> records) throws IOException {
+        for (final AuditRecord record : records) {
+            final byte[] line = format(record).getBytes(StandardCharsets.UTF_8);
+
+            if (region.remaining() < line.length) {
+                map(regionStart + region.position(), Math.max(regionSize, line.length));
+            }
+            region.put(line);
+        }
+    }
+
+    private String format(final AuditRecord record) {
+        return Instant.ofEpochMilli(record.getTimestamp()) + "\t" +
+               record.getPrincipal() + "\t" +
+               record.getMethod() + "\t" +
+               record.getAction() + "\t" +
+               ((record.getResourceClass() == null) ? null : record.getResourceClass().getName()) + "\t" +
+               record.getIds() + "\t" +
+               record.getOutcome().getTag() + "\n";
+    }
+
+    private void map(final long position, final int size) throws IOException {
+        region = fileChannel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        regionStart = position;
+    }
+}
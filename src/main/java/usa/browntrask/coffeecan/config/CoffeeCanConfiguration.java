@@ -1,19 +1,263 @@
 package usa.browntrask.coffeecan.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import usa.browntrask.coffeecan.CapabilityFactory;
+import usa.browntrask.coffeecan.CapabilityRegistry;
 import usa.browntrask.coffeecan.CoffeeCanInterceptor;
+import usa.browntrask.coffeecan.MemoizingCapabilityFactory;
+import usa.browntrask.coffeecan.ParentCacheInvalidator;
+import usa.browntrask.coffeecan.PolicyException;
+import usa.browntrask.coffeecan.PolicyHolder;
+import usa.browntrask.coffeecan.PolicyLoader;
+import usa.browntrask.coffeecan.PolicyWatcher;
+import usa.browntrask.coffeecan.actuate.CoffeeCanEndpoint;
+import usa.browntrask.coffeecan.audit.AuditSink;
+import usa.browntrask.coffeecan.audit.AuditWriter;
+import usa.browntrask.coffeecan.audit.DropPolicy;
+import usa.browntrask.coffeecan.audit.MappedFileAuditWriter;
+import usa.browntrask.coffeecan.metrics.CoffeeCanMetrics;
+import usa.browntrask.coffeecan.metrics.StatementInspectorRegistrar;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 @Configuration
 @ComponentScan("usa.browntrask.coffeecan")
 @EnableWebMvc
 public class CoffeeCanConfiguration extends WebMvcConfigurerAdapter {
 
+    /**
+     * The name of the executor used to load and authorize resources for asynchronous handler methods.
+     */
+    public static final String ASYNC_EXECUTOR = "coffeeCanExecutor";
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    @Value("${coffeecan.server-timing:false}")
+    private boolean serverTiming;
+
+    @Autowired
+    private ObjectProvider<AuditSink> auditSink;
+
+    @Autowired
+    private ObjectProvider<AuditWriter> auditWriter;
+
+    /**
+     * Returns the post processor that registers the statement inspector used to count the SQL statements issued by
+     * CoffeeCan.
+     *
+     * @return the post processor.
+     */
+    @Bean
+    public static StatementInspectorRegistrar coffeeCanStatementInspectorRegistrar() {
+        return new StatementInspectorRegistrar();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If <code>coffeecan.server-timing</code> is set, the interceptor reports the time taken and SQL statements issued
+     * to authorize each request in a <code>Server-Timing</code> response header.
+     * </p>
+     */
     @Override
     public void addInterceptors(final InterceptorRegistry registry) {
-        registry.addInterceptor(new CoffeeCanInterceptor());
+        registry.addInterceptor(new CoffeeCanInterceptor(coffeeCanMetrics(), serverTiming,
+                                                         auditSink.getIfAvailable()));
+    }
+
+    /**
+     * Returns the sink that audits denied decisions, and allowed decisions for sensitive actions, when
+     * <code>coffeecan.audit.enabled</code> is set.
+     * <p>
+     * The records are written by the application's {@link AuditWriter} bean if it has one, or appended to a
+     * memory-mapped file otherwise.
+     * </p>
+     *
+     * @param file             the file to append to (<code>coffeecan.audit.file</code>).
+     * @param regionSize       the number of bytes of the file to map at a time
+     *                         (<code>coffeecan.audit.region-size</code>).
+     * @param capacity         the number of records that can be queued (<code>coffeecan.audit.capacity</code>).
+     * @param batchSize        the maximum number of records to write at a time
+     *                         (<code>coffeecan.audit.batch-size</code>).
+     * @param dropPolicy       the policy for dropping records when the queue is full
+     *                         (<code>coffeecan.audit.drop-policy</code>).
+     * @param sensitiveActions the actions for which allowed decisions are audited
+     *                         (<code>coffeecan.audit.sensitive-actions</code>).
+     * @return the audit sink.
+     * @throws java.io.IOException if there is a problem opening the file.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "coffeecan.audit.enabled", havingValue = "true")
+    public AuditSink coffeeCanAuditSink(@Value("${coffeecan.audit.file:coffeecan-audit.log}") final String file,
+                                        @Value("${coffeecan.audit.region-size:1048576}") final int regionSize,
+                                        @Value("${coffeecan.audit.capacity:8192}") final int capacity,
+                                        @Value("${coffeecan.audit.batch-size:256}") final int batchSize,
+                                        @Value("${coffeecan.audit.drop-policy:DROP_NEWEST}")
+                                        final DropPolicy dropPolicy,
+                                        @Value("${coffeecan.audit.sensitive-actions:}")
+                                        final String[] sensitiveActions) throws IOException {
+        final AuditWriter writer = auditWriter.getIfAvailable();
+        final AuditSink sink = new AuditSink(
+                (writer == null) ? new MappedFileAuditWriter(Paths.get(file), regionSize) : writer,
+                capacity,
+                batchSize,
+                dropPolicy,
+                new HashSet<>(Arrays.asList(sensitiveActions)));
+
+        sink.start();
+        return sink;
+    }
+
+    /**
+     * Returns the actuator endpoint reporting on the capabilities in memory and the parent caches.
+     *
+     * @param parentCacheInvalidator the invalidator with which parent caches are registered.
+     * @return the endpoint.
+     */
+    @Bean
+    public CoffeeCanEndpoint coffeeCanEndpoint(final ParentCacheInvalidator parentCacheInvalidator) {
+        return new CoffeeCanEndpoint(CapabilityRegistry.global(), parentCacheInvalidator);
+    }
+
+    /**
+     * Returns the holder of the capability policy loaded from the YAML policy file at
+     * <code>coffeecan.policy.location</code>, if it is set.
+     * <p>
+     * The policy is verified as it is loaded, so a policy with an unknown resource class, field path or a value that
+     * cannot be compared with its field stops the application from starting. Each time a new policy is published,
+     * the registered parent caches are invalidated.
+     * </p>
+     *
+     * @param location               the location of the policy file (<code>coffeecan.policy.location</code>).
+     * @param resourceLoader         the loader used to open the policy file and resolve the resource classes.
+     * @param parentCacheInvalidator the invalidator with which parent caches are registered.
+     * @return the policy holder.
+     * @throws java.io.IOException                      if the policy file cannot be read.
+     * @throws usa.browntrask.coffeecan.PolicyException if the policy is not valid.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "coffeecan.policy.location")
+    public PolicyHolder coffeeCanPolicyHolder(@Value("${coffeecan.policy.location}") final String location,
+                                              final ResourceLoader resourceLoader,
+                                              final ParentCacheInvalidator parentCacheInvalidator)
+            throws IOException, PolicyException {
+        final PolicyHolder policyHolder = new PolicyHolder(new PolicyLoader(resourceLoader.getClassLoader()),
+                                                           resourceLoader.getResource(location));
+
+        policyHolder.addListener(generation -> parentCacheInvalidator.invalidateAll());
+        return policyHolder;
+    }
+
+    /**
+     * Returns the factory that builds a capability from the policy once for each set of roles, if
+     * <code>coffeecan.policy.location</code> is set.
+     *
+     * @param policyHolder the holder of the policy.
+     * @param maximumSize  the maximum number of role sets for which capabilities are cached
+     *                     (<code>coffeecan.policy.capability-cache-size</code>).
+     * @return the capability factory.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "coffeecan.policy.location")
+    public CapabilityFactory coffeeCanCapabilityFactory(final PolicyHolder policyHolder,
+                                                        @Value("${coffeecan.policy.capability-cache-size:256}")
+                                                        final int maximumSize) {
+        return new MemoizingCapabilityFactory(policyHolder, maximumSize);
+    }
+
+    /**
+     * Returns the watcher that reloads the policy file when it changes, if
+     * <code>coffeecan.policy.reload-interval</code> is set.
+     *
+     * @param policyHolder   the holder of the policy.
+     * @param intervalMillis the interval between checks of the policy file, in milliseconds
+     *                       (<code>coffeecan.policy.reload-interval</code>).
+     * @return the policy watcher.
+     * @throws java.io.IOException if the policy location is not a file.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = {"coffeecan.policy.location", "coffeecan.policy.reload-interval"})
+    public PolicyWatcher coffeeCanPolicyWatcher(final PolicyHolder policyHolder,
+                                                @Value("${coffeecan.policy.reload-interval}")
+                                                final long intervalMillis) throws IOException {
+        return new PolicyWatcher(policyHolder, intervalMillis);
+    }
+
+    /**
+     * Returns the metrics recorded by CoffeeCan. The metrics are recorded to the application's meter registry if
+     * there is one, or to the Micrometer global registry otherwise.
+     *
+     * @return the metrics.
+     */
+    @Bean
+    public CoffeeCanMetrics coffeeCanMetrics() {
+        return (meterRegistry == null) ? CoffeeCanMetrics.global() : new CoffeeCanMetrics(meterRegistry);
+    }
+
+    /**
+     * Returns the executor used to load and authorize resources for asynchronous handler methods.
+     * <p>
+     * By default, this is a bounded thread pool; requests are rejected once all of the threads are busy and the queue
+     * is full. If <code>coffeecan.async.virtual-threads</code> is set and the JVM supports virtual threads, each
+     * retrieval runs on its own virtual thread instead, and concurrency is bounded by the database connection pool.
+     * </p>
+     *
+     * @param virtualThreads whether to use virtual threads (<code>coffeecan.async.virtual-threads</code>).
+     * @param poolSize       the number of threads (<code>coffeecan.async.pool-size</code>).
+     * @param queueCapacity  the number of retrievals that can wait for a thread
+     *                       (<code>coffeecan.async.queue-capacity</code>).
+     * @return the executor.
+     */
+    @Bean(name = ASYNC_EXECUTOR)
+    public Executor coffeeCanExecutor(@Value("${coffeecan.async.virtual-threads:false}") final boolean virtualThreads,
+                                      @Value("${coffeecan.async.pool-size:8}") final int poolSize,
+                                      @Value("${coffeecan.async.queue-capacity:100}") final int queueCapacity) {
+        if (virtualThreads) {
+            final Executor virtualThreadExecutor = createVirtualThreadExecutor();
+            if (virtualThreadExecutor != null) {
+                return virtualThreadExecutor;
+            }
+
+            logger.warn("Virtual threads are not supported by this JVM; using a pool of " + poolSize + " threads");
+        }
+
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("coffeecan-");
+        return executor;
+    }
+
+    private Executor createVirtualThreadExecutor() {
+        // CoffeeCan is compiled for Java 8, so the virtual thread executor can only be found reflectively.
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
     }
 }
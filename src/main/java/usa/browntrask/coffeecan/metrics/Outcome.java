@@ -0,0 +1,39 @@
+package usa.browntrask.coffeecan.metrics;
+
+/**
+ * Outcome of an authorization, used to tag CoffeeCan metrics.
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/16
+ */
+public enum Outcome {
+    ALLOWED("allowed"),
+    DENIED("denied"),
+    ERROR("error");
+
+    private final String tag;
+
+    Outcome(final String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Returns the outcome for an authorization result.
+     *
+     * @param allowed <code>true</code> if access was allowed, <code>false</code> if it was denied.
+     * @return the outcome.
+     */
+    public static Outcome of(final boolean allowed) {
+        return allowed ? ALLOWED : DENIED;
+    }
+
+    /**
+     * Returns the value of the outcome tag.
+     *
+     * @return the tag value.
+     */
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,60 @@
+package usa.browntrask.coffeecan.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate {@link org.hibernate.resource.jdbc.spi.StatementInspector} that counts the SQL statements prepared on
+ * the current thread while a count is in progress.
+ * <p>
+ * The {@link usa.browntrask.coffeecan.CoffeeCanInterceptor} starts a count before it loads and authorizes the
+ * resources for a request and ends it afterwards, so the count covers the statements issued by CoffeeCan, including
+ * those issued by lazy loading while matching authorization criteria. Statements prepared when no count is in
+ * progress are not counted.
+ * </p>
+ * <p>
+ * Hibernate creates the inspector itself, so the counts are kept in a thread local rather than in the instance.
+ * {@link StatementInspectorRegistrar} registers the inspector with the entity manager factory.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/17
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<long[]> COUNT = new ThreadLocal<>();
+
+    /**
+     * Starts counting the statements prepared on the current thread.
+     */
+    public static void begin() {
+        COUNT.set(new long[1]);
+    }
+
+    /**
+     * Stops counting the statements prepared on the current thread.
+     *
+     * @return the number of statements prepared since {@link #begin()} was called, or <code>0</code> if it was not.
+     */
+    public static long end() {
+        final long[] count = COUNT.get();
+
+        COUNT.remove();
+        return (count == null) ? 0L : count[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String inspect(final String sql) {
+        final long[] count = COUNT.get();
+
+        if (count != null) {
+            ++count[0];
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,42 @@
+package usa.browntrask.coffeecan.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+/**
+ * Registers the {@link SqlStatementCounter} as the Hibernate statement inspector of each entity manager factory,
+ * before the factory is built.
+ * <p>
+ * An application that already configures its own statement inspector keeps it, and CoffeeCan's statement counts
+ * will then be zero.
+ * </p>
+ *
+ * @author Ian Brown
+ * @version 1.0.0
+ * @since 2018/05/17
+ */
+public class StatementInspectorRegistrar implements BeanPostProcessor {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object postProcessBeforeInitialization(final Object bean, final String beanName) throws BeansException {
+        if (bean instanceof AbstractEntityManagerFactoryBean) {
+            ((AbstractEntityManagerFactoryBean) bean).getJpaPropertyMap()
+                    .putIfAbsent(AvailableSettings.STATEMENT_INSPECTOR, SqlStatementCounter.class.getName());
+        }
+
+        return bean;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) throws BeansException {
+        return bean;
+    }
+}
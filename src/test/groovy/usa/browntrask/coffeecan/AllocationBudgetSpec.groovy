@@ -0,0 +1,109 @@
+package usa.browntrask.coffeecan
+
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Fails when an authorization operation allocates more than its budget, so that allocation regressions in
+ * {@link BaseCapability} and the criteria classes are caught before they are released.
+ * <p>
+ * The budgets are the bytes allocated per operation once it has been compiled, with headroom for differences between
+ * JVMs. Lower a budget when an operation is made cheaper; raise one only when the extra allocation is intended.
+ * </p>
+ * <p>
+ * As the budgets depend on the JVM, they are only checked when the <code>coffeecan.allocation.budgets</code> system
+ * property is <code>true</code>, for example <code>./gradlew test -Dcoffeecan.allocation.budgets=true</code>. Check
+ * them on the JVM the budgets were set with rather than on every build.
+ * </p>
+ */
+@Requires({ Boolean.getBoolean("coffeecan.allocation.budgets") && AllocationMeter.isSupported() })
+class AllocationBudgetSpec extends Specification {
+
+    @Shared
+    AllocationMeter allocationMeter = new AllocationMeter(20000, 5000)
+
+    private static AuthorizationCriteriaBuilder<TestEntity> acb = new AuthorizationCriteriaBuilder<>(TestEntity)
+
+    @Unroll
+    def "#operation allocates at most #budget bytes"() {
+        given:
+        TestEntityCapability.Capability capability = new TestEntityCapability().with { setup(); it.capability }
+        allowed.each { capability.can(Capability.READ, TestEntity, it) }
+        denied.each { capability.cannot(Capability.READ, TestEntity, it) }
+
+        and:
+        TestParentEntity parent = new TestParentEntity(1L)
+        parent.integerField = 1
+
+        and:
+        TestEntity testEntity = new TestEntity(1L)
+        testEntity.stringField = "String"
+        testEntity.integerField = 9
+        testEntity.sharedParent = parent
+
+        when:
+        long allocated = allocationMeter.bytesPerOperation({ run(capability, testEntity) } as AllocationMeter.Operation)
+
+        then:
+        allocated <= budget
+
+        where:
+        operation                        | budget | allowed             | denied            | run
+        "allows with no rules"           | 1500   | []                  | []                | ALLOWS
+        "allows with one rule"           | 2500   | [stringFieldIs()]   | []                | ALLOWS
+        "allows with ten rules"          | 15500  | integerFieldRules() | []                | ALLOWS
+        "allows through an association"  | 5000   | [parentFieldIs()]   | []                | ALLOWS
+        "denies with one rule"           | 2600   | []                  | [stringFieldIs()] | DENIES
+        "toSpecification with ten rules" | 1000   | integerFieldRules() | []                | TO_SPECIFICATION
+        "building a two term criteria"   | 9500   | []                  | []                | BUILD
+        "layering over ten rules"        | 2100   | integerFieldRules() | []                | LAYER
+        "adding ten rules"               | 11000  | []                  | []                | ADD_RULES
+    }
+
+    private static final Closure ALLOWS = { Capability capability, TestEntity testEntity ->
+        capability.allows(Capability.READ, testEntity)
+    }
+
+    private static final Closure DENIES = { Capability capability, TestEntity testEntity ->
+        capability.denies(Capability.READ, testEntity)
+    }
+
+    private static final Closure TO_SPECIFICATION = { Capability capability, TestEntity testEntity ->
+        capability.toSpecification(Capability.READ, TestEntity)
+    }
+
+    private static final Closure BUILD = { Capability capability, TestEntity testEntity ->
+        acb.compare("stringField", Operation.EQUALS, "String")
+                .and()
+                .compare("integerField", Operation.EQUALS, 9)
+                .build()
+    }
+
+    private static final Closure LAYER = { Capability capability, TestEntity testEntity ->
+        new TestLayeredCapability(capability).can(Capability.READ, TestEntity, OWN_RULE)
+    }
+
+    private static final Closure ADD_RULES = { Capability capability, TestEntity testEntity ->
+        TestEntityCapability.Capability added = new TestEntityCapability().with { setup(); it.capability }
+        TEN_RULES.each { added.can(Capability.READ, TestEntity, it) }
+        added.can(Capability.READ, TestEntity, OWN_RULE)
+    }
+
+    private static final AuthorizationCriteria<TestEntity> OWN_RULE = stringFieldIs()
+
+    private static final List<AuthorizationCriteria<TestEntity>> TEN_RULES = integerFieldRules()
+
+    private static AuthorizationCriteria<TestEntity> stringFieldIs() {
+        return acb.compare("stringField", Operation.EQUALS, "String").build()
+    }
+
+    private static AuthorizationCriteria<TestEntity> parentFieldIs() {
+        return acb.compare("sharedParent.integerField", Operation.EQUALS, 1).build()
+    }
+
+    private static List<AuthorizationCriteria<TestEntity>> integerFieldRules() {
+        return (0..9).collect { acb.compare("integerField", Operation.EQUALS, it).build() }
+    }
+}
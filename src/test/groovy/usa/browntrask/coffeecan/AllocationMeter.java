@@ -0,0 +1,77 @@
+package usa.browntrask.coffeecan;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated on the current thread by an operation, using the HotSpot
+ * {@link com.sun.management.ThreadMXBean}.
+ */
+public class AllocationMeter {
+
+    /**
+     * An operation to measure.
+     */
+    @FunctionalInterface
+    public interface Operation {
+
+        Object run() throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+
+    // Publishing the result of the last run keeps it reachable, so that the operation cannot be optimized away.
+    private static volatile Object sink;
+
+    private final int warmupIterations;
+    private final int iterations;
+
+    public AllocationMeter(final int warmupIterations, final int iterations) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+    }
+
+    public static boolean isSupported() {
+        return (THREAD_MX_BEAN != null) && THREAD_MX_BEAN.isThreadAllocatedMemorySupported();
+    }
+
+    /**
+     * Returns the average number of bytes allocated by each run of the operation, once it has been warmed up so that
+     * it is compiled.
+     *
+     * @param operation the operation.
+     * @return the bytes allocated per run.
+     * @throws Exception if the operation fails.
+     */
+    public long bytesPerOperation(final Operation operation) throws Exception {
+        final long threadId = Thread.currentThread().getId();
+        final boolean enabled = THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled();
+        Object result = null;
+
+        THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(true);
+        try {
+            for (int iteration = 0; iteration < warmupIterations; ++iteration) {
+                result = operation.run();
+            }
+
+            final long before = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+            for (int iteration = 0; iteration < iterations; ++iteration) {
+                result = operation.run();
+            }
+            final long after = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+
+            return (after - before) / iterations;
+
+        } finally {
+            THREAD_MX_BEAN.setThreadAllocatedMemoryEnabled(enabled);
+            sink = result;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        return (threadMXBean instanceof com.sun.management.ThreadMXBean) ?
+               (com.sun.management.ThreadMXBean) threadMXBean :
+               null;
+    }
+}
@@ -0,0 +1,99 @@
+package usa.browntrask.coffeecan
+
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.test.context.ContextConfiguration
+import org.springframework.transaction.annotation.Transactional
+import spock.lang.Specification
+
+@ContextConfiguration
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class AuthorizationPlannerIntegrationSpec extends Specification {
+
+    @Autowired
+    TestParentEntityRepository testParentEntityRepository
+
+    @Autowired
+    TestEntityRepository testEntityRepository
+
+    @Transactional
+    def "Offset comparisons are matched in memory after the database prefilter"() {
+        given:
+        TestParentEntity matching = createParent(1, [5, 7])
+        createParent(1, [3])
+        createParent(2, [5])
+
+        and:
+        BaseCapability capability = new BaseCapability() {}
+        capability.can(Capability.READ, TestParentEntity, new AuthorizationCriteriaBuilder<>(TestParentEntity)
+                .compare("integerField", Operation.EQUALS, 1)
+                .and()
+                .compare("children[0].integerField", Operation.EQUALS, 5)
+                .build())
+
+        when:
+        AuthorizationPlan<TestParentEntity> plan = capability.toPlan(Capability.READ, TestParentEntity)
+
+        and:
+        List<TestParentEntity> prefiltered = testParentEntityRepository.findAll(plan.specification)
+
+        then:
+        !plan.exact
+
+        and:
+        prefiltered.size() == 2
+
+        and:
+        prefiltered.findAll { plan.matchesResidual(it) }.collect { it.id } == [matching.id]
+    }
+
+    @Transactional
+    def "Offsets into lists with an order column are matched by the database"() {
+        given:
+        TestParentEntity matching = createRankedParent([5, 7])
+        createRankedParent([7, 5])
+        createRankedParent([])
+
+        and:
+        AuthorizationCriteria<TestParentEntity> authorizationCriteria =
+                new AuthorizationCriteriaBuilder<>(TestParentEntity)
+                        .compare("rankedChildren[0].integerField", Operation.EQUALS, 5)
+                        .build()
+
+        when:
+        AuthorizationPlan<TestParentEntity> plan = new AuthorizationPlanner().plan(authorizationCriteria)
+
+        and:
+        List<TestParentEntity> results = testParentEntityRepository.findAll(authorizationCriteria.toSpecification())
+
+        then:
+        plan.exact
+
+        and:
+        results.collect { it.id } == [matching.id]
+
+        and:
+        results.every { authorizationCriteria.matches(it) }
+    }
+
+    private TestParentEntity createRankedParent(final List<Integer> rankedIntegerFields) {
+        TestParentEntity parent = new TestParentEntity()
+
+        rankedIntegerFields.each { rankedIntegerField ->
+            parent.rankedChildren << testEntityRepository.save(new TestEntity(integerField: rankedIntegerField))
+        }
+
+        return testParentEntityRepository.save(parent)
+    }
+
+    private TestParentEntity createParent(final Integer integerField, final List<Integer> childIntegerFields) {
+        TestParentEntity parent = testParentEntityRepository.save(new TestParentEntity(integerField: integerField))
+
+        childIntegerFields.each { childIntegerField ->
+            parent.children << testEntityRepository.save(
+                    new TestEntity(integerField: childIntegerField, sharedParent: parent))
+        }
+
+        return parent
+    }
+}
@@ -0,0 +1,60 @@
+package usa.browntrask.coffeecan
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class AuthorizationPlannerSpec extends Specification {
+
+    AuthorizationPlanner authorizationPlanner = new AuthorizationPlanner()
+
+    static ComparisonAuthorizationCriteria<TestParentEntity> field = new ComparisonAuthorizationCriteria<>(
+            TestParentEntity, "integerField", Operation.EQUALS, 1)
+
+    static ComparisonAuthorizationCriteria<TestParentEntity> offset = new ComparisonAuthorizationCriteria<>(
+            TestParentEntity, "children[0].integerField", Operation.EQUALS, 5)
+
+    static ComparisonAuthorizationCriteria<TestParentEntity> orderedOffset = new ComparisonAuthorizationCriteria<>(
+            TestParentEntity, "rankedChildren[0].integerField", Operation.EQUALS, 5)
+
+    @Unroll("Plan for #authorizationCriteria has residual #expectedResidual")
+    def "Plans push what they can to the database and keep the rest as the residual"() {
+        when:
+        AuthorizationPlan<TestParentEntity> plan = authorizationPlanner.plan(authorizationCriteria)
+
+        then:
+        plan.specification != null
+
+        and:
+        expectedResidual == plan.residual
+
+        and:
+        (expectedResidual == null) == plan.exact
+
+        where:
+        authorizationCriteria                                        || expectedResidual
+        field                                                        || null
+        offset                                                       || offset
+        orderedOffset                                                || null
+        new TrueAuthorizationCriteria<TestParentEntity>()            || null
+        new AndAuthorizationCriteria<TestParentEntity>(field, field) || null
+        new AndAuthorizationCriteria<TestParentEntity>(field, offset) || offset
+        new OrAuthorizationCriteria<TestParentEntity>(field, field)  || null
+        new OrAuthorizationCriteria<TestParentEntity>(field, offset) || new OrAuthorizationCriteria<TestParentEntity>(field, offset)
+        new NotAuthorizationCriteria<TestParentEntity>(field)        || null
+        new NotAuthorizationCriteria<TestParentEntity>(offset)       || new NotAuthorizationCriteria<TestParentEntity>(offset)
+        new NotAuthorizationCriteria<TestParentEntity>(orderedOffset) || null
+    }
+
+    def "The residual of an AND combines the residuals of its children"() {
+        given:
+        ComparisonAuthorizationCriteria<TestParentEntity> otherOffset = new ComparisonAuthorizationCriteria<>(
+                TestParentEntity, "children[1].integerField", Operation.EQUALS, 7)
+
+        when:
+        AuthorizationPlan<TestParentEntity> plan = authorizationPlanner.plan(
+                new AndAuthorizationCriteria<TestParentEntity>(offset, field, otherOffset))
+
+        then:
+        new AndAuthorizationCriteria<TestParentEntity>(offset, otherOffset) == plan.residual
+    }
+}
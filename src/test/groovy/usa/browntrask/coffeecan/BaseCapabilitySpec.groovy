@@ -317,4 +317,52 @@ class BaseCapabilitySpec extends Specification {
         Capability.DELETE | "A"         | 3            || false
         "user-defined"    | "A"         | 1            || false
     }
+
+    def "Explains which controlling action and criteria allowed the action"() {
+        given:
+        TestEntity resource = new TestEntity(stringField: "A", integerField: 1)
+
+        and:
+        capability.can(
+                Capability.READ,
+                TestEntity.class,
+                builder.compare("stringField", Operation.EQUALS, "A")
+                        .or()
+                        .compare("integerField", Operation.EQUALS, 2)
+                        .build())
+        capability.can(Capability.MANAGE, TestEntity.class, new FalseAuthorizationCriteria<TestEntity>())
+
+        when:
+        DecisionTrace decisionTrace = capability.explain(Capability.SHOW, resource)
+
+        then:
+        decisionTrace.allowed == capability.allows(Capability.SHOW, resource)
+
+        and:
+        decisionTrace.actualAction == Capability.READ
+        decisionTrace.controllingActions == [Capability.READ, Capability.MANAGE, Capability.CRUD]
+
+        and:
+        decisionTrace.actionNodes*.description == [Capability.READ, Capability.MANAGE]
+        decisionTrace.actionNodes*.result == [true, null]
+
+        and:
+        DecisionTrace.Node or = decisionTrace.actionNodes[0].children[0].children.last()
+        or.description == "OR"
+        or.shortCircuited
+        or.children*.result == [true, null]
+    }
+
+    def "Explains a decision made by default access"() {
+        given:
+        capability.setDefaultAccess(false)
+
+        when:
+        DecisionTrace decisionTrace = capability.explain(Capability.READ, new TestEntity())
+
+        then:
+        !decisionTrace.allowed
+        decisionTrace.defaultDecision
+        decisionTrace.actionNodes.isEmpty()
+    }
 }
@@ -1,5 +1,6 @@
 package usa.browntrask.coffeecan
 
+import groovy.json.JsonSlurper
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.boot.test.web.client.TestRestTemplate
@@ -22,6 +23,9 @@ class BaseChildResourceIntegrationSpec extends Specification {
     @Autowired
     TestEntityCapability testEntityCapability
 
+    @Autowired
+    TestChildEntityResource testChildEntityResource
+
     @Autowired
     private TestRestTemplate restTemplate
 
@@ -79,4 +83,167 @@ class BaseChildResourceIntegrationSpec extends Specification {
         and:
         result.body.collect {resultEntity -> unexpectedIds.contains(resultEntity.id) ? 1 : 0 }.sum() == 0
     }
+
+    @Unroll
+    def "Authorizes the parent using criteria on its associations when #description"() {
+        given:
+        TestParentEntity testParentEntity = testParentEntityRepository.save(new TestParentEntity())
+
+        and:
+        List<TestEntity> testEntities = (1..2).collect { value ->
+            testEntityRepository.save(new TestEntity(sharedParent: testParentEntity, integerField: value))
+        }
+
+        and:
+        testParentEntity.rankedChildren = [testEntityRepository.save(new TestEntity(integerField: 7))]
+        testParentEntityRepository.save(testParentEntity)
+
+        and:
+        testEntityCapability.capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+        testEntityCapability.capability.can(Capability.READ, TestParentEntity,
+                                            new AuthorizationCriteriaBuilder<>(TestParentEntity)
+                                                    .compare("children.integerField", Operation.EQUALS, childValue)
+                                                    .or()
+                                                    .compare("rankedChildren[0].integerField", Operation.EQUALS,
+                                                             rankedValue)
+                                                    .build())
+
+        when:
+        ResponseEntity<String> result = restTemplate.exchange("/parentEntities/${testParentEntity.id}/entities",
+                                                              HttpMethod.GET, null, String)
+
+        then:
+        result.status == expectedStatus
+
+        and:
+        (expectedStatus != 200) ||
+        (new JsonSlurper().parseText(result.body).collect { it.id as Long }.sort() == testEntities*.id.sort())
+
+        cleanup:
+        testParentEntity.rankedChildren = []
+        testParentEntityRepository.save(testParentEntity)
+
+        where:
+        description                | childValue | rankedValue || expectedStatus
+        "a child matches"          | 2          | 0           || 200
+        "a ranked child matches"   | 0          | 7           || 200
+        "no associations match"    | 0          | 0           || 500
+    }
+
+    def "Authorizes the parent through the authorizeObject hook"() {
+        given:
+        TestParentEntity testParentEntity = testParentEntityRepository.save(
+                new TestParentEntity(integerField: TestChildEntityResource.VETOED))
+
+        and:
+        testEntityCapability.capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+        testEntityCapability.capability.can(Capability.READ, TestParentEntity,
+                                            new TrueAuthorizationCriteria<TestParentEntity>())
+
+        when:
+        ResponseEntity<String> result = restTemplate.exchange("/parentEntities/${testParentEntity.id}/entities",
+                                                              HttpMethod.GET, null, String)
+
+        then:
+        result.status == 500
+    }
+
+    def "Caches the authorization of the parent until the parent is updated"() {
+        given:
+        TestParentEntity testParentEntity = testParentEntityRepository.save(new TestParentEntity(integerField: 1))
+
+        and:
+        testEntityCapability.capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+        testEntityCapability.capability.can(Capability.READ, TestParentEntity,
+                                            new AuthorizationCriteriaBuilder<>(TestParentEntity)
+                                                    .compare("integerField", Operation.EQUALS, 1)
+                                                    .build())
+
+        when:
+        ResponseEntity<TestEntity[]> result = restTemplate.exchange("/parentEntities/${testParentEntity.id}/entities",
+                                                                    HttpMethod.GET, null, TestEntity[])
+
+        then:
+        result.status == 200
+
+        and:
+        testChildEntityResource.parentCache.getDecision(testParentEntity.id, null, "read",
+                                                        testEntityCapability.capability)
+
+        when:
+        testParentEntity.integerField = 2
+        testParentEntityRepository.save(testParentEntity)
+
+        then:
+        testChildEntityResource.parentCache.getDecision(testParentEntity.id, null, "read",
+                                                        testEntityCapability.capability) == null
+
+        when:
+        ResponseEntity<String> deniedResult = restTemplate.exchange(
+                "/parentEntities/${testParentEntity.id}/entities", HttpMethod.GET, null, String)
+
+        then:
+        deniedResult.status == 500
+
+        and:
+        testChildEntityResource.parentCache.getDecision(testParentEntity.id, null, "read",
+                                                        testEntityCapability.capability) == false
+    }
+
+    def "Invalidates the authorization of the parent when an entity referring to it changes"() {
+        given:
+        TestParentEntity testParentEntity = testParentEntityRepository.save(new TestParentEntity())
+        TestParentEntity otherParentEntity = testParentEntityRepository.save(new TestParentEntity())
+        TestEntity testEntity = testEntityRepository.save(new TestEntity(sharedParent: otherParentEntity))
+
+        and:
+        testEntityCapability.capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+        testEntityCapability.capability.can(Capability.READ, TestParentEntity,
+                                            new TrueAuthorizationCriteria<TestParentEntity>())
+
+        and:
+        [testParentEntity, otherParentEntity].each {
+            restTemplate.exchange("/parentEntities/${it.id}/entities", HttpMethod.GET, null, TestEntity[])
+        }
+
+        when:
+        testEntity.sharedParent = testParentEntity
+        testEntityRepository.save(testEntity)
+
+        then:
+        [testParentEntity, otherParentEntity].every {
+            testChildEntityResource.parentCache.getDecision(it.id, null, "read",
+                                                            testEntityCapability.capability) == null
+        }
+    }
+
+    def "Invalidates the authorization of the parent when one of its collections changes"() {
+        given:
+        TestParentEntity testParentEntity = testParentEntityRepository.save(new TestParentEntity())
+        TestEntity testEntity = testEntityRepository.save(new TestEntity())
+
+        and:
+        testEntityCapability.capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+        testEntityCapability.capability.can(Capability.READ, TestParentEntity,
+                                            new TrueAuthorizationCriteria<TestParentEntity>())
+
+        and:
+        restTemplate.exchange("/parentEntities/${testParentEntity.id}/entities", HttpMethod.GET, null, TestEntity[])
+
+        expect:
+        testChildEntityResource.parentCache.getDecision(testParentEntity.id, null, "read",
+                                                        testEntityCapability.capability)
+
+        when:
+        testParentEntity.rankedChildren = [testEntity]
+        testParentEntityRepository.save(testParentEntity)
+
+        then:
+        testChildEntityResource.parentCache.getDecision(testParentEntity.id, null, "read",
+                                                        testEntityCapability.capability) == null
+
+        cleanup:
+        testParentEntity.rankedChildren = []
+        testParentEntityRepository.save(testParentEntity)
+    }
 }
@@ -16,6 +16,9 @@ class BaseResourceIntegrationSpec extends Specification {
     @Autowired
     TestEntityRepository testEntityRepository
 
+    @Autowired
+    TestParentEntityRepository testParentEntityRepository
+
     @Autowired
     TestEntityCapability testEntityCapability
 
@@ -155,6 +158,39 @@ class BaseResourceIntegrationSpec extends Specification {
         ]
     }
 
+    def "Authorizes a single entity through the authorizeObject hook"() {
+        given:
+        TestEntity testEntity = testEntityRepository.save(new TestEntity(stringField: TestEntityResource.VETOED))
+
+        and:
+        testEntityCapability.capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+
+        when:
+        ResponseEntity<String> result = restTemplate.exchange("/entities/${testEntity.id}", HttpMethod.GET, null,
+                                                              String)
+
+        then:
+        result.status == 500
+    }
+
+    def "Reports the SQL statements issued to authorize a single entity"() {
+        given:
+        TestEntity testEntity = testEntityRepository.save(new TestEntity(stringField: "String", integerField: 1))
+
+        and:
+        testEntityCapability.capability.can(Capability.READ, TestEntity,
+                                            acb.compare("stringField", Operation.EQUALS, "String").build())
+
+        when:
+        ResponseEntity<TestEntity> result = restTemplate.exchange("/entities/${testEntity.id}", HttpMethod.GET, null, TestEntity)
+
+        then:
+        result.status == 200
+
+        and: "the inverse one-to-one parent cannot be proxied, so Hibernate loads it with a second statement"
+        result.headers.getFirst("Server-Timing") ==~ /coffeecan;dur=[0-9.]+;desc="2 statements"/
+    }
+
     @Unroll
     def "Retrieves the correct entities for allows #authorizationCriteria"() {
         given:
@@ -210,6 +246,372 @@ class BaseResourceIntegrationSpec extends Specification {
         ]
     }
 
+    @Unroll
+    def "Streams the correct entities for allows #authorizationCriteria"() {
+        given:
+        entities.each {entity -> testEntityRepository.save(entity)}
+
+        and:
+        testEntityCapability.capability.aliasForAction("export", Capability.READ)
+        if (authorizationCriteria != null) {
+            testEntityCapability.capability.can(Capability.READ, TestEntity, authorizationCriteria)
+        }
+
+        when:
+        ResponseEntity<TestEntity[]> result = restTemplate.exchange("/entities/export", HttpMethod.GET, null, TestEntity[])
+
+        and:
+        List<Long> expectedIds =  entities.withIndex().findAll {entry ->
+            expectedResults.contains(entry[1])
+        }.collect { entry ->
+            entry[0].id
+        }
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.collect { resultEntity -> resultEntity.id }.sort() == expectedIds.sort()
+
+        where:
+        entities = [
+                new TestEntity(stringField: "1", integerField: 1),
+                new TestEntity(stringField: "1", integerField: 2),
+                new TestEntity(stringField: "2", integerField: 1),
+                new TestEntity(stringField: "2", integerField: 2),
+                new TestEntity(stringField: "2", integerField: 3)
+        ]
+        authorizationCriteria << [
+                null,
+                acb.compare("stringField", Operation.EQUALS, "2").build()
+        ]
+        expectedResults << [
+                [0, 1, 2, 3, 4],
+                [2, 3, 4]
+        ]
+    }
+
+    def "Retrieves the authorized entities a slice at a time using the last seen key"() {
+        given:
+        List<TestEntity> entities = (1..7).collect { value ->
+            testEntityRepository.save(new TestEntity(stringField: (value % 3 == 0) ? "hidden" : "shown",
+                                                     integerField: value % 4))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("keyset", Capability.READ)
+        testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "hidden").build())
+
+        when:
+        List<List<TestEntity>> slices = []
+        TestEntity last = null
+        while (true) {
+            String query = (last == null) ? "size=2" : "size=2&integerField=${last.integerField}&id=${last.id}"
+            ResponseEntity<TestEntity[]> result = restTemplate.exchange("/entities/keyset?${query}", HttpMethod.GET,
+                                                                        null, TestEntity[])
+            if (result.body.length == 0) {
+                break
+            }
+            slices << result.body.toList()
+            last = result.body[-1]
+        }
+
+        then:
+        slices.collect { it.size() } == [2, 2, 1]
+
+        and:
+        slices.flatten().collect { it.id } == entities
+                .findAll { it.stringField == "shown" }
+                .sort { a, b -> (b.integerField <=> a.integerField) ?: (a.id <=> b.id) }
+                .collect { it.id }
+    }
+
+    def "Fills each page of entities matched in memory by the authorization criteria"() {
+        given:
+        TestParentEntity shownParent = testParentEntityRepository.save(new TestParentEntity())
+        TestParentEntity hiddenParent = testParentEntityRepository.save(new TestParentEntity())
+        List<TestEntity> entities = (1..8).collect { value ->
+            testEntityRepository.save(new TestEntity(integerField: value,
+                                                     sharedParent: (value % 2 == 1) ? shownParent : hiddenParent))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("page", Capability.READ)
+        testEntityCapability.capability.can(Capability.READ, TestEntity,
+                                            acb.compare("sharedParent.children[0].integerField", Operation.EQUALS, 1)
+                                               .build())
+
+        when:
+        List<Map> pages = (0..2).collect { page ->
+            restTemplate.exchange("/entities/page?page=${page}&size=2", HttpMethod.GET, null, Map).body
+        }
+
+        then:
+        pages.collect { it.content.collect { it.id as Long } } == entities
+                .findAll { it.sharedParent.id == shownParent.id }
+                .collect { it.id }
+                .collate(2) + [[]]
+
+        and:
+        pages.every { it.totalElements == 4 }
+
+        cleanup:
+        testEntityRepository.deleteAll()
+        testParentEntityRepository.deleteAll()
+    }
+
+    @Unroll
+    def "Retrieves a single entity asynchronously when #description"() {
+        given:
+        TestEntity testEntity = testEntityRepository.save(new TestEntity(stringField: stringField, integerField: 1))
+
+        and:
+        testEntityCapability.capability.aliasForAction("readDeferred", Capability.READ)
+        testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "hidden").build())
+
+        when:
+        ResponseEntity<Map> result = restTemplate.exchange("/entities/${testEntity.id}/deferred", HttpMethod.GET, null,
+                                                           Map)
+
+        then:
+        result.status == expectedStatus
+
+        and:
+        (expectedStatus != 200) || (result.body.id as Long == testEntity.id)
+
+        where:
+        description    | stringField || expectedStatus
+        "it is shown"  | "shown"     || 200
+        "it is denied" | "hidden"    || 500
+    }
+
+    def "Retrieves the authorized entities asynchronously"() {
+        given:
+        List<TestEntity> entities = (1..4).collect { value ->
+            testEntityRepository.save(new TestEntity(stringField: (value % 2 == 0) ? "hidden" : "shown",
+                                                     integerField: value))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("indexAsync", Capability.READ)
+        testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "hidden").build())
+
+        when:
+        ResponseEntity<TestEntity[]> result = restTemplate.exchange("/entities/async", HttpMethod.GET, null,
+                                                                    TestEntity[])
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.collect { it.id }.sort() == entities.findAll { it.stringField == "shown" }*.id.sort()
+    }
+
+    def "Does not retrieve the entities asynchronously more than once for a request"() {
+        given:
+        testEntityRepository.save(new TestEntity(stringField: "hidden", integerField: 1))
+
+        and:
+        testEntityCapability.capability.aliasForAction("indexAsyncTwice", Capability.READ)
+        testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "hidden").build())
+
+        when:
+        ResponseEntity<String> result = restTemplate.exchange("/entities/async/twice", HttpMethod.GET, null, String)
+
+        then:
+        result.status == 500
+
+        and:
+        !result.body.contains("hidden")
+    }
+
+    def "Authorizes a handler method that returns a future without retrieving its resources asynchronously"() {
+        given:
+        TestEntity testEntity = testEntityRepository.save(new TestEntity(stringField: "protected", integerField: 1))
+
+        and:
+        testEntityCapability.capability.aliasForAction("deleteAsync", Capability.DELETE)
+        testEntityCapability.capability.cannot(Capability.DELETE, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "protected").build())
+
+        when:
+        ResponseEntity<String> result = restTemplate.exchange("/entities/${testEntity.id}/async", HttpMethod.DELETE,
+                                                              null, String)
+
+        then:
+        result.status == 500
+
+        and:
+        testEntityRepository.exists(testEntity.id)
+    }
+
+    def "Retrieves a batch of entities reporting the denied and missing IDs"() {
+        given:
+        List<TestEntity> entities = (1..4).collect { value ->
+            testEntityRepository.save(new TestEntity(stringField: (value == 2) ? "hidden" : "shown",
+                                                     integerField: value))
+        }
+        Long missingId = entities*.id.max() + 100
+
+        and:
+        testEntityCapability.capability.aliasForAction("batch", Capability.READ)
+        testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "hidden").build())
+
+        when:
+        String ids = [entities[3].id, entities[1].id, missingId, entities[0].id].join(",")
+        ResponseEntity<Map> result = restTemplate.exchange("/entities/batch?ids=${ids}", HttpMethod.GET, null, Map)
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.resources.collect { it.id as Long } == [entities[3].id, entities[0].id]
+
+        and:
+        result.body.deniedIds.collect { it as Long } == [entities[1].id]
+
+        and:
+        result.body.missingIds.collect { it as Long } == [missingId]
+    }
+
+    def "Lists only the authorized entities when IDs are requested from a handler method that does not read a batch"() {
+        given:
+        List<TestEntity> entities = (1..3).collect { value ->
+            testEntityRepository.save(new TestEntity(stringField: (value == 2) ? "hidden" : "shown",
+                                                     integerField: value))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("index", Capability.READ)
+        testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "hidden").build())
+
+        when:
+        ResponseEntity<TestEntity[]> result = restTemplate.exchange("/entities?ids=${entities*.id.join(",")}",
+                                                                    HttpMethod.GET, null, TestEntity[])
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.collect { it.id }.sort() == [entities[0].id, entities[2].id]
+    }
+
+    @Unroll
+    def "Counts the authorized entities #query"() {
+        given:
+        (1..6).each { value ->
+            testEntityRepository.save(new TestEntity(stringField: (value % 3 == 0) ? "hidden" : "shown",
+                                                     integerField: value % 2))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("count", Capability.READ)
+        if (denied) {
+            testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                                   acb.compare("stringField", Operation.EQUALS, "hidden").build())
+        }
+
+        when:
+        ResponseEntity<Map> result = restTemplate.exchange("/entities/count${query}", HttpMethod.GET, null, Map)
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.count == expectedCount
+
+        and:
+        result.body.any == (expectedCount > 0)
+
+        where:
+        query             | denied || expectedCount
+        ""                | false  || 6
+        ""                | true   || 4
+        "?integerField=1" | true   || 2
+        "?integerField=2" | false  || 0
+    }
+
+    def "Retrieves interface projections of only the authorized entities"() {
+        given:
+        List<TestEntity> entities = (1..4).collect { value ->
+            testEntityRepository.save(new TestEntity(stringField: "${value % 2}", integerField: value))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("summaries", Capability.READ)
+        testEntityCapability.capability.can(Capability.READ, TestEntity,
+                                            acb.compare("stringField", Operation.EQUALS, "1").build())
+
+        when:
+        ResponseEntity<Map[]> result = restTemplate.exchange("/entities/summaries", HttpMethod.GET, null, Map[])
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.collect { it.id as Long }.sort() == entities.findAll { it.stringField == "1" }*.id.sort()
+
+        and:
+        result.body.every { it.stringField == "1" && !it.containsKey("integerField") }
+    }
+
+    def "Retrieves a page of class projections of only the authorized entities"() {
+        given:
+        List<TestEntity> entities = (1..5).collect { value ->
+            testEntityRepository.save(new TestEntity(stringField: (value == 2) ? "hidden" : "shown",
+                                                     integerField: value))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("values", Capability.READ)
+        testEntityCapability.capability.cannot(Capability.READ, TestEntity,
+                                               acb.compare("stringField", Operation.EQUALS, "hidden").build())
+
+        when:
+        ResponseEntity<Map[]> result = restTemplate.exchange("/entities/values?page=1&size=2", HttpMethod.GET, null,
+                                                             Map[])
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.collect { it.id as Long } == [entities[3].id, entities[4].id]
+
+        and:
+        result.body.collect { it.integerField } == [4, 5]
+    }
+
+    def "Retrieves a page of projections sorted by a field that is not projected"() {
+        given:
+        List<TestEntity> entities = (1..4).collect { value ->
+            testEntityRepository.save(new TestEntity(stringField: "same", integerField: value))
+        }
+
+        and:
+        testEntityCapability.capability.aliasForAction("summariesPage", Capability.READ)
+        testEntityCapability.capability.can(Capability.READ, TestEntity,
+                                            acb.compare("stringField", Operation.EQUALS, "same").build())
+
+        when:
+        ResponseEntity<Map[]> result = restTemplate.exchange("/entities/summaries/page?page=0&size=3", HttpMethod.GET,
+                                                             null, Map[])
+
+        then:
+        result.status == 200
+
+        and:
+        result.body.collect { it.id as Long } == [entities[3].id, entities[2].id, entities[1].id]
+
+        and:
+        result.body.every { it.stringField == "same" && !it.containsKey("integerField") }
+    }
+
     @Unroll
     def "Retrieves the correct entities for denies #authorizationCriteria"() {
         given:
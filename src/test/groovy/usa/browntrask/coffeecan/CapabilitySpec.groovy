@@ -0,0 +1,50 @@
+package usa.browntrask.coffeecan
+
+import org.springframework.data.jpa.domain.Specification as JpaSpecification
+import spock.lang.Specification
+
+class CapabilitySpec extends Specification {
+
+    def "Explains the decision of a capability that does not trace its criteria"() {
+        given:
+        Capability capability = new TestMinimalCapability(allowed, null)
+
+        when:
+        DecisionTrace decisionTrace = capability.explain(Capability.READ, new TestEntity())
+
+        then:
+        decisionTrace.allowed == allowed
+
+        and:
+        decisionTrace.action == Capability.READ
+
+        and:
+        decisionTrace.actionNodes.isEmpty()
+
+        where:
+        allowed << [true, false]
+    }
+
+    def "A capability that does not plan its criteria fetches no associations"() {
+        given:
+        Capability capability = new TestMinimalCapability(true, null)
+
+        expect:
+        capability.toFetchPaths(Capability.READ, TestEntity).isEmpty()
+    }
+
+    def "A capability that does not plan its criteria plans using its specification"() {
+        given:
+        JpaSpecification<TestEntity> specification = new TrueAuthorizationCriteria<TestEntity>().toSpecification()
+        Capability capability = new TestMinimalCapability(true, specification)
+
+        when:
+        AuthorizationPlan<TestEntity> plan = capability.toPlan(Capability.READ, TestEntity)
+
+        then:
+        plan.specification.is(specification)
+
+        and:
+        plan.exact
+    }
+}
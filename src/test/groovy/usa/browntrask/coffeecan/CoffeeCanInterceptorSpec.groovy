@@ -1,5 +1,7 @@
 package usa.browntrask.coffeecan
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.context.support.StaticApplicationContext
 import org.springframework.data.repository.CrudRepository
 import org.springframework.data.repository.Repository
 import org.springframework.mock.web.MockHttpServletRequest
@@ -11,14 +13,26 @@ import org.springframework.web.bind.annotation.PathVariable
 import org.springframework.web.bind.annotation.PostMapping
 import org.springframework.web.bind.annotation.PutMapping
 import org.springframework.web.bind.annotation.RequestMapping
+import org.springframework.web.bind.annotation.RequestParam
 import org.springframework.web.bind.annotation.RestController
 import org.springframework.web.method.HandlerMethod
 import spock.lang.Specification
+import spock.lang.Unroll
+import usa.browntrask.coffeecan.audit.AuditRecord
+import usa.browntrask.coffeecan.audit.AuditSink
+import usa.browntrask.coffeecan.audit.AuditWriter
+import usa.browntrask.coffeecan.audit.DropPolicy
+import usa.browntrask.coffeecan.config.CoffeeCanConfiguration
+import usa.browntrask.coffeecan.metrics.CoffeeCanMetrics
 
 import javax.persistence.criteria.CriteriaBuilder
 import javax.persistence.criteria.CriteriaQuery
 import javax.persistence.criteria.Predicate
 import javax.persistence.criteria.Root
+import javax.servlet.DispatcherType
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
+import java.util.function.Supplier
 
 class CoffeeCanInterceptorSpec extends Specification {
 
@@ -63,6 +77,83 @@ class CoffeeCanInterceptorSpec extends Specification {
         result
     }
 
+    def "An asynchronous redispatch does not retrieve the entities again"() {
+        given:
+        request = new MockHttpServletRequest("GET", "/testEntities/5")
+        request.setDispatcherType(DispatcherType.ASYNC)
+
+        and:
+        EntityResource controller = new EntityResource(methodParameters: [:])
+
+        and:
+        HandlerMethod handlerMethod = new HandlerMethod(controller, controller.getClass().getMethod("read", Long.class))
+
+        when:
+        boolean result = coffeeCanInterceptor.preHandle(request, response, handlerMethod)
+
+        then:
+        result
+
+        and:
+        null == controller.entity
+    }
+
+    @Unroll
+    def "An asynchronous request is recorded with its action once its retrieval is #outcome"() {
+        given:
+        List<String> audited = []
+        AuditSink auditSink = new AuditSink(new AuditWriter() {
+            @Override
+            void write(final List<AuditRecord> records) {
+                records.each { audited << "${it.action} ${it.outcome}".toString() }
+            }
+
+            @Override
+            void close() {
+            }
+        }, 8, 8, DropPolicy.DROP_NEWEST, [Capability.READ] as Set)
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+        coffeeCanInterceptor = new CoffeeCanInterceptor(new CoffeeCanMetrics(meterRegistry), false, auditSink)
+        request = new MockHttpServletRequest("GET", "/testEntities/5/async")
+
+        and:
+        EntityResource controller = new EntityResource(methodParameters: ['id': "5"], testEntity: new TestEntity(5),
+                                                       denied: denied)
+        controller.authorizeResource([mapMethod: [readAsync: Capability.READ], async: ["readAsync"] as String[]])
+        controller.applicationContext = new StaticApplicationContext().with {
+            beanFactory.registerSingleton(CoffeeCanConfiguration.ASYNC_EXECUTOR, { it.run() } as Executor)
+            refresh()
+            it
+        }
+
+        and:
+        HandlerMethod handlerMethod = new HandlerMethod(controller,
+                                                        controller.getClass().getMethod("readAsync", Long.class))
+
+        when:
+        coffeeCanInterceptor.preHandle(request, response, handlerMethod)
+
+        then:
+        auditSink.queued == 0
+        meterRegistry.find("coffeecan.request").timer() == null
+
+        when:
+        controller.async({ controller.entity } as Supplier).handle { result, throwable -> result }.get()
+        auditSink.writeBatch([])
+
+        then:
+        audited == ["read ${outcome}".toString()]
+        meterRegistry.find("coffeecan.request")
+                .tags("action", Capability.READ, "outcome", outcome.toLowerCase())
+                .timer()
+                .count() == 1
+
+        where:
+        denied || outcome
+        false  || "ALLOWED"
+        true   || "DENIED"
+    }
+
     def "Get with no annotation results in a NOP"() {
         given:
         request = new MockHttpServletRequest("GET", "/")
@@ -138,6 +229,80 @@ class CoffeeCanInterceptorSpec extends Specification {
         testEntity = new TestEntity(5)
     }
 
+    def "Get with a list of IDs in the path reads a batch of entities"() {
+        given:
+        request = new MockHttpServletRequest("GET", "/testEntities/5,6,7")
+
+        and:
+        EntityResource controller = new EntityResource(methodParameters: ['id': "5,6,7"])
+
+        and:
+        HandlerMethod handlerMethod = new HandlerMethod(controller, controller.getClass().getMethod("read", Long.class))
+
+        when:
+        boolean result = coffeeCanInterceptor.preHandle(request, response, handlerMethod)
+
+        then:
+        result
+
+        and:
+        ['id': "5,6,7"] == controller.batchIds
+
+        and:
+        null == controller.entity
+    }
+
+    def "Get with an ids parameter reads a batch of entities"() {
+        given:
+        request = new MockHttpServletRequest("GET", "/testEntities/batch")
+        request.setParameter("ids", "5,6")
+
+        and:
+        EntityResource controller = new EntityResource()
+
+        and:
+        HandlerMethod handlerMethod = new HandlerMethod(controller, controller.getClass().getMethod("batch", String))
+
+        when:
+        boolean result = coffeeCanInterceptor.preHandle(request, response, handlerMethod)
+
+        then:
+        result
+
+        and:
+        ['id': "5,6"] == controller.batchIds
+
+        and:
+        null == controller.specification
+    }
+
+    def "Get with an ids parameter reads all of the entities if the handler method does not read a batch"() {
+        given:
+        request = new MockHttpServletRequest("GET", "/testEntities")
+        request.setParameter("ids", "5,6")
+
+        and:
+        EntityResource controller = new EntityResource(testSpecification: testSpecification)
+
+        and:
+        HandlerMethod handlerMethod = new HandlerMethod(controller, controller.getClass().getMethod("index"))
+
+        when:
+        boolean result = coffeeCanInterceptor.preHandle(request, response, handlerMethod)
+
+        then:
+        result
+
+        and:
+        null == controller.batchIds
+
+        and:
+        testSpecification == controller.specification
+
+        where:
+        testSpecification = { root, query, cb -> null } as org.springframework.data.jpa.domain.Specification<TestEntity>
+    }
+
     @spock.lang.Ignore
     def "Post to secondary creates a secondary"() {
         given:
@@ -290,6 +455,8 @@ class CoffeeCanInterceptorSpec extends Specification {
         private Map<String, String> methodParameters
         private TestEntity testEntity
         TestEntity entity
+        Map<String, String> batchIds
+        boolean denied
 
         @Override
         protected Class<TestEntity> getResourceClass() {
@@ -321,6 +488,16 @@ class CoffeeCanInterceptorSpec extends Specification {
             throw new UnsupportedOperationException("Should not be called")
         }
 
+        @GetMapping("/batch")
+        List<TestEntity> batch(@RequestParam("ids") final String ids) {
+            throw new UnsupportedOperationException("Should not be called")
+        }
+
+        @GetMapping("/{id}/async")
+        CompletableFuture<TestEntity> readAsync(@PathVariable("id") final Long id) {
+            throw new UnsupportedOperationException("Should not be called")
+        }
+
         @PostMapping("/")
         TestEntity create() {
             throw new UnsupportedOperationException("Not implemented yet")
@@ -348,6 +525,12 @@ class CoffeeCanInterceptorSpec extends Specification {
             }
 
             entity = testEntity
+            return !denied
+        }
+
+        @Override
+        protected boolean retrieveBatch(final HandlerMethod handlerMethod, final Map<String, String> ids) {
+            batchIds = ids
             return true
         }
 
@@ -0,0 +1,49 @@
+package usa.browntrask.coffeecan
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class FetchPathCollectorSpec extends Specification {
+
+    FetchPathCollector fetchPathCollector = new FetchPathCollector()
+
+    static ComparisonAuthorizationCriteria<TestParentEntity> field = new ComparisonAuthorizationCriteria<>(
+            TestParentEntity, "integerField", Operation.EQUALS, 1)
+
+    static ComparisonAuthorizationCriteria<TestParentEntity> child = new ComparisonAuthorizationCriteria<>(
+            TestParentEntity, "child.sharedParent.integerField", Operation.EQUALS, 1)
+
+    static ComparisonAuthorizationCriteria<TestParentEntity> offset = new ComparisonAuthorizationCriteria<>(
+            TestParentEntity, "children[0].integerField", Operation.EQUALS, 5)
+
+    @Unroll("Fetch paths for #authorizationCriteria are #expectedPaths")
+    def "Collects the association paths navigated by the criteria"() {
+        expect:
+        fetchPathCollector.collect(authorizationCriteria) as List == expectedPaths
+
+        where:
+        authorizationCriteria                                         || expectedPaths
+        null                                                          || []
+        new TrueAuthorizationCriteria<TestParentEntity>()             || []
+        field                                                         || []
+        child                                                         || ["child", "child.sharedParent"]
+        offset                                                        || ["children"]
+        new NotAuthorizationCriteria<TestParentEntity>(offset)        || ["children"]
+        new AndAuthorizationCriteria<TestParentEntity>(field, offset) || ["children"]
+        new OrAuthorizationCriteria<TestParentEntity>(child, offset)  || ["child", "child.sharedParent", "children"]
+    }
+
+    def "The capability collects the paths for every controlling action"() {
+        given:
+        BaseCapability capability = new BaseCapability() {}
+        capability.can(Capability.READ, TestParentEntity, offset)
+        capability.cannot(Capability.MANAGE, TestParentEntity, child)
+
+        expect:
+        capability.toFetchPaths(Capability.READ, TestParentEntity) ==
+                ["children", "child", "child.sharedParent"] as Set
+
+        and:
+        capability.toFetchPaths(Capability.READ, TestEntity).isEmpty()
+    }
+}
@@ -0,0 +1,81 @@
+package usa.browntrask.coffeecan
+
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class FlightRecorderEventsSpec extends Specification {
+
+    BaseCapability capability = new BaseCapability() {}
+
+    AuthorizationCriteriaBuilder<TestEntity> builder = new AuthorizationCriteriaBuilder<>(TestEntity.class)
+
+    def setup() {
+        capability.can(
+                Capability.READ,
+                TestEntity.class,
+                builder.compare("stringField", Operation.EQUALS, "A")
+                        .or()
+                        .compare("integerField", Operation.EQUALS, 1)
+                        .build())
+    }
+
+    def "Events are not recorded unless they are enabled"() {
+        when:
+        List<RecordedEvent> events = record(false) {
+            capability.allows(Capability.READ, new TestEntity(stringField: "A", integerField: 2))
+        }
+
+        then:
+        events.isEmpty()
+    }
+
+    def "Records decisions and specification builds with their attributes"() {
+        when:
+        List<RecordedEvent> events = record(true) {
+            capability.allows(Capability.READ, new TestEntity(stringField: "B", integerField: 2))
+            capability.toPlan(Capability.READ, TestEntity)
+        }
+
+        then:
+        RecordedEvent decision = events.find { it.eventType.name == "usa.browntrask.coffeecan.Decision" }
+        decision.getString("action") == Capability.READ
+        decision.getString("resourceClass") == TestEntity.name
+        decision.getString("outcome") == "denied"
+        decision.getString("fieldPaths") == "stringField,integerField"
+        decision.getInt("criteriaSize") > 2
+
+        and:
+        RecordedEvent specification = events.find { it.eventType.name == "usa.browntrask.coffeecan.Specification" }
+        specification.getString("resourceClass") == TestEntity.name
+        specification.getBoolean("exact")
+    }
+
+    private List<RecordedEvent> record(final boolean enabled, final Closure closure) {
+        final Path path = Files.createTempFile("coffeecan", ".jfr")
+        final Recording recording = new Recording()
+
+        try {
+            if (enabled) {
+                recording.enable("usa.browntrask.coffeecan.Decision")
+                recording.enable("usa.browntrask.coffeecan.Specification")
+            }
+            recording.start()
+            closure.call()
+            recording.stop()
+            recording.dump(path)
+
+            return RecordingFile.readAllEvents(path).findAll {
+                it.eventType.name.startsWith("usa.browntrask.coffeecan.")
+            }
+
+        } finally {
+            recording.close()
+            Files.deleteIfExists(path)
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package usa.browntrask.coffeecan
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class MemoizingCapabilityFactorySpec extends Specification {
+
+    PolicyLoader policyLoader = new PolicyLoader()
+
+    PolicyHolder policyHolder = new PolicyHolder(policyLoader, load("One"))
+
+    def "Returns the same capability for the same roles in any order"() {
+        given:
+        MemoizingCapabilityFactory capabilityFactory = new MemoizingCapabilityFactory(policyHolder, 10)
+
+        when:
+        SharedCapability capability = capabilityFactory.getCapability(["reader", "editor"])
+
+        then:
+        capabilityFactory.getCapability(["editor", "reader"]).is(capability)
+        capabilityFactory.getCapability(["reader", "editor", "reader"]).is(capability)
+        !capabilityFactory.getCapability(["reader"]).is(capability)
+
+        and:
+        capabilityFactory.misses == 2L
+        capabilityFactory.hits == 2L
+        capabilityFactory.size() == 2
+    }
+
+    def "Registers the capabilities it builds"() {
+        given:
+        MemoizingCapabilityFactory capabilityFactory = new MemoizingCapabilityFactory(policyHolder, 10)
+
+        when:
+        SharedCapability capability = capabilityFactory.getCapability(["reader"])
+
+        then:
+        CapabilityRegistry.global().capabilities.any { it.is(capability) }
+    }
+
+    def "The capability has the rules of each of the roles"() {
+        given:
+        MemoizingCapabilityFactory capabilityFactory = new MemoizingCapabilityFactory(policyHolder, 10)
+        TestEntity testEntity = new TestEntity(stringField: "One")
+
+        when:
+        SharedCapability reader = capabilityFactory.getCapability(["reader"])
+        SharedCapability readerEditor = capabilityFactory.getCapability(["reader", "editor"])
+
+        then:
+        reader.allows(Capability.READ, testEntity)
+        !reader.allows(Capability.UPDATE, testEntity)
+
+        and:
+        readerEditor.allows(Capability.READ, testEntity)
+        readerEditor.allows(Capability.UPDATE, testEntity)
+    }
+
+    def "Concurrent requests for the same roles build the capability once"() {
+        given:
+        MemoizingCapabilityFactory capabilityFactory = new MemoizingCapabilityFactory(policyHolder, 10)
+        def executor = Executors.newFixedThreadPool(8)
+        CountDownLatch start = new CountDownLatch(1)
+
+        when:
+        def capabilities = (1..8).collect {
+            executor.submit({
+                start.await()
+                return capabilityFactory.getCapability(["editor", "reader"])
+            } as Callable<SharedCapability>)
+        }
+        start.countDown()
+        def results = capabilities.collect { it.get(30, TimeUnit.SECONDS) }
+
+        then:
+        results.every { it.is(results[0]) }
+        capabilityFactory.misses == 1L
+        capabilityFactory.hits == 7L
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "Builds the capability again from a new policy"() {
+        given:
+        MemoizingCapabilityFactory capabilityFactory = new MemoizingCapabilityFactory(policyHolder, 10)
+        SharedCapability capability = capabilityFactory.getCapability(["reader"])
+
+        when:
+        policyHolder.publish(load("Two"))
+        SharedCapability reloaded = capabilityFactory.getCapability(["reader"])
+
+        then:
+        !reloaded.is(capability)
+        reloaded.allows(Capability.READ, new TestEntity(stringField: "Two"))
+        !reloaded.allows(Capability.READ, new TestEntity(stringField: "One"))
+
+        and:
+        capabilityFactory.getCapability(["reader"]).is(reloaded)
+        capabilityFactory.misses == 2L
+    }
+
+    def "Does not cache a capability that cannot be built"() {
+        given:
+        MemoizingCapabilityFactory capabilityFactory = new MemoizingCapabilityFactory(policyHolder, 10)
+
+        when:
+        capabilityFactory.getCapability(["reader", "writer"])
+
+        then:
+        AuthorizationCriteriaException e = thrown()
+        e.cause instanceof PolicyException
+        capabilityFactory.size() == 0
+
+        when:
+        capabilityFactory.getCapability(["reader", "writer"])
+
+        then:
+        thrown(AuthorizationCriteriaException)
+        capabilityFactory.misses == 2L
+    }
+
+    def "Does not leave a capability waiting when building it fails with an error"() {
+        given:
+        CapabilityPolicy capabilityPolicy = Stub(CapabilityPolicy) {
+            share(_) >> { throw new AssertionError("Cannot share") }
+        }
+        MemoizingCapabilityFactory capabilityFactory =
+                new MemoizingCapabilityFactory(new PolicyHolder(policyLoader, capabilityPolicy), 10)
+
+        when:
+        capabilityFactory.getCapability(["reader"])
+
+        then:
+        thrown(AssertionError)
+        capabilityFactory.size() == 0
+
+        when:
+        capabilityFactory.getCapability(["reader"])
+
+        then:
+        thrown(AssertionError)
+        capabilityFactory.misses == 2L
+    }
+
+    def "Removes the capability used least recently once the cache is full"() {
+        given:
+        MemoizingCapabilityFactory capabilityFactory = new MemoizingCapabilityFactory(policyHolder, 2)
+        SharedCapability reader = capabilityFactory.getCapability(["reader"])
+        SharedCapability editor = capabilityFactory.getCapability(["editor"])
+
+        when:
+        capabilityFactory.getCapability(["reader"])
+        capabilityFactory.getCapability(["reader", "editor"])
+
+        then:
+        capabilityFactory.size() == 2
+        capabilityFactory.getCapability(["reader"]).is(reader)
+        !capabilityFactory.getCapability(["editor"]).is(editor)
+    }
+
+    private CapabilityPolicy load(String stringField) {
+        String yaml = """
+            packages: [usa.browntrask.coffeecan]
+            roles:
+              reader:
+                - can: read
+                  resource: TestEntity
+                  when:
+                    stringField: ${stringField}
+              editor:
+                - can: update
+                  resource: TestEntity
+                  when:
+                    stringField: ${stringField}
+            """.stripIndent()
+
+        return policyLoader.load(new ByteArrayInputStream(yaml.getBytes("UTF-8")))
+    }
+}
@@ -0,0 +1,238 @@
+package usa.browntrask.coffeecan
+
+import org.springframework.core.io.FileSystemResource
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+class PolicyHolderSpec extends Specification {
+
+    PolicyLoader policyLoader = new PolicyLoader()
+
+    Path policyFile
+
+    def cleanup() {
+        if (policyFile != null) {
+            Files.deleteIfExists(policyFile)
+        }
+    }
+
+    def "Publishing a policy starts a new generation and calls the listeners"() {
+        given:
+        PolicyHolder policyHolder = new PolicyHolder(policyLoader, load(policy("One")))
+        List<PolicyHolder.Generation> published = []
+
+        and:
+        policyHolder.addListener({ generation -> published << generation } as PolicyHolder.Listener)
+
+        when:
+        PolicyHolder.Generation generation = policyHolder.reload(stream(policy("Two")))
+
+        then:
+        generation.number == 2L
+        policyHolder.current().is(generation)
+        published == [generation]
+
+        and:
+        allowedValue(policyHolder) == "Two"
+    }
+
+    def "Keeps the current policy if the new one is not valid"() {
+        given:
+        PolicyHolder policyHolder = new PolicyHolder(policyLoader, load(policy("One")))
+        PolicyHolder.Generation current = policyHolder.current()
+
+        when:
+        policyHolder.reload(stream(policy("One").replace("stringField", "missingField")))
+
+        then:
+        thrown(PolicyException)
+
+        and:
+        policyHolder.current().is(current)
+        allowedValue(policyHolder) == "One"
+    }
+
+    def "A listener that fails does not prevent the policy from being published"() {
+        given:
+        PolicyHolder policyHolder = new PolicyHolder(policyLoader, load(policy("One")))
+        List<Long> published = []
+
+        and:
+        policyHolder.addListener({ generation -> throw new IllegalStateException("failed") } as PolicyHolder.Listener)
+        policyHolder.addListener({ generation -> published << generation.number } as PolicyHolder.Listener)
+
+        when:
+        policyHolder.reload(stream(policy("Two")))
+
+        then:
+        published == [2L]
+        allowedValue(policyHolder) == "Two"
+    }
+
+    def "Capabilities are built from a single generation while policies are published"() {
+        given:
+        PolicyHolder policyHolder = new PolicyHolder(policyLoader, load(policy("One")))
+        List<CapabilityPolicy> policies = [load(policy("One")), load(policy("Two"))]
+        def executor = Executors.newFixedThreadPool(5)
+        AtomicBoolean publishing = new AtomicBoolean(true)
+        CountDownLatch started = new CountDownLatch(1)
+
+        when:
+        def publisher = executor.submit({
+            started.countDown()
+            for (int index = 0; index < 500; ++index) {
+                policyHolder.publish(policies[index % 2])
+            }
+            publishing.set(false)
+        })
+        def readers = (1..4).collect {
+            executor.submit({
+                started.await()
+                int mixed = 0
+                while (publishing.get()) {
+                    Capability capability = policyHolder.applyTo(newCapability(), ["reader", "editor"])
+                    ["One", "Two"].each { stringField ->
+                        TestEntity testEntity = new TestEntity(stringField: stringField)
+                        if (capability.allows(Capability.READ, testEntity) !=
+                            capability.allows(Capability.UPDATE, testEntity)) {
+                            ++mixed
+                        }
+                    }
+                }
+                return mixed
+            } as Callable<Integer>)
+        }
+        publisher.get(30, TimeUnit.SECONDS)
+
+        then:
+        readers.collect { it.get(30, TimeUnit.SECONDS) } == [0, 0, 0, 0]
+        policyHolder.current().number == 501L
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "Reloads the policy file when it changes"() {
+        given:
+        policyFile = Files.createTempFile("coffeecan-policy", ".yml")
+        write(policy("One"), 1000L)
+
+        and:
+        PolicyHolder policyHolder = new PolicyHolder(policyLoader, new FileSystemResource(policyFile.toFile()))
+        PolicyWatcher policyWatcher = new PolicyWatcher(policyHolder, TimeUnit.HOURS.toMillis(1L))
+
+        expect:
+        !policyWatcher.check()
+        allowedValue(policyHolder) == "One"
+
+        when:
+        write(policy("Two"), 2000L)
+
+        then:
+        !policyWatcher.check()
+        policyWatcher.check()
+        policyHolder.current().number == 2L
+        allowedValue(policyHolder) == "Two"
+
+        when:
+        write(policy("Three").replace("stringField", "missingField"), 3000L)
+
+        then:
+        !policyWatcher.check()
+        !policyWatcher.check()
+        !policyWatcher.check()
+        policyHolder.current().number == 2L
+        allowedValue(policyHolder) == "Two"
+
+        when:
+        write(policy("Three"), 4000L)
+
+        then:
+        !policyWatcher.check()
+        policyWatcher.check()
+        policyHolder.current().number == 3L
+        allowedValue(policyHolder) == "Three"
+
+        cleanup:
+        policyWatcher?.close()
+    }
+
+    def "Does not reload the policy file while it is still changing"() {
+        given:
+        policyFile = Files.createTempFile("coffeecan-policy", ".yml")
+        write(policy("One"), 1000L)
+
+        and:
+        PolicyHolder policyHolder = new PolicyHolder(policyLoader, new FileSystemResource(policyFile.toFile()))
+        PolicyWatcher policyWatcher = new PolicyWatcher(policyHolder, TimeUnit.HOURS.toMillis(1L))
+
+        when:
+        write(policy("On"), 2000L)
+
+        then:
+        !policyWatcher.check()
+
+        when:
+        write(policy("Two"), 2500L)
+
+        then:
+        !policyWatcher.check()
+        policyHolder.current().number == 1L
+
+        and:
+        policyWatcher.check()
+        policyHolder.current().number == 2L
+        allowedValue(policyHolder) == "Two"
+
+        cleanup:
+        policyWatcher?.close()
+    }
+
+    private String allowedValue(PolicyHolder policyHolder) {
+        Capability capability = policyHolder.applyTo(newCapability(), ["reader"])
+
+        return ["One", "Two", "Three"].find { capability.allows(Capability.READ, new TestEntity(stringField: it)) }
+    }
+
+    private CapabilityPolicy load(String yaml) {
+        return policyLoader.load(stream(yaml))
+    }
+
+    private static Capability newCapability() {
+        return new TestEntityCapability().with { setup(); it.capability }
+    }
+
+    private static String policy(String stringField) {
+        return """
+            packages: [usa.browntrask.coffeecan]
+            roles:
+              reader:
+                - can: read
+                  resource: TestEntity
+                  when:
+                    stringField: ${stringField}
+              editor:
+                - can: update
+                  resource: TestEntity
+                  when:
+                    stringField: ${stringField}
+            """.stripIndent()
+    }
+
+    private static InputStream stream(String yaml) {
+        return new ByteArrayInputStream(yaml.getBytes("UTF-8"))
+    }
+
+    private void write(String yaml, long lastModified) {
+        Files.write(policyFile, yaml.getBytes("UTF-8"))
+        Files.setLastModifiedTime(policyFile, FileTime.fromMillis(lastModified))
+    }
+}
@@ -0,0 +1,208 @@
+package usa.browntrask.coffeecan
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PolicyLoaderSpec extends Specification {
+
+    PolicyLoader policyLoader = new PolicyLoader()
+
+    def "Builds a template for each role"() {
+        when:
+        CapabilityPolicy policy = load("""
+            packages: [usa.browntrask.coffeecan]
+            roles:
+              reader:
+                - can: read
+                  resource: TestEntity
+                  when:
+                    stringField: String
+              editor:
+                - can: [read, update]
+                  resource: usa.browntrask.coffeecan.TestEntity
+            """)
+
+        then:
+        policy.roles == ["reader", "editor"] as Set
+
+        and:
+        policy.getTemplate("reader").rules.size() == 1
+        policy.getTemplate("reader").rules[0].allows
+        policy.getTemplate("reader").rules[0].actions == [Capability.READ]
+        policy.getTemplate("reader").rules[0].resourceClass == TestEntity
+
+        and:
+        policy.getTemplate("editor").rules[0].actions == [Capability.READ, Capability.UPDATE]
+        policy.getTemplate("editor").rules[0].authorizationCriteria instanceof TrueAuthorizationCriteria
+    }
+
+    @Unroll
+    def "Applying the reader template #expected #stringField"() {
+        given:
+        CapabilityPolicy policy = load("""
+            packages: [usa.browntrask.coffeecan]
+            roles:
+              reader:
+                - can: read
+                  resource: TestEntity
+                  when:
+                    stringField: [String, Other]
+            """)
+
+        and:
+        Capability capability = policy.getTemplate("reader").applyTo(newCapability())
+
+        expect:
+        capability.allows(Capability.READ, new TestEntity(stringField: stringField)) == allowed
+
+        where:
+        stringField | allowed
+        "String"    | true
+        "Other"     | true
+        "Another"   | false
+
+        expected = allowed ? "allows" : "denies"
+    }
+
+    def "Converts each value to the type of its field"() {
+        given:
+        CapabilityPolicy policy = load("""
+            packages: [usa.browntrask.coffeecan]
+            roles:
+              reader:
+                - can: read
+                  resource: TestEntity
+                  when:
+                    id: 5
+                    sharedParent.integerField: "7"
+            """)
+
+        and:
+        TestParentEntity parent = new TestParentEntity(integerField: 7)
+
+        and:
+        Capability capability = policy.getTemplate("reader").applyTo(newCapability())
+
+        expect:
+        capability.allows(Capability.READ, new TestEntity(5L).with { sharedParent = parent; it })
+
+        and:
+        !capability.allows(Capability.READ, new TestEntity(6L).with { sharedParent = parent; it })
+    }
+
+    @Unroll
+    def "Combines conditions so that #description"() {
+        given:
+        CapabilityPolicy policy = load("""
+            packages: [usa.browntrask.coffeecan]
+            roles:
+              reader:
+                - can: read
+                  resource: TestEntity
+                  when:
+                    any:
+                      - all:
+                          - stringField: String
+                          - integerField: 1
+                      - not:
+                          integerField: 2
+            """)
+
+        and:
+        Capability capability = policy.getTemplate("reader").applyTo(newCapability())
+
+        expect:
+        capability.allows(Capability.READ, new TestEntity(stringField: stringField, integerField: integerField)) == allowed
+
+        where:
+        description                                   | stringField | integerField | allowed
+        "both fields matching allows"                 | "String"    | 1            | true
+        "a field not matching the negation allows"    | "Other"     | 3            | true
+        "a field matching the negation denies"        | "Other"     | 2            | false
+    }
+
+    def "Applies the actions, aliases, default access and denials of the policy"() {
+        given:
+        CapabilityPolicy policy = load("""
+            packages: [usa.browntrask.coffeecan]
+            defaultAccess: false
+            actions:
+              publish: [update]
+            aliases:
+              view: read
+            roles:
+              publisher:
+                - can: [read, publish]
+                  resource: TestEntity
+                - cannot: read
+                  resource: TestEntity
+                  when:
+                    stringField: Secret
+            """)
+
+        when:
+        Capability capability = policy.getTemplate("publisher").applyTo(newCapability())
+
+        then:
+        !capability.defaultAccess
+
+        and:
+        capability.registeredActions().publish == [Capability.UPDATE]
+
+        and:
+        capability.allows(Capability.UPDATE, new TestEntity(stringField: "Public"))
+
+        and:
+        capability.allows("view", new TestEntity(stringField: "Public"))
+
+        and:
+        capability.denies("view", new TestEntity(stringField: "Secret"))
+    }
+
+    def "Reports a role that is not in the policy"() {
+        given:
+        CapabilityPolicy policy = load("roles: {}")
+
+        when:
+        policy.getTemplate("missing")
+
+        then:
+        PolicyException e = thrown()
+        e.message.contains("missing")
+    }
+
+    @Unroll
+    def "Fails to load a policy with #problem"() {
+        when:
+        load("""
+            packages: [usa.browntrask.coffeecan]
+            ${policy}
+            """)
+
+        then:
+        PolicyException e = thrown()
+        e.message.contains(message)
+
+        where:
+        problem                          | policy                                                                                     | message
+        "an unknown field"               | "roles: {reader: [{can: read, resource: TestEntity, when: {missingField: 1}}]}"            | "Role reader, rule 1"
+        "an unknown resource class"      | "roles: {reader: [{can: read, resource: MissingEntity}]}"                                   | "cannot find resource class MissingEntity"
+        "an unknown key"                 | "roles: {reader: [{can: read, resource: TestEntity, unless: {}}]}"                          | "unrecognized key unless"
+        "both can and cannot"            | "roles: {reader: [{can: read, cannot: update, resource: TestEntity}]}"                      | "exactly one of can or cannot"
+        "a value of the wrong type"      | "roles: {reader: [{can: read, resource: TestEntity, when: {integerField: many}}]}"          | "cannot compare a Integer to many"
+        "an empty list of conditions"    | "roles: {reader: [{can: read, resource: TestEntity, when: {any: []}}]}"                     | "expected at least one condition"
+        "a standard action registered"   | "actions: {read: [show]}"                                                                  | "cannot register standard action read"
+        "an unknown action"              | "roles: {reader: [{can: [read, raed], resource: TestEntity}]}"                             | "Role reader, rule 1: unknown action raed"
+        "an alias for an unknown action" | "aliases: {view: show}"                                                                    | "aliases.view: unknown action show"
+        "a registered unknown action"    | "actions: {publish: [update, show]}"                                                       | "actions.publish: unknown action show"
+        "malformed YAML"                 | "roles: [reader"                                                                           | "Cannot parse the policy"
+    }
+
+    private static Capability newCapability() {
+        return new TestEntityCapability().with { setup(); it.capability }
+    }
+
+    private CapabilityPolicy load(String yaml) {
+        return policyLoader.load(new ByteArrayInputStream(yaml.stripIndent().getBytes("UTF-8")))
+    }
+}
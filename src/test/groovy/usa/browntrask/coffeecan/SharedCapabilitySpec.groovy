@@ -0,0 +1,161 @@
+package usa.browntrask.coffeecan
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class SharedCapabilitySpec extends Specification {
+
+    static final String POLICY = """
+        packages: [usa.browntrask.coffeecan]
+        actions:
+          publish: [update]
+        aliases:
+          view: read
+        roles:
+          reader:
+            - can: read
+              resource: TestEntity
+              when:
+                stringField: [String, Other]
+            - cannot: read
+              resource: TestEntity
+              when:
+                integerField: 13
+          publisher:
+            - can: publish
+              resource: TestEntity
+              when:
+                stringField: String
+        """.stripIndent()
+
+    CapabilityPolicy policy = new PolicyLoader().load(new ByteArrayInputStream(POLICY.getBytes("UTF-8")))
+
+    @Unroll
+    def "A layered capability decides the same as a single capability with all of the rules when #description"() {
+        given:
+        SharedCapability shared = policy.share(["reader", "publisher"])
+        BaseCapability layered = overlay.call(new TestLayeredCapability(shared))
+
+        and:
+        BaseCapability single = overlay.call(policy.getTemplate("publisher").applyTo(
+                policy.getTemplate("reader").applyTo(new TestEntityCapability().with { setup(); it.capability })))
+
+        expect:
+        [Capability.READ, "view", Capability.UPDATE, "publish", Capability.DELETE].each { action ->
+            [new TestEntity(stringField: "String", integerField: 1),
+             new TestEntity(stringField: "String", integerField: 13),
+             new TestEntity(stringField: "Other", integerField: 1),
+             new TestEntity(stringField: "Mine", integerField: 1),
+             new TestEntity(stringField: "Mine", integerField: 13)].each { testEntity ->
+                assert layered.allows(action, testEntity) == single.allows(action, testEntity)
+                assert layered.explain(action, testEntity).allowed == single.allows(action, testEntity)
+            }
+            assert layered.allows(action, new TestParentEntity()) == single.allows(action, new TestParentEntity())
+        }
+
+        where:
+        description                          | overlay
+        "there is no overlay"                | { it }
+        "the overlay allows more"            | { it.with { can(Capability.READ, TestEntity, mine()); it } }
+        "the overlay denies more"            | { it.with { cannot(Capability.READ, TestEntity, mine()); it } }
+        "the overlay uses a shared action"   | { it.with { can("publish", TestEntity, mine()); it } }
+        "the overlay uses a shared alias"    | { it.with { can("view", TestEntity, mine()); it } }
+        "the overlay manages"                | { it.with { can(Capability.MANAGE, TestEntity, mine()); it } }
+        "the overlay denies management"      | { it.with { cannot(Capability.MANAGE, TestEntity, mine()); it } }
+    }
+
+    def "The overlay registers actions and aliases of its own"() {
+        given:
+        BaseCapability layered = new TestLayeredCapability(policy.share(["reader"]))
+
+        when:
+        layered.registerAction("review", [Capability.READ])
+        layered.aliasForAction("inspect", "review")
+        layered.can("inspect", TestEntity, mine())
+
+        then:
+        layered.registeredActions().keySet() == [Capability.CRUD, "publish", "review"] as Set
+        layered.allows(Capability.READ, new TestEntity(stringField: "Mine"))
+        layered.allows("review", new TestEntity(stringField: "Mine"))
+        !layered.allows("review", new TestEntity(stringField: "String"))
+    }
+
+    def "The overlay cannot change an action registered by the shared capability"() {
+        given:
+        BaseCapability layered = new TestLayeredCapability(policy.share(["reader"]))
+
+        when:
+        layered.registerAction("publish", [Capability.READ])
+
+        then:
+        thrown(RegisterActionException)
+    }
+
+    def "The overlay starts with the default access of the shared capability"() {
+        given:
+        SharedCapability shared = new SharedCapability([])
+
+        when:
+        BaseCapability layered = new TestLayeredCapability(shared)
+
+        then:
+        layered.defaultAccess == shared.defaultAccess
+        layered.allows(Capability.READ, new TestEntity())
+
+        when:
+        layered.defaultAccess = false
+
+        then:
+        !layered.allows(Capability.READ, new TestEntity())
+        shared.allows(Capability.READ, new TestEntity())
+    }
+
+    def "The overlay holds only its own rules"() {
+        given:
+        SharedCapability shared = policy.share(["reader", "publisher"])
+        BaseCapability layered = new TestLayeredCapability(shared)
+
+        when:
+        layered.can(Capability.UPDATE, TestEntity, mine())
+
+        then:
+        layered.shared.is(shared)
+        layered.statistics().totalRules == 1
+        shared.statistics().totalRules == 3
+        !shared.allows(Capability.UPDATE, new TestEntity(stringField: "Mine"))
+    }
+
+    @Unroll
+    def "A shared capability cannot be changed by #change"() {
+        given:
+        SharedCapability shared = policy.share(["reader"])
+
+        when:
+        operation.call(shared)
+
+        then:
+        thrown(UnsupportedOperationException)
+
+        where:
+        change                 | operation
+        "allowing an action"   | { it.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria()) }
+        "denying an action"    | { it.cannot(Capability.READ, TestEntity, new TrueAuthorizationCriteria()) }
+        "registering actions"  | { it.registerAction("review", [Capability.READ]) }
+        "aliasing an action"   | { it.aliasForAction("inspect", Capability.READ) }
+        "setting the default"  | { it.defaultAccess = false }
+    }
+
+    def "The policy reports a role that it does not define"() {
+        when:
+        policy.share(["reader", "writer"])
+
+        then:
+        thrown(PolicyException)
+    }
+
+    private static AuthorizationCriteria<TestEntity> mine() {
+        return new AuthorizationCriteriaBuilder<TestEntity>(TestEntity)
+                .compare("stringField", Operation.EQUALS, "Mine")
+                .build()
+    }
+}
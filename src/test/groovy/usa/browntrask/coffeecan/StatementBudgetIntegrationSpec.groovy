@@ -0,0 +1,99 @@
+package usa.browntrask.coffeecan
+
+import org.hibernate.SessionFactory
+import org.hibernate.stat.Statistics
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.boot.test.web.client.TestRestTemplate
+import org.springframework.http.HttpMethod
+import org.springframework.http.ResponseEntity
+import org.springframework.test.context.ContextConfiguration
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.persistence.EntityManagerFactory
+
+/**
+ * Fails when a request to one of the test resources prepares more SQL statements than its budget, so that query
+ * regressions, such as an association that starts being loaded lazily for each resource, are caught before they are
+ * released.
+ * <p>
+ * The statements are counted by Hibernate across the whole request: those issued by CoffeeCan to load and authorize
+ * the resources and those issued by the handler method. Hibernate loads the inverse one-to-one parent of each
+ * resource with a statement of its own, so the budgets for requests that load or save the children of a parent
+ * include a statement per child.
+ * </p>
+ */
+@ContextConfiguration
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = ["spring.jpa.properties.hibernate.generate_statistics=true",
+                              "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"])
+class StatementBudgetIntegrationSpec extends Specification {
+
+    private static final int CHILDREN = 3
+
+    @Autowired
+    TestEntityRepository testEntityRepository
+
+    @Autowired
+    TestParentEntityRepository testParentEntityRepository
+
+    @Autowired
+    TestEntityCapability testEntityCapability
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory
+
+    @Autowired
+    private TestRestTemplate restTemplate
+
+    private static AuthorizationCriteriaBuilder<TestEntity> acb = new AuthorizationCriteriaBuilder<>(TestEntity)
+
+    def setup() {
+        testEntityCapability.setup()
+        testEntityCapability.capability.can([Capability.READ, Capability.UPDATE], TestEntity,
+                                            acb.compare("stringField", Operation.EQUALS, "String").build())
+        testEntityCapability.capability.can(Capability.READ, TestParentEntity,
+                                            new TrueAuthorizationCriteria<TestParentEntity>())
+    }
+
+    def cleanup() {
+        testEntityRepository.deleteAll()
+        testParentEntityRepository.deleteAll()
+    }
+
+    @Unroll
+    def "A #endpoint prepares at most #budget statements"() {
+        given:
+        TestParentEntity testParentEntity = testParentEntityRepository.save(new TestParentEntity())
+
+        and:
+        List<TestEntity> testEntities = (1..CHILDREN).collect {
+            testEntityRepository.save(new TestEntity(stringField: "String", integerField: it,
+                                                     sharedParent: testParentEntity))
+        }
+
+        and:
+        String url = path.replace("{id}", "${testEntities[0].id}").replace("{parentId}", "${testParentEntity.id}")
+
+        and:
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory).statistics
+        long before = statistics.prepareStatementCount
+
+        when:
+        ResponseEntity<String> result = restTemplate.exchange(url, method, null, String)
+
+        then:
+        result.statusCode.is2xxSuccessful()
+
+        and:
+        statistics.prepareStatementCount - before <= budget
+
+        where:
+        endpoint     | method         | path                                  | budget
+        "single GET" | HttpMethod.GET | "/entities/{id}"                      | 2
+        "nested GET" | HttpMethod.GET | "/parentEntities/{parentId}/entities" | 3 + CHILDREN
+        "list"       | HttpMethod.GET | "/entities"                           | 2 + CHILDREN
+        "update"     | HttpMethod.PUT | "/entities/{id}"                      | 5 + CHILDREN
+    }
+}
@@ -7,14 +7,19 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.method.HandlerMethod;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping(path = "/parentEntities/{sharedParentId}/entities")
 public class TestChildEntityResource
         extends BaseChildResource<TestParentEntity, Long, TestEntity, Long> {
 
+    public static final int VETOED = -1;
+
     @Autowired
     private TestEntityCapability testEntityCapability;
 
@@ -24,6 +29,9 @@ public class TestChildEntityResource
     @Autowired
     private TestParentEntityRepository testParentEntityRepository;
 
+    private final TtlParentCache<TestParentEntity, Long> parentCache =
+            new TtlParentCache<>(TestParentEntity.class, 100, 1, TimeUnit.MINUTES);
+
     @Override
     protected Class<TestEntity> getResourceClass() {
         return TestEntity.class;
@@ -44,6 +52,18 @@ public class TestChildEntityResource
         return testEntityCapability.getCapability();
     }
 
+    @Override
+    protected boolean authorizeObject(final HandlerMethod handlerMethod, final Map<String, Object> restrictions,
+                                      final Capability capability, final String action, final Object object)
+            throws CoffeeCanException {
+        if ((object instanceof TestParentEntity) &&
+            Integer.valueOf(VETOED).equals(((TestParentEntity) object).getIntegerField())) {
+            return false;
+        }
+
+        return super.authorizeObject(handlerMethod, restrictions, capability, action, object);
+    }
+
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public List<TestEntity> read(@PathVariable("sharedParentId") final Long sharedParentId) {
         return resources();
@@ -68,4 +88,9 @@ public class TestChildEntityResource
     protected Repository<TestParentEntity, Long> getParentRepository() {
         return testParentEntityRepository;
     }
+
+    @Override
+    protected TtlParentCache<TestParentEntity, Long> getParentCache() {
+        return parentCache;
+    }
 }
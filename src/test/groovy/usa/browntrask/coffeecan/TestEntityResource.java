@@ -1,6 +1,10 @@
 package usa.browntrask.coffeecan;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.repository.Repository;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -8,20 +12,39 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.method.HandlerMethod;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping(path = "/entities")
 public class TestEntityResource extends BaseResource<TestEntity, Long> {
 
+    public static final String VETOED = "vetoed";
+
     @Autowired
     private TestEntityCapability testEntityCapability;
 
     @Autowired
     private TestEntityRepository testEntityRepository;
 
+    public TestEntityResource() {
+        super();
+
+        authorizeResource(Collections.singletonMap(
+                "async", new String[]{"indexAsync", "indexAsyncTwice", "readDeferred"}));
+    }
+
     @Override
     protected Class<TestEntity> getResourceClass() {
         return TestEntity.class;
@@ -37,21 +60,121 @@ public class TestEntityResource extends BaseResource<TestEntity, Long> {
         return testEntityRepository;
     }
 
+    @Override
+    protected int getStreamFetchSize() {
+        return 2;
+    }
+
     @Override
     protected Capability capability() {
         return testEntityCapability.getCapability();
     }
 
+    @Override
+    protected boolean authorizeObject(final HandlerMethod handlerMethod, final Map<String, Object> restrictions,
+                                      final Capability capability, final String action, final Object object)
+            throws CoffeeCanException {
+        if ((object instanceof TestEntity) && VETOED.equals(((TestEntity) object).getStringField())) {
+            return false;
+        }
+
+        return super.authorizeObject(handlerMethod, restrictions, capability, action, object);
+    }
+
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public List<TestEntity> index() {
         return resources();
     }
 
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TestEntity> export() {
+        try (final Stream<TestEntity> resources = streamResources()) {
+            return resources.collect(Collectors.toList());
+        }
+    }
+
+    @GetMapping(value = "/keyset", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TestEntity> keyset(@RequestParam(value = "integerField", required = false) final Integer integerField,
+                                   @RequestParam(value = "id", required = false) final Long id,
+                                   @RequestParam("size") final int size) {
+        final List<Object> lastSeen = (id == null) ? null : Arrays.asList(integerField, id);
+
+        return resourcesAfter(new Sort(Sort.Direction.DESC, "integerField"), lastSeen, size).getContent();
+    }
+
+    @GetMapping(value = "/async", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<List<TestEntity>> indexAsync() {
+        return async(() -> resources());
+    }
+
+    @GetMapping(value = "/async/twice", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<List<TestEntity>> indexAsyncTwice() {
+        return async(() -> resources()).thenCombine(async(() -> resources()), (first, second) -> second);
+    }
+
+    @GetMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> batch(@RequestParam("ids") final String ids) {
+        final ResourceBatch<TestEntity, Long> resourceBatch = resourceBatch();
+        final Map<String, Object> result = new HashMap<>();
+
+        result.put("resources", resourceBatch.getResources());
+        result.put("deniedIds", resourceBatch.getDeniedIds());
+        result.put("missingIds", resourceBatch.getMissingIds());
+        return result;
+    }
+
+    @GetMapping(value = "/count", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> count(@RequestParam(value = "integerField", required = false)
+                                     final Integer integerField) {
+        final Specification<TestEntity> specification = (integerField == null) ?
+                                                        null :
+                                                        (root, query, cb) -> cb.equal(root.get("integerField"),
+                                                                                      integerField);
+        final Map<String, Object> result = new HashMap<>();
+
+        result.put("count", countResources(specification));
+        result.put("any", anyResources(specification));
+        return result;
+    }
+
+    @GetMapping(value = "/page", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> page(@RequestParam("page") final int page, @RequestParam("size") final int size) {
+        final Page<TestEntity> resources = resources(new PageRequest(page, size, new Sort(Sort.Direction.ASC, "id")));
+        final Map<String, Object> result = new HashMap<>();
+
+        result.put("content", resources.getContent());
+        result.put("totalElements", resources.getTotalElements());
+        return result;
+    }
+
+    @GetMapping(value = "/summaries", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TestEntitySummary> summaries() {
+        return resources(null, TestEntitySummary.class);
+    }
+
+    @GetMapping(value = "/summaries/page", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TestEntitySummary> summariesPage(@RequestParam("page") final int page,
+                                                 @RequestParam("size") final int size) {
+        return resources(null, TestEntitySummary.class,
+                         new PageRequest(page, size, new Sort(Sort.Direction.DESC, "integerField"))).getContent();
+    }
+
+    @GetMapping(value = "/values", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<TestEntityValues> values(@RequestParam("page") final int page, @RequestParam("size") final int size) {
+        return resources(null, TestEntityValues.class,
+                         new PageRequest(page, size, new Sort(Sort.Direction.ASC, "id"))).getContent();
+    }
+
     @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public TestEntity read(@PathVariable("id") final Long id) {
         return resource();
     }
 
+    @GetMapping(value = "/{id}/deferred", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<TestEntity> readDeferred(@PathVariable("id") final Long id) {
+        return deferred(() -> resource());
+    }
+
     @PutMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public TestEntity update(@PathVariable("id") final Long id) {
         TestEntity testEntity = resource();
@@ -66,4 +189,10 @@ public class TestEntityResource extends BaseResource<TestEntity, Long> {
     public void delete(@PathVariable("id") final Long id) {
         testEntityRepository.delete(resource());
     }
+
+    @DeleteMapping(value = "/{id}/async", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<Void> deleteAsync(@PathVariable("id") final Long id) {
+        testEntityRepository.delete(id);
+        return CompletableFuture.completedFuture(null);
+    }
 }
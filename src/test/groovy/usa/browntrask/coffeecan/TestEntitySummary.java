@@ -0,0 +1,8 @@
+package usa.browntrask.coffeecan;
+
+public interface TestEntitySummary {
+
+    Long getId();
+
+    String getStringField();
+}
@@ -0,0 +1,21 @@
+package usa.browntrask.coffeecan;
+
+public class TestEntityValues {
+
+    private final Long id;
+
+    private final Integer integerField;
+
+    public TestEntityValues(final Long id, final Integer integerField) {
+        this.id = id;
+        this.integerField = integerField;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Integer getIntegerField() {
+        return integerField;
+    }
+}
@@ -0,0 +1,8 @@
+package usa.browntrask.coffeecan;
+
+public class TestLayeredCapability extends BaseCapability {
+
+    public TestLayeredCapability(final BaseCapability shared) {
+        super(shared);
+    }
+}
@@ -0,0 +1,85 @@
+package usa.browntrask.coffeecan;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TestMinimalCapability implements Capability {
+
+    private final boolean allowed;
+    private final Specification<?> specification;
+
+    public TestMinimalCapability(final boolean allowed, final Specification<?> specification) {
+        super();
+
+        this.allowed = allowed;
+        this.specification = specification;
+    }
+
+    @Override
+    public <R> boolean allows(final String action, final R resource) {
+        return allowed;
+    }
+
+    @Override
+    public <R> void can(final String action, final Class<R> resourceClass,
+                        final AuthorizationCriteria<R> resourceAuthorization) {
+        throw new UnsupportedOperationException("Should not be called");
+    }
+
+    @Override
+    public <R> void can(final List<String> actions, final Class<R> resourceClass,
+                        final AuthorizationCriteria<R> resourceAuthorization) {
+        throw new UnsupportedOperationException("Should not be called");
+    }
+
+    @Override
+    public <R> void cannot(final String action, final Class<R> resourceClass,
+                           final AuthorizationCriteria<R> resourceAuthorization) {
+        throw new UnsupportedOperationException("Should not be called");
+    }
+
+    @Override
+    public <R> void cannot(final List<String> actions, final Class<R> resourceClass,
+                           final AuthorizationCriteria<R> resourceAuthorization) {
+        throw new UnsupportedOperationException("Should not be called");
+    }
+
+    @Override
+    public <R> boolean denies(final String action, final R resource) {
+        return !allowed;
+    }
+
+    @Override
+    public boolean isDefaultAccess() {
+        return allowed;
+    }
+
+    @Override
+    public void setDefaultAccess(final boolean defaultAccess) {
+        throw new UnsupportedOperationException("Should not be called");
+    }
+
+    @Override
+    public void registerAction(final String action, final List<String> actions) {
+        throw new UnsupportedOperationException("Should not be called");
+    }
+
+    @Override
+    public void aliasForAction(final String alias, final String action) {
+        throw new UnsupportedOperationException("Should not be called");
+    }
+
+    @Override
+    public Map<String, List<String>> registeredActions() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> Specification<R> toSpecification(final String action, final Class<R> resourceClass) {
+        return (Specification<R>) specification;
+    }
+}
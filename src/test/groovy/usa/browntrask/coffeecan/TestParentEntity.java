@@ -7,9 +7,12 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
+import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.OrderBy;
+import javax.persistence.OrderColumn;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,6 +34,11 @@ public class TestParentEntity {
     @OrderBy("integer_field ASC")
     private List<TestEntity> children = new ArrayList<>();
 
+    @ManyToMany
+    @JoinTable(name = "ranked_children")
+    @OrderColumn(name = "ranking")
+    private List<TestEntity> rankedChildren = new ArrayList<>();
+
     @Column(name = "integer_field")
     private Integer integerField;
 
@@ -70,6 +78,14 @@ public class TestParentEntity {
         this.children = children;
     }
 
+    public List<TestEntity> getRankedChildren() {
+        return rankedChildren;
+    }
+
+    public void setRankedChildren(final List<TestEntity> rankedChildren) {
+        this.rankedChildren = rankedChildren;
+    }
+
     public void setIntegerField(final Integer integerField) {
         this.integerField = integerField;
     }
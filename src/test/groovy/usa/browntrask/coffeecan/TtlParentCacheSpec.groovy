@@ -0,0 +1,154 @@
+package usa.browntrask.coffeecan
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class TtlParentCacheSpec extends Specification {
+
+    Capability capability = new BaseCapability() {}
+
+    def "Returns the cached decisions until the parent is invalidated"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 10, 1,
+                                                                                  TimeUnit.MINUTES)
+
+        when:
+        parentCache.putDecision(1L, null, Capability.READ, capability, true)
+
+        then:
+        parentCache.getDecision(1L, null, Capability.READ, capability)
+
+        and:
+        parentCache.getDecision(1L, null, Capability.UPDATE, capability) == null
+
+        and:
+        parentCache.getDecision(1L, null, Capability.READ, new BaseCapability() {}) == null
+
+        when:
+        parentCache.invalidate(1L)
+
+        then:
+        parentCache.getDecision(1L, null, Capability.READ, capability) == null
+    }
+
+    def "Decisions are only returned for the version of the parent they were made for"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 10, 1,
+                                                                                  TimeUnit.MINUTES)
+
+        when:
+        parentCache.putDecision(1L, 1, Capability.READ, capability, true)
+
+        then:
+        parentCache.getDecision(1L, 1, Capability.READ, capability)
+
+        and:
+        parentCache.getDecision(1L, 2, Capability.READ, capability) == null
+
+        and:
+        parentCache.getDecision(1L, null, Capability.READ, capability) == null
+
+        when:
+        parentCache.putDecision(1L, 2, Capability.UPDATE, capability, false)
+
+        then:
+        parentCache.getDecision(1L, 2, Capability.UPDATE, capability) == false
+
+        and:
+        parentCache.getDecision(1L, 2, Capability.READ, capability) == null
+
+        and:
+        parentCache.getDecision(1L, 1, Capability.READ, capability) == null
+    }
+
+    def "Caching more decisions for the same version of the parent does not extend their time to live"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 10, 300,
+                                                                                  TimeUnit.MILLISECONDS)
+
+        when:
+        parentCache.putDecision(1L, 1, Capability.READ, capability, true)
+        Thread.sleep(200L)
+        parentCache.putDecision(1L, 1, Capability.UPDATE, capability, true)
+
+        then:
+        parentCache.getDecision(1L, 1, Capability.READ, capability)
+
+        when:
+        Thread.sleep(200L)
+
+        then:
+        parentCache.getDecision(1L, 1, Capability.READ, capability) == null
+
+        and:
+        parentCache.getDecision(1L, 1, Capability.UPDATE, capability) == null
+    }
+
+    def "Decisions are shared by capabilities with the same decision key"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 10, 1,
+                                                                                  TimeUnit.MINUTES)
+        SharedCapability shared = new SharedCapability([])
+
+        and:
+        parentCache.putDecision(1L, null, Capability.READ, new TestLayeredCapability(shared), true)
+
+        when:
+        BaseCapability withRule = new TestLayeredCapability(shared)
+        withRule.cannot(Capability.READ, TestParentEntity, new TrueAuthorizationCriteria())
+
+        then:
+        parentCache.getDecision(1L, null, Capability.READ, shared)
+        parentCache.getDecision(1L, null, Capability.READ, new TestLayeredCapability(shared))
+
+        and:
+        parentCache.getDecision(1L, null, Capability.READ, withRule) == null
+    }
+
+    def "The number of decisions cached for each parent is bounded"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 10, 2, 1,
+                                                                                  TimeUnit.MINUTES)
+        List<Capability> capabilities = (1..3).collect { new BaseCapability() {} }
+
+        when:
+        capabilities.each { parentCache.putDecision(1L, null, Capability.READ, it, true) }
+
+        then:
+        capabilities.collect { parentCache.getDecision(1L, null, Capability.READ, it) } == [true, true, null]
+    }
+
+    def "Expired decisions are not returned"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 10, 0,
+                                                                                  TimeUnit.MILLISECONDS)
+
+        when:
+        parentCache.putDecision(1L, null, Capability.READ, capability, true)
+
+        then:
+        parentCache.getDecision(1L, null, Capability.READ, capability) == null
+
+        and:
+        parentCache.size() == 0
+    }
+
+    def "The number of parents with cached decisions is bounded"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 2, 1,
+                                                                                  TimeUnit.MINUTES)
+
+        when:
+        (1L..3L).each { id -> parentCache.putDecision(id, null, Capability.READ, capability, true) }
+
+        then:
+        parentCache.size() == 2
+
+        and:
+        parentCache.getDecision(1L, null, Capability.READ, capability) == null
+
+        and:
+        parentCache.getDecision(3L, null, Capability.READ, capability)
+    }
+}
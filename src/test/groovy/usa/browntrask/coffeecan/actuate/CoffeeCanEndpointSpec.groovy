@@ -0,0 +1,121 @@
+package usa.browntrask.coffeecan.actuate
+
+import spock.lang.Specification
+import usa.browntrask.coffeecan.AuthorizationCriteriaBuilder
+import usa.browntrask.coffeecan.BaseCapability
+import usa.browntrask.coffeecan.Capability
+import usa.browntrask.coffeecan.CapabilityRegistry
+import usa.browntrask.coffeecan.CapabilityStatistics
+import usa.browntrask.coffeecan.Operation
+import usa.browntrask.coffeecan.ParentCacheInvalidator
+import usa.browntrask.coffeecan.TestEntity
+import usa.browntrask.coffeecan.TestParentEntity
+import usa.browntrask.coffeecan.TtlParentCache
+
+import java.util.concurrent.TimeUnit
+
+class CoffeeCanEndpointSpec extends Specification {
+
+    CapabilityRegistry capabilityRegistry = new CapabilityRegistry()
+
+    ParentCacheInvalidator parentCacheInvalidator = new ParentCacheInvalidator()
+
+    CoffeeCanEndpoint endpoint = new CoffeeCanEndpoint(capabilityRegistry, parentCacheInvalidator)
+
+    AuthorizationCriteriaBuilder<TestEntity> builder = new AuthorizationCriteriaBuilder<>(TestEntity.class)
+
+    def "Reports the rules of the registered capabilities, heaviest first"() {
+        given:
+        BaseCapability light = new BaseCapability() {}
+        light.can(Capability.READ, TestEntity, builder.compare("stringField", Operation.EQUALS, "A").build())
+
+        and:
+        BaseCapability heavy = new BaseCapability() {}
+        heavy.can(Capability.READ, TestEntity, builder.compare("stringField", Operation.EQUALS, "A")
+                .and()
+                .compare("integerField", Operation.EQUALS, 1)
+                .build())
+        heavy.can(Capability.READ, TestEntity, builder.compare("integerField", Operation.EQUALS, 2).build())
+        heavy.cannot(Capability.UPDATE, TestEntity, builder.compare("stringField", Operation.EQUALS, "B").build())
+
+        and:
+        capabilityRegistry.register(light)
+        capabilityRegistry.register(heavy)
+
+        when:
+        Map<String, Object> report = endpoint.invoke()
+
+        then:
+        report.capabilities == 2
+        report.rules == 4
+
+        and:
+        report.heaviest*.totalRules == [3, 1]
+
+        and:
+        def readRules = report.heaviest[0].rules.find { it.action == Capability.READ }
+        readRules.allows
+        readRules.count == 2
+        readRules.depth == 3
+
+        and:
+        def updateRules = report.heaviest[0].rules.find { it.action == Capability.UPDATE }
+        !updateRules.allows
+        updateRules.count == 1
+    }
+
+    def "Leaves out a capability that changes while it is measured"() {
+        given:
+        BaseCapability stable = new BaseCapability() {}
+        stable.can(Capability.READ, TestEntity, builder.compare("stringField", Operation.EQUALS, "A").build())
+
+        and:
+        BaseCapability changing = new BaseCapability() {
+            @Override
+            CapabilityStatistics statistics() {
+                throw new ConcurrentModificationException()
+            }
+        }
+
+        and:
+        capabilityRegistry.register(stable)
+        capabilityRegistry.register(changing)
+
+        when:
+        Map<String, Object> report = endpoint.invoke()
+
+        then:
+        report.capabilities == 1
+        report.rules == 1
+    }
+
+    def "Capabilities are not registered when they are constructed"() {
+        when:
+        BaseCapability capability = new BaseCapability() {}
+
+        then:
+        !CapabilityRegistry.global().capabilities.any { it.is(capability) }
+    }
+
+    def "Reports the hit ratios of the registered parent caches"() {
+        given:
+        TtlParentCache<TestParentEntity, Long> parentCache = new TtlParentCache<>(TestParentEntity, 10, 1,
+                                                                                  TimeUnit.MINUTES)
+        parentCacheInvalidator.register(parentCache)
+
+        Capability capability = new BaseCapability() {}
+
+        and:
+        parentCache.getDecision(1L, null, Capability.READ, capability)
+        parentCache.putDecision(1L, null, Capability.READ, capability, true)
+        parentCache.getDecision(1L, null, Capability.READ, capability)
+
+        when:
+        Map<String, Object> report = endpoint.invoke()
+
+        then:
+        report.parentCaches.size() == 1
+        report.parentCaches[0].size == 1
+        report.parentCaches[0].decisionHitRatio == 0.5d
+    }
+}
@@ -0,0 +1,124 @@
+package usa.browntrask.coffeecan.audit
+
+import spock.lang.Specification
+import usa.browntrask.coffeecan.Capability
+import usa.browntrask.coffeecan.TestEntity
+import usa.browntrask.coffeecan.metrics.Outcome
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class AuditSinkSpec extends Specification {
+
+    List<String> written = Collections.synchronizedList([])
+
+    AuditWriter auditWriter = new AuditWriter() {
+        @Override
+        void write(final List<AuditRecord> records) {
+            records.each { written << "${it.action} ${it.ids} ${it.outcome}".toString() }
+        }
+
+        @Override
+        void close() {
+        }
+    }
+
+    def "Audits denied decisions and allowed decisions for sensitive actions"() {
+        given:
+        AuditSink auditSink = new AuditSink(auditWriter, 8, 4, DropPolicy.DROP_NEWEST, [Capability.DELETE] as Set)
+
+        when:
+        auditSink.record("user", "GET", Capability.READ, TestEntity, 1, Outcome.DENIED)
+        auditSink.record("user", "GET", Capability.READ, TestEntity, 2, Outcome.ALLOWED)
+        auditSink.record("user", "DELETE", Capability.DELETE, TestEntity, 3, Outcome.ALLOWED)
+
+        and:
+        auditSink.writeBatch([])
+
+        then:
+        written == ["read 1 DENIED", "delete 3 ALLOWED"]
+        auditSink.written == 2
+    }
+
+    def "Drops new records without blocking once the buffer is full"() {
+        given:
+        AuditSink auditSink = new AuditSink(auditWriter, 4, 4, DropPolicy.DROP_NEWEST, [] as Set)
+
+        when:
+        List<Boolean> queued = (1..6).collect {
+            auditSink.record("user", "GET", Capability.READ, TestEntity, it, Outcome.DENIED)
+        }
+
+        then:
+        queued == [true, true, true, true, false, false]
+        auditSink.dropped == 2
+
+        when:
+        auditSink.writeBatch([])
+
+        then: "the freed slots are reused"
+        auditSink.record("user", "GET", Capability.READ, TestEntity, 7, Outcome.DENIED)
+        written == ["read 1 DENIED", "read 2 DENIED", "read 3 DENIED", "read 4 DENIED"]
+    }
+
+    def "Keeps the last quarter of the buffer for denied decisions when preferring them"() {
+        given:
+        AuditSink auditSink = new AuditSink(auditWriter, 4, 4, DropPolicy.PREFER_DENIED, [Capability.READ] as Set)
+
+        when:
+        List<Boolean> queued = [Outcome.ALLOWED, Outcome.ALLOWED, Outcome.ALLOWED, Outcome.ALLOWED, Outcome.DENIED]
+                .collect { auditSink.record("user", "GET", Capability.READ, TestEntity, 1, it) }
+
+        then:
+        queued == [true, true, true, false, true]
+    }
+
+    def "Writes every queued record from concurrent requests in the background"() {
+        given:
+        AuditSink auditSink = new AuditSink(auditWriter, 64, 16, DropPolicy.DROP_NEWEST, [] as Set)
+        CountDownLatch done = new CountDownLatch(4)
+        def executor = Executors.newFixedThreadPool(4)
+
+        when:
+        auditSink.start()
+        4.times { thread ->
+            executor.execute {
+                1000.times { auditSink.record("user", "GET", Capability.READ, TestEntity, it, Outcome.DENIED) }
+                done.countDown()
+            }
+        }
+        done.await()
+        auditSink.close()
+
+        then:
+        auditSink.written + auditSink.dropped == 4000
+        written.size() == auditSink.written
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def "Appends the records to a memory-mapped file"() {
+        given:
+        Path path = Files.createTempFile("coffeecan-audit", ".log")
+        AuditSink auditSink = new AuditSink(new MappedFileAuditWriter(path, 4096), 8, 4, DropPolicy.DROP_NEWEST,
+                                            [] as Set)
+
+        when:
+        auditSink.record("user", "GET", Capability.READ, TestEntity, [id: "1"], Outcome.DENIED)
+        auditSink.record(null, "PUT", Capability.UPDATE, TestEntity, [id: "2"], Outcome.ERROR)
+        auditSink.writeBatch([])
+        auditSink.close()
+
+        then:
+        List<String> lines = Files.readAllLines(path)
+        lines.size() == 2
+        lines[0].endsWith("\tuser\tGET\tread\t${TestEntity.name}\t{id=1}\tdenied")
+        lines[1].endsWith("\tnull\tPUT\tupdate\t${TestEntity.name}\t{id=2}\terror")
+
+        cleanup:
+        Files.deleteIfExists(path)
+    }
+}
@@ -0,0 +1,83 @@
+package usa.browntrask.coffeecan.metrics
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import spock.lang.Specification
+import usa.browntrask.coffeecan.BaseCapability
+import usa.browntrask.coffeecan.Capability
+import usa.browntrask.coffeecan.TestEntity
+import usa.browntrask.coffeecan.TrueAuthorizationCriteria
+
+class CoffeeCanMetricsSpec extends Specification {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry()
+    CoffeeCanMetrics coffeeCanMetrics = new CoffeeCanMetrics(meterRegistry)
+
+    def "Pre-registers the timers for an action and resource class"() {
+        when:
+        coffeeCanMetrics.preRegister(Capability.READ, TestEntity)
+
+        then:
+        meterRegistry.find("coffeecan.load").tags("action", "read", "resource", "TestEntity").timer()
+
+        and:
+        meterRegistry.find("coffeecan.authorize").tags("outcome", "allowed").timer().count() == 0
+
+        and:
+        meterRegistry.find("coffeecan.authorize").tags("outcome", "denied").timer().count() == 0
+    }
+
+    def "Adding rules to a capability does not register any timers"() {
+        given:
+        BaseCapability capability = new BaseCapability() {}
+        capability.setCoffeeCanMetrics(coffeeCanMetrics)
+
+        when:
+        capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+        capability.cannot(Capability.UPDATE, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+
+        then:
+        meterRegistry.meters.isEmpty()
+    }
+
+    def "Records to the same timer for equal tags"() {
+        when:
+        2.times {
+            coffeeCanMetrics.recordRequest("GET", new String("show"), TestEntity, Outcome.ALLOWED,
+                                           coffeeCanMetrics.start())
+        }
+
+        then:
+        meterRegistry.find("coffeecan.request").meters().size() == 1
+
+        and:
+        meterRegistry.find("coffeecan.request").timer().count() == 2
+    }
+
+    def "Records the request by method, action, resource class and outcome"() {
+        when:
+        coffeeCanMetrics.recordRequest("GET", "show", TestEntity, Outcome.DENIED, coffeeCanMetrics.start())
+
+        then:
+        meterRegistry.find("coffeecan.request")
+                .tags("method", "GET", "action", "show", "resource", "TestEntity", "outcome", "denied")
+                .timer()
+                .count() == 1
+    }
+
+    def "Times the authorization decisions and specifications of a capability"() {
+        given:
+        BaseCapability capability = new BaseCapability() {}
+        capability.setCoffeeCanMetrics(coffeeCanMetrics)
+        capability.can(Capability.READ, TestEntity, new TrueAuthorizationCriteria<TestEntity>())
+
+        when:
+        capability.allows(Capability.READ, new TestEntity())
+        capability.toSpecification(Capability.READ, TestEntity)
+
+        then:
+        meterRegistry.find("coffeecan.authorize").tags("outcome", "allowed").timer().count() == 1
+
+        and:
+        meterRegistry.find("coffeecan.specification").tags("resource", "TestEntity").timer().count() == 1
+    }
+}